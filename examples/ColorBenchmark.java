@@ -0,0 +1,71 @@
+import java.awt.Color;
+import java.lang.management.ManagementFactory;
+
+import com.sjgl.Application;
+import com.sjgl.graphics.Palette;
+import com.sjgl.graphics.Renderer;
+
+/**
+ * Measures how many bytes a frame allocates while changing colors. Run it with {@code -Djava.awt.headless=true}; it renders into an
+ * offscreen framebuffer, so no window is needed.
+ */
+public class ColorBenchmark extends Application {
+	
+	private static final int COLOR_CHANGES = 10000;
+	private static final int FRAMES = 200;
+	
+	private final Palette palette = new Palette("Benchmark");
+	private final int[] indices = new int[64];
+	private int mode;
+	
+	public ColorBenchmark() {
+		SJGL_CreateFramebuffer(320, 240);
+		for (int i = 0; i < indices.length; i++)
+			indices[i] = palette.add("color" + i, 0xff000000 | (i * 0x040404));
+	}
+	
+	@Override
+	public void render() {
+		for (int i = 0; i < COLOR_CHANGES; i++) {
+			int c = (i & 63) * 4;
+			switch (mode) {
+			case 0:
+				g.setColor(new Color(c, c, c));
+				break;
+			case 1:
+				Renderer.SJGL_Color3i(c, c, c);
+				break;
+			case 2:
+				Renderer.SJGL_Color(palette, indices[i & 63]);
+				break;
+			}
+			Renderer.SJGL_Rect(i % 320, 0, 1, 1);
+		}
+	}
+	
+	private void measure(int mode, String name) {
+		this.mode = mode;
+		for (int i = 0; i < FRAMES; i++) // Warm up
+			step();
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		long bytes = threads.getThreadAllocatedBytes(thread);
+		long start = System.nanoTime();
+		for (int i = 0; i < FRAMES; i++)
+			step();
+		long nanos = System.nanoTime() - start;
+		bytes = threads.getThreadAllocatedBytes(thread) - bytes;
+		System.out.printf("%-28s %10d bytes/frame %8.3f ms/frame%n", name, bytes / FRAMES, nanos / 1e6 / FRAMES);
+	}
+	
+	public static void main(String[] args) {
+		ColorBenchmark benchmark = new ColorBenchmark();
+		System.out.println(COLOR_CHANGES + " color changes per frame");
+		benchmark.measure(0, "new Color(r, g, b)");
+		benchmark.measure(1, "Renderer.SJGL_Color3i");
+		benchmark.measure(2, "Renderer.SJGL_Color(Palette)");
+		benchmark.enableCommandBuffer(true);
+		benchmark.measure(1, "SJGL_Color3i, command buffer");
+	}
+	
+}
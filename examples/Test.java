@@ -4,7 +4,11 @@ import java.awt.event.KeyEvent;
 import com.sjgl.Application;
 import com.sjgl.animation.SpriteAnimation;
 import com.sjgl.graphics.Renderer;
+import com.sjgl.graphics.VertexBuffer;
+import com.sjgl.graphics.sprite.Sprite;
 import com.sjgl.graphics.sprite.Spritesheet;
+import com.sjgl.graphics.sprite.TransformCache;
+import com.sjgl.graphics.text.GlyphAtlas;
 import com.sjgl.input.SimpleKey;
 import com.sjgl.input.SimpleMouse;
 import com.sjgl.utils.MouseUtils;
@@ -30,6 +34,9 @@ public class Test extends Application {
 	private Spritesheet sheet = new Spritesheet("/test/Food.png");
 	private SpriteAnimation spriteAnimation = new SpriteAnimation(10, sheet.split());
 	
+	private VertexBuffer triangle = new VertexBuffer(VertexBuffer.TRIANGLES, 1);
+	private GlyphAtlas title = GlyphAtlas.get(new Font("Balloons!", 0, 40), 0xffffffff);
+	
 	public Test() {
 		SJGL_CreateWindow(850, 580, "My SJGL Demo", this).display(WindowUtils.TERMINATE_WINDOW, true, true);
 		
@@ -40,6 +47,11 @@ public class Test extends Application {
 		addMouseMotionInput(mouse);
 		
 		enableLog(false);
+		
+		// The animation frames are drawn at 50x50, so keep them scaled instead of scaling them every frame
+		Sprite.setTransformCache(new TransformCache(1 << 20));
+		
+		triangle.triangle(100, 50, 50, 100, 150, 100);
 	}
 
 	public void render() {
@@ -49,10 +61,10 @@ public class Test extends Application {
 		spriteAnimation.getCurrentSprite().render(x, y, 50, 50);
 		
 		Renderer.SJGL_Color3f(1.0f, 1.0f, 1.0f);
-		Renderer.SJGL_DrawString("SJGL Demo", new Font("Balloons!", 0, 40), getWidth() / 2 - 100, 50);
+		Renderer.SJGL_DrawString("SJGL Demo", title, getWidth() / 2 - 100, 50);
 		
 		//Renderer.SJGL_DrawQuad(new int[] {50, 50, 100, 100}, new int[] {50, 100, 100, 50});
-		Renderer.SJGL_DrawTriangle(new int[] {100, 50, 150}, new int[] {50, 100, 100});
+		Renderer.SJGL_DrawVertices(triangle);
 	}
 	
 	public void update() {
@@ -1,17 +1,35 @@
 package com.sjgl;
 
 import java.awt.Canvas;
+import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.ImageIcon;
 import javax.swing.JFrame;
 
+import com.sjgl.assets.AssetLoader;
+import com.sjgl.graphics.CommandBuffer;
+import com.sjgl.graphics.DirtyTracker;
+import com.sjgl.graphics.Renderer;
+import com.sjgl.graphics.SoftwareRasterizer;
 import com.sjgl.graphics.window.SimpleWindow;
 import com.sjgl.input.SimpleKey;
+import com.sjgl.profiling.EngineMXBean;
+import com.sjgl.profiling.EngineEvents;
+import com.sjgl.profiling.EngineMetrics;
+import com.sjgl.profiling.FrameEvent;
+import com.sjgl.profiling.FrameProfiler;
+import com.sjgl.profiling.FrameStats;
+import com.sjgl.utils.LoopUtils;
 import com.sjgl.utils.WindowUtils;
 
 /**
@@ -44,6 +62,8 @@ public class Application extends Canvas implements Runnable {
 	
 	private SimpleWindow mainWindow;
 	
+	private BufferedImage framebuffer;
+	
 	static {
 		System.out.println("SJGL Version: " + Version.getVersion() + "\n");
 	}
@@ -52,11 +72,38 @@ public class Application extends Canvas implements Runnable {
 	
 	private int closeOperation;
 	
-	private boolean running = false;
+	private volatile boolean running = false;
 	private Thread thread;
 	
+	private final List<StateBuffer<?>> stateBuffers = new ArrayList<>();
+	private volatile boolean ticked;
+	
+	private double tickNanos, delta;
+	private long lastTickTime;
+	private volatile double alpha, pendingAlpha;
+	private volatile long droppedTicks, catchUpTicks, cappedFrames;
+	private volatile double targetTicks, targetFrames;
+	private volatile int achievedTicks, achievedFrames;
+	private volatile int bufferStrategyCreations;
+	
+	private long frameCount;
+	private long updateNanos, frameUpdateNanos, renderNanos;
+	private int pendingTicks, publishedTicks;
+	
 	private boolean enableLog = false;
 	
+	private volatile FramePacer pacer;
+	private volatile FrameProfiler profiler;
+	private volatile AssetLoader assetLoader;
+	private volatile CommandBuffer commandBuffer;
+	private volatile SoftwareRasterizer rasterizer;
+	private volatile DirtyTracker dirtyTracker;
+	private volatile boolean exposed;
+	private BufferedImage dirtyBuffer;
+	private EngineMetrics metrics;
+	// Guards the services the game loop can create, never the application itself: stop() holds that lock while it waits for the loop
+	private final Object servicesLock = new Object();
+	
 	/**
 	 * Program exit status.
 	 */
@@ -86,6 +133,64 @@ public class Application extends Canvas implements Runnable {
 		return simpleWindow;
 	}
 	
+	/**
+	 * Sets up the application to run headless, rendering into an offscreen {@link BufferedImage} instead of a window. Use this instead of
+	 * {@code SJGL_CreateWindow(...)} on machines without a display (run with {@code -Djava.awt.headless=true}), e.g. for tests, benchmarks or
+	 * servers. {@code render()} draws into the framebuffer through {@code Application.g} and {@link Renderer} as usual.
+	 * 
+	 * <p>A headless application can either be launched with {@code launch(String[])}, which runs one tick and one frame after another as
+	 * fast as possible without waiting for real time, or driven manually with {@code step()} and {@code step(int)}.
+	 * @param width Width of the framebuffer
+	 * @param height Height of the framebuffer
+	 * @return {@link BufferedImage} framebuffer
+	 * 
+	 * @see BufferedImage
+	 */
+	public final BufferedImage SJGL_CreateFramebuffer(final int width, final int height) {
+		framebuffer = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+		setSize(width, height);
+		return framebuffer;
+	}
+	
+	/**
+	 * Runs one tick followed by one frame of a headless application. See {@code SJGL_CreateFramebuffer(int, int)}.
+	 */
+	public final void step() {
+		step(1);
+	}
+	
+	/**
+	 * Runs the given amount of ticks followed by one frame of a headless application. See {@code SJGL_CreateFramebuffer(int, int)}.
+	 * 
+	 * <p>This method shouldn't be called while the application is launched.
+	 * @param ticks Amount of ticks to run before rendering
+	 */
+	public final void step(int ticks) {
+		if (framebuffer == null)
+			throw new IllegalStateException("step() requires a framebuffer; call SJGL_CreateFramebuffer(width, height) first");
+		if (running)
+			throw new IllegalStateException("step() can't be called while the application is running");
+		stepFrame(ticks);
+	}
+	
+	/**
+	 * Returns whether or not the application renders into an offscreen framebuffer.
+	 * @return <STRONG>boolean</STRONG> headless
+	 * 
+	 * @see #SJGL_CreateFramebuffer(int, int)
+	 */
+	public final boolean isHeadless() {
+		return framebuffer != null;
+	}
+	
+	/**
+	 * Returns the offscreen framebuffer of a headless application, or null if the application renders into a window.
+	 * @return {@link BufferedImage} framebuffer
+	 */
+	public final BufferedImage getFramebuffer() {
+		return framebuffer;
+	}
+	
 	/**
 	 * This method can optionally be overrided. Overriding this method requires a return value of any. The value determines how many frames
 	 * is updated per second. By default, it is 60.
@@ -95,6 +200,69 @@ public class Application extends Canvas implements Runnable {
 		return 60.0;
 	}
 	
+	/**
+	 * This method can optionally be overrided. Returns how the game loop paces rendered frames. By default, it is
+	 * {@code LoopUtils.PACING_PARKED}, which renders at {@code renderFrames()} and parks the thread between frames. Return
+	 * {@code LoopUtils.PACING_UNCAPPED} to render as fast as possible.
+	 * @return int Pacing mode
+	 * 
+	 * @see LoopUtils
+	 * @see FramePacer
+	 */
+	public int pacing() {
+		return LoopUtils.PACING_PARKED;
+	}
+	
+	/**
+	 * This method can optionally be overrided. The value determines how many frames are rendered per second when pacing is enabled
+	 * (see {@code pacing()}). By default, it is the same as {@code frames()}.
+	 * @return double Rendered frames per second.
+	 */
+	public double renderFrames() {
+		return frames();
+	}
+	
+	/**
+	 * This method can optionally be overrided. Returns what the game loop does when it falls behind by more than {@code maxCatchUpTicks()}
+	 * ticks, e.g. after a garbage collection pause or while the window is dragged. By default, it is {@code LoopUtils.CATCH_UP_UNBOUNDED},
+	 * which runs every missed tick.
+	 * 
+	 * <p>{@code LoopUtils.CATCH_UP_DROP} runs at most {@code maxCatchUpTicks()} ticks per frame and discards the rest of the missed time.
+	 * {@code LoopUtils.CATCH_UP_STRETCH} also runs at most {@code maxCatchUpTicks()} ticks per frame but carries up to that many ticks over
+	 * to the following frames, so short hitches are caught up without a burst of ticks in one frame.
+	 * @return int Catch-up policy
+	 * 
+	 * @see LoopUtils
+	 */
+	public int catchUpPolicy() {
+		return LoopUtils.CATCH_UP_UNBOUNDED;
+	}
+	
+	/**
+	 * This method can optionally be overrided. The value determines the maximum amount of ticks run in one frame when the catch-up policy
+	 * isn't {@code LoopUtils.CATCH_UP_UNBOUNDED}. By default, it is 5.
+	 * @return int Maximum ticks per frame
+	 */
+	public int maxCatchUpTicks() {
+		return 5;
+	}
+	
+	/**
+	 * This method can optionally be overrided. Returns whether or not {@code update()} and {@code render()} run pipelined on two threads.
+	 * By default, it is false and both run one after the other on the main thread.
+	 * 
+	 * <p>When pipelined, the ticks for frame N+1 run on a separate update thread while frame N renders. Game state shared between
+	 * {@code update()} and {@code render()} must then be kept in a {@link StateBuffer} registered with {@code addStateBuffer(StateBuffer)}:
+	 * {@code update()} writes into {@code write()}, {@code render()} reads from {@code read()}, and the buffers are published between frames
+	 * while both threads wait for each other.
+	 * @return <STRONG>boolean</STRONG> Pipelined update and render
+	 * 
+	 * @see StateBuffer
+	 */
+	public boolean pipelined() {
+		return false;
+	}
+	
 	/**
 	 * Returns whether or not to immediately request focus of the window. By default, this method returns true.
 	 * @return <STRONG>boolean</STRONG> Enable request focus
@@ -112,6 +280,139 @@ public class Application extends Canvas implements Runnable {
 		enableLog = enable;
 	}
 	
+	/**
+	 * Enables or disables recording per-phase frame timings. By default, it is disabled. Recording doesn't allocate, and when it is disabled
+	 * the game loop doesn't measure anything. Enabling it again starts from empty histograms.
+	 * 
+	 * @param enable Enable or disable frame timings
+	 * 
+	 * @see FrameProfiler
+	 */
+	public final void enableProfiling(boolean enable) {
+		profiler = enable ? new FrameProfiler() : null;
+	}
+	
+	/**
+	 * Enables or disables recording each frame into a {@link CommandBuffer}. While it is enabled, {@code Renderer} calls and
+	 * {@code Sprite.render(...)} made from {@code render()} are recorded, then replayed sorted by layer and render state so that color,
+	 * font and image changes are only made when they differ. Overlapping graphics keep their order. Use {@code Renderer.SJGL_Layer(int)}
+	 * to draw graphics over others recorded later. By default, it is disabled.
+	 * 
+	 * @param enable Enable or disable the command buffer
+	 * 
+	 * @see CommandBuffer
+	 */
+	public final void enableCommandBuffer(boolean enable) {
+		commandBuffer = enable ? new CommandBuffer() : null;
+	}
+	
+	/**
+	 * Enables or disables the multi-core software rasterizer. While it is enabled, {@code Renderer} calls and {@code Sprite.render(...)}
+	 * made from {@code render()} are recorded, rasterized in parallel screen tiles into an {@code int[]} back buffer, and the back buffer is
+	 * shown once per frame. It is meant for machines without graphics acceleration, where Java2D fills everything on one core. Graphics
+	 * drawn directly with {@code g} go into the back buffer before the recorded graphics. By default, it is disabled.
+	 * 
+	 * @param enable Enable or disable the software rasterizer
+	 * 
+	 * @see SoftwareRasterizer
+	 */
+	public final void enableSoftwareRasterizer(boolean enable) {
+		rasterizer = enable ? new SoftwareRasterizer() : null;
+	}
+	
+	/**
+	 * Enables or disables dirty-rectangle rendering. While it is enabled, {@code Renderer} calls and {@code Sprite.render(...)} made from
+	 * {@code render()} are recorded and compared with the previous frame, and only the regions of the screen where something was added,
+	 * removed, moved or changed are drawn again; the rest is kept from the previous frame. A window is only shown again when something
+	 * changed, so an idle screen costs little more than recording it. Graphics drawn directly with {@code g} are only kept where they
+	 * are inside a changed region; use {@link #markDirty(int, int, int, int)} for them. It is ignored while the software rasterizer is
+	 * enabled. By default, it is disabled.
+	 * 
+	 * @param enable Enable or disable dirty-rectangle rendering
+	 * 
+	 * @see DirtyTracker
+	 */
+	public final void enableDirtyRegions(boolean enable) {
+		dirtyTracker = enable ? new DirtyTracker() : null;
+		dirtyBuffer = null;
+	}
+	
+	/**
+	 * Marks a rectangle of the screen to be drawn again on the next frame, when dirty-rectangle rendering is enabled. Can be called from
+	 * {@code update()} as well as {@code render()}, also when they run on different threads.
+	 * @param x X position
+	 * @param y Y position
+	 * @param w Width
+	 * @param h Height
+	 * 
+	 * @see #enableDirtyRegions(boolean)
+	 */
+	public final void markDirty(int x, int y, int w, int h) {
+		DirtyTracker tracker = dirtyTracker;
+		if (tracker != null)
+			tracker.markDirty(x, y, w, h);
+	}
+	
+	/**
+	 * Returns the dirty region tracker, or null if dirty-rectangle rendering is disabled.
+	 * @return {@link DirtyTracker} tracker
+	 */
+	public final DirtyTracker getDirtyTracker() {
+		return dirtyTracker;
+	}
+	
+	/**
+	 * Returns the software rasterizer, or null if it is disabled.
+	 * @return {@link SoftwareRasterizer} rasterizer
+	 */
+	public final SoftwareRasterizer getSoftwareRasterizer() {
+		return rasterizer;
+	}
+	
+	/**
+	 * Returns whether or not per-phase frame timings are recorded.
+	 * @return <STRONG>boolean</STRONG> profiling enabled
+	 * 
+	 * @see #enableProfiling(boolean)
+	 */
+	public final boolean isProfilingEnabled() {
+		return profiler != null;
+	}
+	
+	/**
+	 * Registers or unregisters an {@link EngineMXBean} exposing live engine metrics (target and achieved rates, frame time percentiles,
+	 * catch-up ticks, buffer strategy state) with the platform MBean server, so the application can be watched with JConsole or other JMX
+	 * tooling. The target rates can also be changed through it while the application is running. By default, it is disabled.
+	 * 
+	 * @param enable Enable or disable the MXBean
+	 * 
+	 * @see EngineMXBean
+	 */
+	public final void enableMXBean(boolean enable) {
+		synchronized (servicesLock) {
+			if (enable && metrics == null) {
+				metrics = new EngineMetrics(this);
+				if (!metrics.register())
+					metrics = null;
+			} else if (!enable && metrics != null) {
+				metrics.unregister();
+				metrics = null;
+			}
+		}
+	}
+	
+	/**
+	 * Returns a snapshot of the frame timings (p50, p99 and max of {@code update()}, {@code render()}, {@code BufferStrategy.show()} and
+	 * the total frame time) recorded since profiling was enabled, or null if profiling is disabled.
+	 * @return {@link FrameStats} frame timings
+	 * 
+	 * @see #enableProfiling(boolean)
+	 */
+	public final FrameStats getFrameStats() {
+		final FrameProfiler profiler = this.profiler;
+		return profiler != null ? profiler.snapshot() : null;
+	}
+	
 	/**
 	 * Sets the application icon for the window {@link SimpleWindow}. This accesses the display {@link JFrame} and sets the icon for it.
 	 * @param relativePath Relative path to the icon image
@@ -225,6 +526,8 @@ public class Application extends Canvas implements Runnable {
 		if (!running)
 			return;
 		running = false;
+		if (Thread.currentThread() == thread)
+			return;
 		try {
 			thread.join();
 		} catch (InterruptedException e) {
@@ -234,45 +537,290 @@ public class Application extends Canvas implements Runnable {
 	
 	@Override
 	public final void run() {
-		if (enableRequestFocus())
-			requestFocus();
-		long lastTime = System.nanoTime();
+		try {
+			if (framebuffer != null) {
+				runHeadless();
+				return;
+			}
+			if (enableRequestFocus())
+				requestFocus();
+			pacer = pacing() == LoopUtils.PACING_PARKED ? new FramePacer(getTargetFrames()) : null;
+			if (pipelined())
+				runPipelined();
+			else
+				runSerial();
+		} finally {
+			shutdownAssetLoader();
+		}
+	}
+	
+	/**
+	 * Stops the background threads of the asset loader once the game loop has stopped.
+	 */
+	private final void shutdownAssetLoader() {
+		AssetLoader loader;
+		synchronized (servicesLock) {
+			loader = assetLoader;
+			assetLoader = null;
+		}
+		if (loader != null)
+			loader.shutdown();
+	}
+	
+	private final void runSerial() {
 		long timer = System.currentTimeMillis();
-		final double ticks = 1000000000.0 / frames();
-		double delta = 0;
 		int frames = 0;
 		int updates = 0;
+		startTicks();
 		while (running) {
-			long now = System.nanoTime();
-			delta += (now - lastTime) / ticks;
-			lastTime = now;
-			while (delta >= 1) {
-				tick();
-				updates++;
-				delta--;
-			}
+			final FrameEvent event = EngineEvents.isRecording() ? new FrameEvent() : null;
+			if (event != null)
+				event.begin();
+			pollAssets();
+			int ticked = catchUp();
+			if (ticked > 0)
+				publishState();
+			handOffTimings();
+			updates += ticked;
+			alpha = Math.min(delta, 1.0);
 			draw();
 			frames++;
+			if (event != null)
+				commitFrameEvent(event, ticked);
+			if (pacer != null)
+				pacer.await();
 			
 			if (System.currentTimeMillis() - timer > 1000) {
 				timer += 1000;
-				if (enableLog)
-					System.out.println("FPS: " + frames + "; updates: " + updates);
+				logFrames(frames, updates);
 				frames = 0;
 				updates = 0;
 			}
 		}
-		stop();
+	}
+	
+	private final void runPipelined() {
+		final AtomicInteger updates = new AtomicInteger();
+		final Phaser handoff = new Phaser(2) {
+			@Override
+			protected boolean onAdvance(int phase, int registeredParties) {
+				// Both threads are parked here, so assets are handed back while neither update() nor render() is running
+				if (registeredParties == 2) {
+					pollAssets();
+					if (ticked)
+						publishState();
+					ticked = false;
+					alpha = pendingAlpha;
+					handOffTimings();
+					publishedTicks = pendingTicks;
+					pendingTicks = 0;
+				}
+				return false;
+			}
+		};
+		
+		Thread updateThread = new Thread(() -> {
+			try {
+				startTicks();
+				while (running) {
+					int ticked = catchUp();
+					if (ticked > 0) {
+						this.ticked = true;
+						pendingTicks += ticked;
+						updates.addAndGet(ticked);
+					}
+					pendingAlpha = Math.min(delta, 1.0);
+					handoff.arriveAndAwaitAdvance();
+				}
+			} finally {
+				running = false;
+				handoff.arriveAndDeregister();
+			}
+		}, "SJGL-Update");
+		updateThread.start();
+		
+		long timer = System.currentTimeMillis();
+		int frames = 0;
+		try {
+			while (running) {
+				final FrameEvent event = EngineEvents.isRecording() ? new FrameEvent() : null;
+				if (event != null)
+					event.begin();
+				draw();
+				frames++;
+				if (event != null)
+					commitFrameEvent(event, publishedTicks);
+				if (pacer != null)
+					pacer.await();
+				
+				if (System.currentTimeMillis() - timer > 1000) {
+					timer += 1000;
+					logFrames(frames, updates.getAndSet(0));
+					frames = 0;
+				}
+				handoff.arriveAndAwaitAdvance();
+			}
+		} finally {
+			running = false;
+			handoff.arriveAndDeregister();
+		}
+		
+		try {
+			updateThread.join();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	private final void runHeadless() {
+		long timer = System.currentTimeMillis();
+		int frames = 0;
+		while (running) {
+			stepFrame(1);
+			frames++;
+			
+			if (System.currentTimeMillis() - timer > 1000) {
+				timer += 1000;
+				logFrames(frames, frames);
+				frames = 0;
+			}
+		}
+	}
+	
+	private final void stepFrame(int ticks) {
+		final FrameEvent event = EngineEvents.isRecording() ? new FrameEvent() : null;
+		if (event != null)
+			event.begin();
+		pollAssets();
+		for (int i = 0; i < ticks; i++)
+			tick();
+		if (ticks > 0)
+			publishState();
+		handOffTimings();
+		alpha = 0;
+		draw();
+		if (event != null)
+			commitFrameEvent(event, ticks);
+	}
+	
+	private final void startTicks() {
+		tickNanos = 1000000000.0 / getTargetTicks();
+		lastTickTime = System.nanoTime();
+		delta = 0;
+	}
+	
+	/**
+	 * Runs the ticks owed since the last call, limited by the catch-up policy.
+	 */
+	private final int catchUp() {
+		long now = System.nanoTime();
+		tickNanos = 1000000000.0 / getTargetTicks();
+		delta += (now - lastTickTime) / tickNanos;
+		lastTickTime = now;
+		
+		final int policy = catchUpPolicy();
+		final int max = policy == LoopUtils.CATCH_UP_UNBOUNDED ? Integer.MAX_VALUE : Math.max(1, maxCatchUpTicks());
+		int ticked = 0;
+		while (delta >= 1 && ticked < max) {
+			tick();
+			ticked++;
+			delta--;
+		}
+		if (ticked > 1)
+			catchUpTicks += ticked - 1;
+		if (delta >= 1) {
+			cappedFrames++;
+			if (policy == LoopUtils.CATCH_UP_DROP) {
+				double fraction = delta - Math.floor(delta);
+				droppedTicks += (long) (delta - fraction);
+				delta = fraction;
+			} else if (delta > max) {
+				droppedTicks += (long) (delta - max);
+				delta = max;
+			}
+		}
+		return ticked;
+	}
+	
+	private final void logFrames(int frames, int updates) {
+		achievedFrames = frames;
+		achievedTicks = updates;
+		if (enableLog) {
+			if (pacer != null)
+				System.out.printf("FPS: %d; updates: %d; pacing error: avg %.3f ms, max %.3f ms%n", frames, updates,
+						pacer.getAverageError() / 1000000.0, pacer.getMaxError() / 1000000.0);
+			else
+				System.out.println("FPS: " + frames + "; updates: " + updates);
+		}
+		if (pacer != null)
+			pacer.resetStats();
+	}
+	
+	/**
+	 * Moves the update time measured by the ticking thread over to the frame that renders the ticked state.
+	 */
+	private final void handOffTimings() {
+		frameUpdateNanos += updateNanos;
+		updateNanos = 0;
+	}
+	
+	private final void commitFrameEvent(FrameEvent event, int ticks) {
+		event.end();
+		if (event.shouldCommit()) {
+			event.frame = frameCount;
+			event.ticks = ticks;
+			event.updateDuration = frameUpdateNanos;
+			event.renderDuration = renderNanos;
+			event.commit();
+		}
+		frameUpdateNanos = 0;
+	}
+	
+	private final void pollAssets() {
+		final AssetLoader assetLoader = this.assetLoader;
+		if (assetLoader != null)
+			assetLoader.poll();
+	}
+	
+	private final void publishState() {
+		for (StateBuffer<?> state : stateBuffers)
+			state.publish();
 	}
 	
 	private final void tick() {
+		final FrameProfiler profiler = this.profiler;
+		if (profiler == null && !EngineEvents.isRecording()) {
+			update();
+			return;
+		}
+		long start = System.nanoTime();
 		update();
+		long elapsed = System.nanoTime() - start;
+		if (profiler != null)
+			profiler.record(FrameProfiler.UPDATE, elapsed);
+		updateNanos += elapsed;
 	}
 	
 	private final void draw() {
+		final FrameProfiler profiler = this.profiler;
+		if (framebuffer != null) {
+			Graphics2D g = framebuffer.createGraphics();
+			Application.g = g;
+			renderFrame(profiler);
+			g.dispose();
+			if (profiler != null)
+				profiler.endFrame(System.nanoTime());
+			return;
+		}
+		
 		BufferStrategy bs = getBufferStrategy();
 		if (bs == null) {
 			createBufferStrategy(numBuffers);
+			bufferStrategyCreations++;
+			return;
+		}
+		if (dirtyTracker != null && rasterizer == null) {
+			drawDirty(bs, profiler);
 			return;
 		}
 
@@ -280,10 +828,118 @@ public class Application extends Canvas implements Runnable {
 		
 		Application.g = g;
 		
-		render();
+		renderFrame(profiler);
+		
+		g.dispose();
+		if (profiler == null) {
+			bs.show();
+			return;
+		}
+		long start = System.nanoTime();
+		bs.show();
+		long end = System.nanoTime();
+		profiler.record(FrameProfiler.SHOW, end - start);
+		profiler.endFrame(end);
+	}
+	
+	/**
+	 * Renders into a buffer that keeps the previous frame, and only shows it when something changed or the window was exposed.
+	 */
+	private final void drawDirty(BufferStrategy bs, FrameProfiler profiler) {
+		int width = getWidth(), height = getHeight();
+		if (width <= 0 || height <= 0)
+			return;
+		if (dirtyBuffer == null || dirtyBuffer.getWidth() != width || dirtyBuffer.getHeight() != height)
+			dirtyBuffer = getGraphicsConfiguration().createCompatibleImage(width, height);
 		
+		Graphics2D g = dirtyBuffer.createGraphics();
+		Application.g = g;
+		renderFrame(profiler);
 		g.dispose();
+		
+		DirtyTracker tracker = dirtyTracker;
+		if ((tracker == null || tracker.getRedrawnArea() == 0) && !exposed && !bs.contentsLost() && !bs.contentsRestored()) {
+			if (profiler != null)
+				profiler.endFrame(System.nanoTime());
+			return;
+		}
+		exposed = false;
+		long start = System.nanoTime();
+		do {
+			Graphics2D screen = (Graphics2D) bs.getDrawGraphics();
+			screen.drawImage(dirtyBuffer, 0, 0, null);
+			screen.dispose();
+		} while (bs.contentsRestored());
 		bs.show();
+		if (profiler != null) {
+			long end = System.nanoTime();
+			profiler.record(FrameProfiler.SHOW, end - start);
+			profiler.endFrame(end);
+		}
+	}
+	
+	/**
+	 * Marks the window to be shown again on the next frame when dirty-rectangle rendering is enabled, since the system cleared it.
+	 */
+	@Override
+	public void paint(Graphics g) {
+		exposed = true;
+	}
+	
+	private final void renderFrame(FrameProfiler profiler) {
+		frameCount++;
+		if (profiler == null && !EngineEvents.isRecording()) {
+			renderScene();
+			return;
+		}
+		long start = System.nanoTime();
+		renderScene();
+		renderNanos = System.nanoTime() - start;
+		if (profiler != null)
+			profiler.record(FrameProfiler.RENDER, renderNanos);
+	}
+	
+	private final void renderScene() {
+		SoftwareRasterizer raster = rasterizer;
+		if (raster != null) {
+			rasterizeScene(raster);
+			return;
+		}
+		DirtyTracker tracker = dirtyTracker;
+		CommandBuffer commands = commandBuffer;
+		if (tracker != null && commands == null)
+			commands = tracker.getCommands();
+		if (commands == null) {
+			render(alpha);
+			return;
+		}
+		Renderer.SJGL_BeginCommands(commands);
+		try {
+			render(alpha);
+		} finally {
+			Renderer.SJGL_EndCommands();
+		}
+		if (tracker == null) {
+			commands.replay(g);
+			return;
+		}
+		BufferedImage buffer = framebuffer != null ? framebuffer : dirtyBuffer;
+		tracker.update(commands, g, buffer.getWidth(), buffer.getHeight());
+		tracker.replay(commands, g);
+	}
+	
+	private final void rasterizeScene(SoftwareRasterizer raster) {
+		Graphics2D frame = g;
+		g = raster.begin(getWidth(), getHeight());
+		Renderer.SJGL_BeginCommands(raster.getCommands());
+		try {
+			render(alpha);
+		} finally {
+			Renderer.SJGL_EndCommands();
+			g = frame;
+		}
+		raster.end();
+		frame.drawImage(raster.getBackBuffer(), 0, 0, null);
 	}
 	
 	/**
@@ -297,6 +953,22 @@ public class Application extends Canvas implements Runnable {
 		this.numBuffers = numBuffers;
 	}
 	
+	/**
+	 * Returns the amount of buffers the {@code BufferStrategy} will create.
+	 * @return int numBuffers
+	 */
+	public int getNumBuffers() {
+		return numBuffers;
+	}
+	
+	/**
+	 * Returns how many times the {@code BufferStrategy} was created. More than one means it had to be recreated.
+	 * @return int creations
+	 */
+	public final int getBufferStrategyCreations() {
+		return bufferStrategyCreations;
+	}
+	
 	/**
 	 * To be overrided. Implementing this method will draw graphics onto the screen using {@link Renderer}. The game loop and rendering context
 	 * is already set up so drawing graphics can easily be done with a couple of lines.
@@ -305,6 +977,16 @@ public class Application extends Canvas implements Runnable {
 	 */
 	public void render() {
 	}
+	
+	/**
+	 * Can be overrided instead of {@code render()}. Called by the game loop every frame with the interpolation factor between the last tick
+	 * and the next one, so a low tick rate can still render smooth motion (e.g. {@code x = prevX + (currX - prevX) * alpha}). By default, it
+	 * calls {@code render()}.
+	 * @param alpha Interpolation factor between 0 (last tick) and 1 (next tick)
+	 */
+	public void render(double alpha) {
+		render();
+	}
 
 	/**
 	 * To be overrided. Implementing this method will update the program the specified amount of frames every second.
@@ -348,6 +1030,127 @@ public class Application extends Canvas implements Runnable {
 		addMouseWheelListener(mouseInput);
 	}
 	
+	/**
+	 * Registers a {@link StateBuffer} that is published by the game loop after each frame's ticks. Should be called before {@code launch(String[])}.
+	 * @param state Double-buffered game state
+	 * 
+	 * @see StateBuffer
+	 */
+	public final void addStateBuffer(StateBuffer<?> state) {
+		stateBuffers.add(state);
+	}
+	
+	/**
+	 * Returns the target amount of ticks per second. This is {@code frames()} unless it was changed with {@code setTargetTicks(double)}.
+	 * @return double ticks per second
+	 */
+	public final double getTargetTicks() {
+		return targetTicks > 0 ? targetTicks : frames();
+	}
+	
+	/**
+	 * Changes the target amount of ticks per second. Can be called at any time, including from other threads while the application is
+	 * running; the game loop picks up the new rate with the next frame.
+	 * @param ticksPerSecond Ticks per second. Must be greater than 0.
+	 */
+	public final void setTargetTicks(double ticksPerSecond) {
+		if (!(ticksPerSecond > 0) || Double.isInfinite(ticksPerSecond))
+			throw new IllegalArgumentException("ticksPerSecond must be a positive number: " + ticksPerSecond);
+		targetTicks = ticksPerSecond;
+	}
+	
+	/**
+	 * Returns the target amount of rendered frames per second. This is {@code renderFrames()} unless it was changed with
+	 * {@code setTargetFrames(double)}.
+	 * @return double frames per second
+	 */
+	public final double getTargetFrames() {
+		return targetFrames > 0 ? targetFrames : renderFrames();
+	}
+	
+	/**
+	 * Changes the target amount of rendered frames per second. Can be called at any time, including from other threads while the application
+	 * is running. Only has an effect when frames are paced (see {@code pacing()}).
+	 * @param framesPerSecond Frames per second. Must be greater than 0.
+	 */
+	public final void setTargetFrames(double framesPerSecond) {
+		if (!(framesPerSecond > 0) || Double.isInfinite(framesPerSecond))
+			throw new IllegalArgumentException("framesPerSecond must be a positive number: " + framesPerSecond);
+		targetFrames = framesPerSecond;
+		final FramePacer pacer = this.pacer;
+		if (pacer != null)
+			pacer.setTarget(framesPerSecond);
+	}
+	
+	/**
+	 * Returns the amount of ticks run during the last full second.
+	 * @return int ticks per second
+	 */
+	public final int getTicksPerSecond() {
+		return achievedTicks;
+	}
+	
+	/**
+	 * Returns the amount of frames rendered during the last full second.
+	 * @return int frames per second
+	 */
+	public final int getFramesPerSecond() {
+		return achievedFrames;
+	}
+	
+	/**
+	 * Returns the total amount of extra ticks run to catch up, i.e. ticks beyond the first one in a frame.
+	 * @return long catch-up ticks
+	 */
+	public final long getCatchUpTicks() {
+		return catchUpTicks;
+	}
+	
+	/**
+	 * Returns the amount of frames that reached {@code maxCatchUpTicks()}.
+	 * @return long capped frames
+	 */
+	public final long getCappedFrames() {
+		return cappedFrames;
+	}
+	
+	/**
+	 * Returns the total amount of ticks dropped by the catch-up policy since the application was launched.
+	 * @return long dropped ticks
+	 */
+	public final long getDroppedTicks() {
+		return droppedTicks;
+	}
+	
+	/**
+	 * Returns the {@link AssetLoader} of the application, creating it on first use. Assets requested through it load in the background and
+	 * are handed back before the ticks of a frame, so they never become ready while {@code update()} or {@code render()} are running. The
+	 * loader is shut down when the game loop stops, and a new one is created if the application is started again.
+	 * @return {@link AssetLoader} assetLoader
+	 * 
+	 * @see AssetLoader
+	 */
+	public final AssetLoader getAssetLoader() {
+		AssetLoader loader = assetLoader;
+		if (loader == null) {
+			synchronized (servicesLock) {
+				loader = assetLoader;
+				if (loader == null)
+					assetLoader = loader = new AssetLoader();
+			}
+		}
+		return loader;
+	}
+	
+	/**
+	 * Returns the frame pacer of the game loop, or null if the loop isn't running or pacing is set to {@code LoopUtils.PACING_UNCAPPED}.
+	 * The pacer reports how far frames land from their target time.
+	 * @return {@link FramePacer} pacer
+	 */
+	public final FramePacer getFramePacer() {
+		return pacer;
+	}
+	
 	/**
 	 * Returns the main thread.
 	 * @return <strong>thread</strong> Main thread
@@ -0,0 +1,136 @@
+package com.sjgl;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Frame pacer used by the {@link Application} game loop to hold a target render rate without busy-spinning.
+ * 
+ * <p>Each call to {@code await()} parks the calling thread with {@link LockSupport#parkNanos(long)} until it is close to the next frame
+ * deadline, then spins for the last stretch (see {@code setSpinNanos(long)}) since parking alone wakes up too late on most systems. The pacer
+ * keeps track of how far each frame landed from its deadline, which can be read with {@code getLastError()}, {@code getAverageError()} and
+ * {@code getMaxError()}.
+ * 
+ * <p>If a frame runs later than a whole frame past its deadline, the pacer re-synchronizes to the current time instead of rendering a burst of
+ * frames to catch up.
+ * 
+ * @author yiwuen
+ * 
+ * @see Application
+ * @see LockSupport
+ *
+ */
+public final class FramePacer {
+	
+	/**
+	 * Default time spent spinning before each deadline, in nanoseconds (1 ms).
+	 */
+	public static final long DEFAULT_SPIN_NANOS = 1000000L;
+	
+	private volatile long frameNanos;
+	private long spinNanos = DEFAULT_SPIN_NANOS;
+	
+	private long deadline;
+	
+	private long lastError, maxError, totalError;
+	private long samples;
+	
+	/**
+	 * Constructs a frame pacer targeting the given render rate.
+	 * @param framesPerSecond Target frames per second. Must be greater than 0.
+	 */
+	public FramePacer(double framesPerSecond) {
+		setTarget(framesPerSecond);
+		reset();
+	}
+	
+	/**
+	 * Sets the target render rate. Takes effect from the next deadline.
+	 * @param framesPerSecond Target frames per second. Must be greater than 0.
+	 */
+	public void setTarget(double framesPerSecond) {
+		if (framesPerSecond <= 0)
+			throw new IllegalArgumentException("framesPerSecond must be greater than 0: " + framesPerSecond);
+		frameNanos = (long) (1000000000.0 / framesPerSecond);
+	}
+	
+	/**
+	 * Sets how long the pacer spins before each deadline instead of parking. Larger values are more accurate on systems with a coarse
+	 * timer (e.g. Windows) at the cost of more CPU time.
+	 * @param spinNanos Spin time in nanoseconds
+	 */
+	public void setSpinNanos(long spinNanos) {
+		this.spinNanos = Math.max(0, spinNanos);
+	}
+	
+	/**
+	 * Restarts pacing from the current time. The next deadline is one frame from now.
+	 */
+	public void reset() {
+		deadline = System.nanoTime() + frameNanos;
+	}
+	
+	/**
+	 * Waits until the next frame deadline, then schedules the one after it. Should be called once per frame after the frame is presented.
+	 */
+	public void await() {
+		final long target = deadline;
+		long now;
+		while ((now = System.nanoTime()) < target - spinNanos)
+			LockSupport.parkNanos(target - spinNanos - now);
+		while ((now = System.nanoTime()) < target)
+			Thread.onSpinWait();
+		
+		lastError = now - target;
+		if (lastError > maxError)
+			maxError = lastError;
+		totalError += lastError;
+		samples++;
+		
+		deadline = target + frameNanos;
+		if (now - deadline > frameNanos)
+			deadline = now + frameNanos;
+	}
+	
+	/**
+	 * Clears the recorded timing error statistics.
+	 */
+	public void resetStats() {
+		lastError = 0;
+		maxError = 0;
+		totalError = 0;
+		samples = 0;
+	}
+	
+	/**
+	 * Returns the duration of one frame at the target render rate.
+	 * @return long frame time in nanoseconds
+	 */
+	public long getFrameNanos() {
+		return frameNanos;
+	}
+	
+	/**
+	 * Returns how late the last frame landed after its deadline.
+	 * @return long error in nanoseconds
+	 */
+	public long getLastError() {
+		return lastError;
+	}
+	
+	/**
+	 * Returns the largest recorded frame error since the last {@code resetStats()}.
+	 * @return long error in nanoseconds
+	 */
+	public long getMaxError() {
+		return maxError;
+	}
+	
+	/**
+	 * Returns the average frame error since the last {@code resetStats()}.
+	 * @return double error in nanoseconds
+	 */
+	public double getAverageError() {
+		return samples == 0 ? 0 : (double) totalError / samples;
+	}
+	
+}
@@ -0,0 +1,75 @@
+package com.sjgl;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Double-buffered game state shared between {@code update()} and {@code render()} of an {@link Application}.
+ * 
+ * <p>{@code update()} writes into {@code write()} and {@code render()} only reads from {@code read()}. After the ticks of a frame have run,
+ * the game loop publishes the buffer: the written state becomes the readable state and is copied into the other instance, so the next
+ * {@code update()} continues from the latest state. When {@link Application} runs pipelined (see {@code Application.pipelined()}), 
+ * publishing happens while neither thread is running user code, so {@code update()} and {@code render()} never touch the same instance at
+ * the same time.
+ * 
+ * <p>Register every buffer with {@code Application.addStateBuffer(StateBuffer)} before launching the application.
+ * 
+ * <p>Example:
+ * <p>{@code
+ * StateBuffer<World> world = new StateBuffer<>(new World(), new World(), World::copy);}
+ * 
+ * @author yiwuen
+ * 
+ * @param <T> Type of the game state
+ * 
+ * @see Application
+ *
+ */
+public final class StateBuffer<T> {
+	
+	private T read, write;
+	
+	private final BiConsumer<T, T> copier;
+	
+	/**
+	 * Constructs a state buffer with two instances of the game state.
+	 * @param front Initial readable state
+	 * @param back Initial writable state
+	 * @param copier Copies the state from the first argument into the second argument
+	 */
+	public StateBuffer(T front, T back, BiConsumer<T, T> copier) {
+		if (front == back)
+			throw new IllegalArgumentException("front and back must be different instances");
+		this.read = front;
+		this.write = back;
+		this.copier = copier;
+		
+		copier.accept(front, back);
+	}
+	
+	/**
+	 * Returns the state to read from. Should only be used in {@code render()}.
+	 * @return T readable state
+	 */
+	public T read() {
+		return read;
+	}
+	
+	/**
+	 * Returns the state to write into. Should only be used in {@code update()}.
+	 * @return T writable state
+	 */
+	public T write() {
+		return write;
+	}
+	
+	/**
+	 * Swaps the buffers and copies the newly published state into the writable instance.
+	 */
+	void publish() {
+		T published = write;
+		write = read;
+		read = published;
+		copier.accept(read, write);
+	}
+	
+}
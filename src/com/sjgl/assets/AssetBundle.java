@@ -0,0 +1,449 @@
+package com.sjgl.assets;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import com.sjgl.Application;
+import com.sjgl.audio.Audio;
+import com.sjgl.graphics.sprite.Sprite;
+import com.sjgl.graphics.sprite.Spritesheet;
+import com.sjgl.utils.PathUtils;
+
+/**
+ * A group of assets declared in a manifest that are loaded in parallel, tracked for a loading screen and unloaded together.
+ * 
+ * <p>A manifest is a text file with one asset per line: the asset type, a name, the path and, for spritesheets, the sprite size. Empty
+ * lines and lines starting with {@code #} are ignored. Image paths are classpath paths like for {@code PathUtils.GetImage(String)}; audio
+ * paths are file paths like for {@link Audio}.
+ * 
+ * <pre>
+ * # level1.bundle
+ * image  background  /level1/background.png
+ * sprite player      /level1/player.png
+ * sheet  food        /level1/Food.png 16 16
+ * audio  theme       res/level1/theme.wav
+ * </pre>
+ * 
+ * <p>{@code load(AssetLoader)} starts loading through an {@link AssetLoader}, so assets are handed back at the same safe point as other
+ * assets. At most {@code setThreads(int)} assets are read and decoded at the same time, and a memory budget ({@code setMemoryBudget(long)})
+ * limits the size of the decoded assets. Every distinct asset the bundle references is counted once when it has loaded, including assets
+ * that were already loaded or being loaded for someone else. Image sizes are also read from the image header before decoding, so images
+ * that would go over the budget fail to load instead of being decoded; with a budget set, images whose header can't be read fail too.
+ * An asset that only goes over the budget once it has loaded is released right away, so the loader doesn't keep it until {@code unload()}.
+ * {@code getProgress()} can be drawn on a loading screen in {@code Application.render()}.
+ * 
+ * @author yiwuen
+ * 
+ * @see AssetLoader
+ *
+ */
+public class AssetBundle {
+	
+	private static final int IMAGE = 0, SPRITE = 1, SHEET = 2, AUDIO = 3;
+	
+	private final String name;
+	private final Map<String, Entry> entries = new LinkedHashMap<>();
+	
+	private int threads = 4;
+	private long memoryBudget = Long.MAX_VALUE;
+	
+	private AssetLoader loader;
+	private Semaphore io;
+	private volatile Progress progress = new Progress();
+	
+	/**
+	 * State of one load of the bundle. Loads still running after {@code unload()} only update the state they started with.
+	 */
+	private static final class Progress {
+		final AtomicInteger completed = new AtomicInteger();
+		final AtomicInteger failed = new AtomicInteger();
+		// Keys of the assets counted in the memory usage, and of the ones that went over the budget
+		final Set<String> charged = ConcurrentHashMap.newKeySet();
+		final Set<String> rejected = ConcurrentHashMap.newKeySet();
+		// Estimated sizes of the images being decoded for the bundle, reserved until they have loaded or failed
+		final Map<String, Long> estimates = new ConcurrentHashMap<>();
+		long memoryUsage, reserved;
+	}
+	
+	private static final class Entry {
+		final int type;
+		final String path;
+		final int spriteWidth, spriteHeight;
+		AssetHandle<?> handle;
+		
+		Entry(int type, String path, int spriteWidth, int spriteHeight) {
+			this.type = type;
+			this.path = path;
+			this.spriteWidth = spriteWidth;
+			this.spriteHeight = spriteHeight;
+		}
+	}
+	
+	/**
+	 * Constructs an empty bundle. Assets can be added with {@code add(String)} or read from a manifest with {@code read(String)}.
+	 * @param name Name of the bundle
+	 */
+	public AssetBundle(String name) {
+		this.name = name;
+	}
+	
+	/**
+	 * Reads a bundle manifest from the classpath.
+	 * @param manifestPath Classpath path to the manifest, e.g. {@code "/level1.bundle"}
+	 * @return {@link AssetBundle} bundle, or null if the manifest couldn't be read
+	 */
+	public static AssetBundle read(String manifestPath) {
+		InputStream in = PathUtils.class.getResourceAsStream(manifestPath);
+		if (in == null) {
+			System.err.println("[BUNDLE ERROR] Manifest not found: " + manifestPath);
+			return null;
+		}
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+			AssetBundle bundle = new AssetBundle(manifestPath);
+			String line;
+			while ((line = reader.readLine()) != null)
+				bundle.add(line);
+			return bundle;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+	
+	/**
+	 * Adds an asset declared by one manifest line, e.g. {@code "sheet food /level1/Food.png 16 16"}. Has to be called before
+	 * {@code load(AssetLoader)}.
+	 * @param line Manifest line
+	 */
+	public void add(String line) {
+		line = line.trim();
+		if (line.isEmpty() || line.startsWith("#"))
+			return;
+		String[] parts = line.split("\\s+");
+		try {
+			switch (parts[0]) {
+				case "image":
+					put(parts[1], new Entry(IMAGE, parts[2], 0, 0));
+					break;
+				case "sprite":
+					put(parts[1], new Entry(SPRITE, parts[2], 0, 0));
+					break;
+				case "sheet":
+					put(parts[1], new Entry(SHEET, parts[2], Integer.parseInt(parts[3]), Integer.parseInt(parts[4])));
+					break;
+				case "audio":
+					put(parts[1], new Entry(AUDIO, parts[2], 0, 0));
+					break;
+				default:
+					System.err.println("[BUNDLE ERROR] Unknown asset type in " + name + ": " + line);
+					break;
+			}
+		} catch (RuntimeException e) {
+			System.err.println("[BUNDLE ERROR] Invalid manifest line in " + name + ": " + line);
+		}
+	}
+	
+	private void put(String assetName, Entry entry) {
+		if (loader != null)
+			throw new IllegalStateException("Assets can't be added after the bundle started loading");
+		entries.put(assetName, entry);
+	}
+	
+	/**
+	 * Sets how many assets are read and decoded at the same time. By default, it is 4.
+	 * @param threads Maximum concurrent loads
+	 */
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+	
+	/**
+	 * Sets the maximum memory of the decoded assets. Images count 4 bytes per pixel, audio counts its file size, and an asset used by several
+	 * entries counts once. Assets that go over the budget are reported as failed. By default, there is no limit.
+	 * @param bytes Memory budget in bytes
+	 */
+	public void setMemoryBudget(long bytes) {
+		memoryBudget = bytes;
+	}
+	
+	/**
+	 * Starts loading every asset of the bundle in the background. Calling it again does nothing until the bundle is unloaded.
+	 * @param loader Asset loader, usually {@code Application.getAssetLoader()}
+	 * 
+	 * @see Application#getAssetLoader()
+	 */
+	public synchronized void load(AssetLoader loader) {
+		if (this.loader != null)
+			return;
+		this.loader = loader;
+		io = new Semaphore(threads);
+		final Progress progress = this.progress = new Progress();
+		
+		for (Entry entry : entries.values()) {
+			final String path = entry.path;
+			final String memoryKey = memoryKeyOf(entry);
+			AssetHandle<?> source;
+			if (entry.type == AUDIO) {
+				final long bytes = new File(path).length();
+				source = entry.handle = loader.load(memoryKey, limited(() -> {
+					reserve(progress, memoryKey, bytes);
+					return new Audio(path);
+				}));
+			} else {
+				AssetHandle<BufferedImage> image = loadImage(path, memoryKey, progress);
+				source = image;
+				if (entry.type == IMAGE)
+					entry.handle = image;
+				else if (entry.type == SPRITE)
+					entry.handle = loader.derive(keyOf(entry), image, Sprite::new);
+				else
+					entry.handle = loader.derive(keyOf(entry), image, sheet -> new Spritesheet(sheet, entry.spriteWidth, entry.spriteHeight));
+			}
+			
+			// The asset is counted once it is charged and built, whichever finishes last
+			final AssetHandle<?> handle = entry.handle;
+			CompletableFuture<?> charged = source.getFuture().whenComplete((asset, error) -> charge(progress, memoryKey, asset, error));
+			CompletableFuture.allOf(charged, handle.getFuture()).whenComplete((done, error) -> {
+				if (handle.isFailed() || progress.rejected.contains(memoryKey))
+					progress.failed.incrementAndGet();
+				progress.completed.incrementAndGet();
+			});
+			// The asset can already have been rejected by an earlier entry sharing it
+			if (entry.handle != null && progress.rejected.contains(memoryKey))
+				release(entry);
+		}
+	}
+	
+	private AssetHandle<BufferedImage> loadImage(String path, String key, Progress progress) {
+		return loader.load(key, limited(() -> {
+			long bytes = estimateImageBytes(path);
+			if (bytes < 0 && memoryBudget != Long.MAX_VALUE)
+				throw new IllegalStateException("size of " + key + " can't be read to check the memory budget of bundle " + name);
+			reserve(progress, key, Math.max(0, bytes));
+			return PathUtils.GetImage(path);
+		}));
+	}
+	
+	private <T> Callable<T> limited(Callable<T> loader) {
+		final Semaphore io = this.io;
+		return () -> {
+			io.acquire();
+			try {
+				return loader.call();
+			} finally {
+				io.release();
+			}
+		};
+	}
+	
+	/**
+	 * Reserves the estimated size of an asset before it is decoded, or fails if it would go over the budget.
+	 */
+	private void reserve(Progress progress, String key, long bytes) {
+		synchronized (progress) {
+			if (progress.memoryUsage + progress.reserved + bytes > memoryBudget)
+				throw new IllegalStateException("memory budget of bundle " + name + " exceeded by " + key);
+			progress.reserved += bytes;
+			progress.estimates.put(key, bytes);
+		}
+	}
+	
+	/**
+	 * Releases the reservation of an asset that finished loading and counts its decoded size, once per distinct asset. An asset that goes
+	 * over the budget is released from the loader.
+	 */
+	private void charge(Progress progress, String key, Object asset, Throwable error) {
+		synchronized (progress) {
+			Long estimate = progress.estimates.remove(key);
+			if (estimate != null)
+				progress.reserved -= estimate;
+			if (error != null || !progress.charged.add(key))
+				return;
+			long bytes = asset instanceof BufferedImage ? (long) ((BufferedImage) asset).getWidth() * ((BufferedImage) asset).getHeight() * 4
+					: new File(key.substring("audio:".length())).length();
+			if (progress.memoryUsage + bytes <= memoryBudget) {
+				progress.memoryUsage += bytes;
+				return;
+			}
+			progress.rejected.add(key);
+			System.err.println("[BUNDLE ERROR] memory budget of bundle " + name + " exceeded by " + key);
+		}
+		releaseRejected(progress, key);
+	}
+	
+	/**
+	 * Gives up the bundle's references to a rejected asset. Waits for {@code load(AssetLoader)} to take them first; entries that start
+	 * loading the asset after it was rejected release it themselves.
+	 */
+	private synchronized void releaseRejected(Progress progress, String memoryKey) {
+		if (progress != this.progress)
+			return;
+		for (Entry entry : entries.values()) {
+			if (entry.handle != null && memoryKeyOf(entry).equals(memoryKey))
+				release(entry);
+		}
+	}
+	
+	private void release(Entry entry) {
+		loader.release(keyOf(entry));
+		if (entry.type == SPRITE || entry.type == SHEET)
+			loader.release("image:" + entry.path);
+		entry.handle = null;
+	}
+	
+	/**
+	 * Returns the decoded size of an image read from its header, or -1 if the header can't be read.
+	 */
+	private static long estimateImageBytes(String path) throws IOException {
+		URL url = PathUtils.class.getResource(path);
+		if (url == null)
+			throw new IOException("Image not found: " + path);
+		try (ImageInputStream in = ImageIO.createImageInputStream(url.openStream())) {
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+			if (!readers.hasNext())
+				return -1;
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(in);
+				return (long) reader.getWidth(0) * reader.getHeight(0) * 4;
+			} finally {
+				reader.dispose();
+			}
+		}
+	}
+	
+	/**
+	 * Unloads every asset of the bundle: gives up the bundle's references to them in the {@link AssetLoader}, which forgets the assets no
+	 * other bundle or request references, so their memory can be garbage collected once the game drops them too. The bundle can be
+	 * loaded again afterwards.
+	 */
+	public synchronized void unload() {
+		if (loader == null)
+			return;
+		// Entries of rejected assets were already released
+		for (Entry entry : entries.values()) {
+			if (entry.handle != null)
+				release(entry);
+		}
+		progress = new Progress();
+		loader = null;
+	}
+	
+	private static String memoryKeyOf(Entry entry) {
+		return entry.type == AUDIO ? keyOf(entry) : "image:" + entry.path;
+	}
+	
+	private static String keyOf(Entry entry) {
+		switch (entry.type) {
+			case SPRITE:
+				return "sprite:" + entry.path;
+			case SHEET:
+				return "sheet:" + entry.spriteWidth + "x" + entry.spriteHeight + ":" + entry.path;
+			case AUDIO:
+				return "audio:" + entry.path;
+			default:
+				return "image:" + entry.path;
+		}
+	}
+	
+	/**
+	 * Returns a loaded asset of the bundle.
+	 * @param <T> Type of the asset ({@link BufferedImage}, {@link Sprite}, {@link Spritesheet} or {@link Audio})
+	 * @param assetName Name of the asset in the manifest
+	 * @return T asset, or null if it isn't ready, went over the memory budget or doesn't exist
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(String assetName) {
+		Entry entry = entries.get(assetName);
+		if (entry == null || entry.handle == null || progress.rejected.contains(memoryKeyOf(entry)))
+			return null;
+		return (T) entry.handle.get();
+	}
+	
+	/**
+	 * Returns the handle of an asset of the bundle.
+	 * @param assetName Name of the asset in the manifest
+	 * @return {@link AssetHandle} handle, or null if the bundle isn't loading, the asset went over the memory budget or doesn't exist
+	 */
+	public AssetHandle<?> getHandle(String assetName) {
+		Entry entry = entries.get(assetName);
+		return entry != null ? entry.handle : null;
+	}
+	
+	/**
+	 * Returns how much of the bundle has loaded, counting failed assets as done.
+	 * @return float progress between 0 and 1
+	 */
+	public float getProgress() {
+		return entries.isEmpty() ? 1 : (float) progress.completed.get() / entries.size();
+	}
+	
+	/**
+	 * Returns whether or not every asset has loaded (or failed) and been handed back to the game thread.
+	 * @return boolean loaded
+	 */
+	public boolean isLoaded() {
+		if (loader == null)
+			return false;
+		for (Entry entry : entries.values()) {
+			if (entry.handle != null && !entry.handle.isReady())
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns the amount of assets that failed to load.
+	 * @return int failed
+	 */
+	public int getFailedCount() {
+		return progress.failed.get();
+	}
+	
+	/**
+	 * Returns the amount of assets in the bundle.
+	 * @return int size
+	 */
+	public int size() {
+		return entries.size();
+	}
+	
+	/**
+	 * Returns the memory of the distinct assets loaded so far.
+	 * @return long bytes
+	 */
+	public long getMemoryUsage() {
+		Progress progress = this.progress;
+		synchronized (progress) {
+			return progress.memoryUsage;
+		}
+	}
+	
+	/**
+	 * Returns the name of the bundle.
+	 * @return String name
+	 */
+	public String getName() {
+		return name;
+	}
+	
+}
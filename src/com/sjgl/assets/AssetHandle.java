@@ -0,0 +1,121 @@
+package com.sjgl.assets;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Handle to an asset loaded by an {@link AssetLoader}. The asset is decoded in the background and handed back to the game thread at a safe
+ * point in the game loop (see {@code AssetLoader.poll()}); only then does {@code isReady()} become true and the {@code onLoaded} callbacks
+ * run. Game code can therefore check {@code isReady()} in {@code update()} or {@code render()} without any synchronization.
+ * 
+ * @author yiwuen
+ * 
+ * @param <T> Type of the asset
+ * 
+ * @see AssetLoader
+ *
+ */
+public final class AssetHandle<T> {
+	
+	private final String key;
+	private final CompletableFuture<T> future;
+	
+	private final List<Consumer<T>> listeners = new ArrayList<>();
+	private volatile boolean ready;
+	
+	AssetHandle(String key, CompletableFuture<T> future) {
+		this.key = key;
+		this.future = future;
+	}
+	
+	/**
+	 * Runs on the game thread once the asset has loaded.
+	 */
+	void deliver() {
+		List<Consumer<T>> pending;
+		synchronized (listeners) {
+			ready = true;
+			pending = new ArrayList<>(listeners);
+			listeners.clear();
+		}
+		if (isFailed())
+			return;
+		T asset = future.join();
+		for (Consumer<T> listener : pending)
+			listener.accept(asset);
+	}
+	
+	/**
+	 * Adds a callback that runs on the game thread once the asset is ready. If the asset is already ready, the callback runs immediately.
+	 * Callbacks don't run if loading failed.
+	 * @param listener Callback receiving the asset
+	 * @return {@link AssetHandle} this handle
+	 */
+	public AssetHandle<T> onLoaded(Consumer<T> listener) {
+		synchronized (listeners) {
+			if (!ready) {
+				listeners.add(listener);
+				return this;
+			}
+		}
+		if (!isFailed())
+			listener.accept(future.join());
+		return this;
+	}
+	
+	/**
+	 * Returns whether or not the asset has been handed back to the game thread, whether it loaded or failed.
+	 * @return boolean ready
+	 */
+	public boolean isReady() {
+		return ready;
+	}
+	
+	/**
+	 * Returns whether or not loading the asset failed.
+	 * @return boolean failed
+	 */
+	public boolean isFailed() {
+		return future.isCompletedExceptionally();
+	}
+	
+	/**
+	 * Returns the asset if it is ready, without blocking.
+	 * @return T asset, or null if it isn't ready or failed to load
+	 */
+	public T get() {
+		return ready && !isFailed() ? future.join() : null;
+	}
+	
+	/**
+	 * Blocks until the asset has loaded and returns it, even if it hasn't been handed back to the game thread yet. Shouldn't be called on
+	 * the game thread during the game loop.
+	 * @return T asset, or null if it failed to load
+	 */
+	public T join() {
+		try {
+			return future.join();
+		} catch (RuntimeException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Returns the future completed by the loading thread.
+	 * @return {@link CompletableFuture} future
+	 */
+	public CompletableFuture<T> getFuture() {
+		return future;
+	}
+	
+	/**
+	 * Returns the key (usually the path) this asset was requested with.
+	 * @return String key
+	 */
+	public String getKey() {
+		return key;
+	}
+	
+}
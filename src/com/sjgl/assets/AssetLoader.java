@@ -0,0 +1,240 @@
+package com.sjgl.assets;
+
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import com.sjgl.Application;
+import com.sjgl.audio.Audio;
+import com.sjgl.graphics.sprite.Sprite;
+import com.sjgl.graphics.sprite.Spritesheet;
+import com.sjgl.utils.PathUtils;
+
+/**
+ * Loads assets in the background and hands them back to the game thread. Every load request returns an {@link AssetHandle} immediately;
+ * the I/O and decoding happen on virtual threads (or on a pool with one thread per core on Java versions without virtual threads).
+ * Concurrent and repeated requests for the same asset share one load. Every request counts as a reference to the asset, which
+ * {@code release(String)} gives up again, so assets shared by several users are only forgotten once none of them needs it.
+ * 
+ * <p>Finished assets are handed back when {@code poll()} is called. {@link Application} does this before the ticks of every frame for its
+ * own loader ({@code Application.getAssetLoader()}), so {@code onLoaded} callbacks and {@code AssetHandle.isReady()} only change at that
+ * safe point and never while {@code update()} or {@code render()} are running.
+ * 
+ * @author yiwuen
+ * 
+ * @see AssetHandle
+ * @see Application
+ *
+ */
+public class AssetLoader {
+	
+	private final ExecutorService executor;
+	
+	private final Map<String, AssetHandle<?>> assets = new ConcurrentHashMap<>();
+	private final Map<String, Integer> references = new ConcurrentHashMap<>();
+	private final Queue<AssetHandle<?>> finished = new ConcurrentLinkedQueue<>();
+	
+	/**
+	 * Constructs an asset loader decoding on virtual threads when they are available.
+	 */
+	public AssetLoader() {
+		this(newDefaultExecutor());
+	}
+	
+	/**
+	 * Constructs an asset loader decoding on the given executor.
+	 * @param executor Executor
+	 */
+	public AssetLoader(ExecutorService executor) {
+		this.executor = executor;
+	}
+	
+	/**
+	 * Loads an image with {@code PathUtils.GetImage(String)}.
+	 * @param path Path to the image
+	 * @return {@link AssetHandle} handle
+	 */
+	public AssetHandle<BufferedImage> loadImage(String path) {
+		return load("image:" + path, () -> PathUtils.GetImage(path));
+	}
+	
+	/**
+	 * Loads a sprite. Shares the decoded image with {@code loadImage(String)} requests for the same path.
+	 * @param path Path to the image
+	 * @return {@link AssetHandle} handle
+	 */
+	public AssetHandle<Sprite> loadSprite(String path) {
+		return derive("sprite:" + path, loadImage(path), Sprite::new);
+	}
+	
+	/**
+	 * Loads a spritesheet with the given sprite size. Shares the decoded image with {@code loadImage(String)} requests for the same path.
+	 * @param path Path to the image
+	 * @param spriteWidth Width of an individual sprite
+	 * @param spriteHeight Height of an individual sprite
+	 * @return {@link AssetHandle} handle
+	 */
+	public AssetHandle<Spritesheet> loadSpritesheet(String path, int spriteWidth, int spriteHeight) {
+		return derive("sheet:" + spriteWidth + "x" + spriteHeight + ":" + path, loadImage(path),
+				image -> new Spritesheet(image, spriteWidth, spriteHeight));
+	}
+	
+	/**
+	 * Loads an audio file.
+	 * @param path Path to the audio file
+	 * @return {@link AssetHandle} handle
+	 */
+	public AssetHandle<Audio> loadAudio(String path) {
+		return load("audio:" + path, () -> new Audio(path));
+	}
+	
+	/**
+	 * Loads any asset with the given loader. Requests with the same key share one load. A loader returning null counts as a failed load.
+	 * @param <T> Type of the asset
+	 * @param key Key identifying the asset
+	 * @param loader Loads the asset; runs in the background
+	 * @return {@link AssetHandle} handle
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> AssetHandle<T> load(String key, Callable<T> loader) {
+		references.merge(key, 1, Integer::sum);
+		return (AssetHandle<T>) assets.computeIfAbsent(key, k -> submit(k, loader));
+	}
+	
+	/**
+	 * Loads an asset built from another asset once that one has loaded, without blocking a loading thread while waiting for it. Requests
+	 * with the same key share one load.
+	 * @param <S> Type of the source asset
+	 * @param <T> Type of the asset
+	 * @param key Key identifying the asset
+	 * @param source Handle of the source asset
+	 * @param builder Builds the asset from the source asset; runs in the background
+	 * @return {@link AssetHandle} handle
+	 */
+	@SuppressWarnings("unchecked")
+	public <S, T> AssetHandle<T> derive(String key, AssetHandle<S> source, Function<S, T> builder) {
+		references.merge(key, 1, Integer::sum);
+		return (AssetHandle<T>) assets.computeIfAbsent(key, k -> track(k, source.getFuture().thenApplyAsync(builder, executor)));
+	}
+	
+	private <T> AssetHandle<T> track(String key, CompletableFuture<T> future) {
+		AssetHandle<T> handle = new AssetHandle<>(key, future);
+		future.whenComplete((asset, error) -> {
+			if (error != null)
+				assets.remove(key, handle);
+			finished.add(handle);
+		});
+		return handle;
+	}
+	
+	private <T> AssetHandle<T> submit(String key, Callable<T> loader) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		AssetHandle<T> handle = track(key, future);
+		executor.execute(() -> {
+			try {
+				T asset = loader.call();
+				if (asset == null)
+					throw new IllegalStateException("Asset loaded as null");
+				future.complete(asset);
+			} catch (Throwable e) {
+				Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+				System.err.println("[FAILED] loading asset " + key + ": " + cause.getMessage());
+				future.completeExceptionally(cause);
+			}
+		});
+		return handle;
+	}
+	
+	/**
+	 * Hands finished assets back to the calling thread: marks their handles ready and runs their {@code onLoaded} callbacks. Should be
+	 * called on the game thread between frames; {@link Application} already does this for {@code Application.getAssetLoader()}.
+	 * @return int amount of assets handed back
+	 */
+	public int poll() {
+		int count = 0;
+		AssetHandle<?> handle;
+		while ((handle = finished.poll()) != null) {
+			handle.deliver();
+			count++;
+		}
+		return count;
+	}
+	
+	/**
+	 * Returns whether or not every requested asset has loaded and been handed back.
+	 * @return boolean idle
+	 */
+	public boolean isIdle() {
+		for (AssetHandle<?> handle : assets.values()) {
+			if (!handle.isReady())
+				return false;
+		}
+		return finished.isEmpty();
+	}
+	
+	/**
+	 * Gives up one reference to an asset, taken by a request with the same key. Requests for a sprite or a spritesheet also reference
+	 * their image ({@code "image:" + path}). Once nothing references the asset anymore, it is forgotten like with {@code unload(String)}.
+	 * @param key Key of the asset, e.g. {@code "image:/path.png"} for images
+	 * @return boolean whether or not the asset was forgotten
+	 */
+	public boolean release(String key) {
+		boolean[] forgotten = new boolean[1];
+		references.computeIfPresent(key, (k, count) -> {
+			if (count > 1)
+				return count - 1;
+			assets.remove(k);
+			forgotten[0] = true;
+			return null;
+		});
+		return forgotten[0];
+	}
+	
+	/**
+	 * Forgets a loaded asset, so the next request for it loads it again, even if it is still referenced. Handles already given out stay
+	 * valid.
+	 * @param key Key of the asset, e.g. {@code "image:/path.png"} for images
+	 */
+	public void unload(String key) {
+		references.remove(key);
+		assets.remove(key);
+	}
+	
+	/**
+	 * Forgets every loaded asset.
+	 */
+	public void clear() {
+		references.clear();
+		assets.clear();
+	}
+	
+	/**
+	 * Stops the background threads. Loads that haven't started are cancelled.
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+	
+	private static ExecutorService newDefaultExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			final AtomicInteger count = new AtomicInteger();
+			return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), task -> {
+				Thread thread = new Thread(task, "SJGL-Asset-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+	
+}
@@ -0,0 +1,4 @@
+/**
+ * Assets package containing asynchronous asset loading classes.
+ */
+package com.sjgl.assets;
@@ -4,6 +4,9 @@ import java.io.*;
 
 import javax.sound.sampled.*;
 
+import com.sjgl.profiling.AudioOpenEvent;
+import com.sjgl.profiling.EngineEvents;
+
 /**
  * Simple audio class for playing audio. This is very basic and isn't recommended for serious audio-playing. Creating a audio class with more
  * functionality is highly recommended.
@@ -64,6 +67,9 @@ public final class Audio {
 	 * Plays the audio.
 	 */
 	public void play() {
+		final AudioOpenEvent event = EngineEvents.isRecording() ? new AudioOpenEvent() : null;
+		if (event != null)
+			event.begin();
 		try {
 			clip.open(ais);
 		} catch (LineUnavailableException e) {
@@ -71,6 +77,10 @@ public final class Audio {
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
+		if (event != null && event.shouldCommit()) {
+			event.path = audioPath;
+			event.commit();
+		}
 		clip.start();
 	}
 
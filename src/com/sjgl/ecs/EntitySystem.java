@@ -0,0 +1,39 @@
+package com.sjgl.ecs;
+
+/**
+ * A system updates the components of entities in a {@link World} every tick. Systems declare which components they read and write, so
+ * the {@link SystemScheduler} can run systems that don't conflict in parallel.
+ * 
+ * <p>{@code update(World, int, int)} may be called concurrently for different, non-overlapping index ranges of the same tick. An
+ * implementation should therefore only write the components of the entities in its range, and only the components it declares in
+ * {@code writes()}.
+ * 
+ * @author yiwuen
+ * 
+ * @see World
+ * @see SystemScheduler
+ *
+ */
+public interface EntitySystem {
+	
+	/**
+	 * Returns the components this system reads, e.g. {@code World.VELOCITY}.
+	 * @return int component mask
+	 */
+	int reads();
+	
+	/**
+	 * Returns the components this system writes, e.g. {@code World.POSITION}.
+	 * @return int component mask
+	 */
+	int writes();
+	
+	/**
+	 * Updates the entities in the index range {@code from} (inclusive) to {@code to} (exclusive).
+	 * @param world World
+	 * @param from First index
+	 * @param to Index after the last index
+	 */
+	void update(World world, int from, int to);
+	
+}
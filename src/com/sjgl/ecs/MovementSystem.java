@@ -0,0 +1,37 @@
+package com.sjgl.ecs;
+
+/**
+ * Moves every entity with a position and a velocity by its velocity once per tick.
+ * 
+ * @author yiwuen
+ * 
+ * @see EntitySystem
+ *
+ */
+public class MovementSystem implements EntitySystem {
+
+	@Override
+	public int reads() {
+		return World.VELOCITY;
+	}
+
+	@Override
+	public int writes() {
+		return World.POSITION;
+	}
+
+	@Override
+	public void update(World world, int from, int to) {
+		final int required = World.POSITION | World.VELOCITY;
+		final int[] mask = world.getMasks();
+		final float[] x = world.getX(), y = world.getY();
+		final float[] vx = world.getVelocityX(), vy = world.getVelocityY();
+		for (int i = from; i < to; i++) {
+			if ((mask[i] & required) == required) {
+				x[i] += vx[i];
+				y[i] += vy[i];
+			}
+		}
+	}
+	
+}
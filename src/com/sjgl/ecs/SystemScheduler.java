@@ -0,0 +1,171 @@
+package com.sjgl.ecs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs {@link EntitySystem}s on a {@link World} every tick, in parallel where possible.
+ * 
+ * <p>Systems are grouped into stages in the order they were added: a system joins the current stage unless it writes a component that a
+ * system in the stage reads or writes, or reads a component that a system in the stage writes, in which case it starts a new stage. The
+ * systems of a stage run at the same time on a {@link ForkJoinPool}, and each system's entities are split into chunks that also run in
+ * parallel. A stage finishes before the next one starts, so the result is the same as running the systems one after the other.
+ * 
+ * <p>Call {@code update(World)} in {@code Application.update()}.
+ * 
+ * @author yiwuen
+ * 
+ * @see EntitySystem
+ * @see World
+ *
+ */
+public class SystemScheduler {
+	
+	private final ForkJoinPool pool;
+	
+	private final List<EntitySystem> systems = new ArrayList<>();
+	private final List<EntitySystem[]> stages = new ArrayList<>();
+	private boolean dirty;
+	
+	private int chunkSize = 4096;
+	
+	/**
+	 * Constructs a scheduler running on the common {@link ForkJoinPool}.
+	 */
+	public SystemScheduler() {
+		this(ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Constructs a scheduler running on the given pool.
+	 * @param pool Pool
+	 */
+	public SystemScheduler(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+	
+	/**
+	 * Adds a system. Systems run in the order they were added, except that non-conflicting systems may run at the same time.
+	 * @param system System
+	 */
+	public void addSystem(EntitySystem system) {
+		systems.add(system);
+		dirty = true;
+	}
+	
+	/**
+	 * Removes a system.
+	 * @param system System
+	 */
+	public void removeSystem(EntitySystem system) {
+		systems.remove(system);
+		dirty = true;
+	}
+	
+	/**
+	 * Sets the amount of entities a system updates in one task. Smaller chunks spread better over cores, larger chunks have less overhead.
+	 * By default, it is 4096.
+	 * @param chunkSize Entities per task
+	 */
+	public void setChunkSize(int chunkSize) {
+		this.chunkSize = Math.max(1, chunkSize);
+	}
+	
+	/**
+	 * Runs every system once on the world.
+	 * @param world World
+	 */
+	public void update(World world) {
+		if (dirty)
+			buildStages();
+		final int size = world.size();
+		for (EntitySystem[] stage : stages) {
+			if (stage.length == 1 && size <= chunkSize) {
+				stage[0].update(world, 0, size);
+				continue;
+			}
+			SystemTask[] tasks = new SystemTask[stage.length];
+			for (int i = 0; i < stage.length; i++)
+				tasks[i] = new SystemTask(stage[i], world, 0, size, chunkSize);
+			pool.invoke(new StageTask(tasks));
+		}
+	}
+	
+	/**
+	 * Returns the amount of stages the systems are grouped into.
+	 * @return int stages
+	 */
+	public int getStageCount() {
+		if (dirty)
+			buildStages();
+		return stages.size();
+	}
+	
+	private void buildStages() {
+		stages.clear();
+		List<EntitySystem> stage = new ArrayList<>();
+		int stageReads = 0, stageWrites = 0;
+		for (EntitySystem system : systems) {
+			int reads = system.reads(), writes = system.writes();
+			boolean conflict = (writes & (stageReads | stageWrites)) != 0 || (reads & stageWrites) != 0;
+			if (conflict) {
+				stages.add(stage.toArray(new EntitySystem[0]));
+				stage.clear();
+				stageReads = 0;
+				stageWrites = 0;
+			}
+			stage.add(system);
+			stageReads |= reads;
+			stageWrites |= writes;
+		}
+		if (!stage.isEmpty())
+			stages.add(stage.toArray(new EntitySystem[0]));
+		dirty = false;
+	}
+	
+	@SuppressWarnings("serial")
+	private static final class StageTask extends RecursiveAction {
+		
+		private final SystemTask[] tasks;
+		
+		StageTask(SystemTask[] tasks) {
+			this.tasks = tasks;
+		}
+		
+		@Override
+		protected void compute() {
+			invokeAll(tasks);
+		}
+		
+	}
+	
+	@SuppressWarnings("serial")
+	private static final class SystemTask extends RecursiveAction {
+		
+		private final EntitySystem system;
+		private final World world;
+		private final int from, to, chunkSize;
+		
+		SystemTask(EntitySystem system, World world, int from, int to, int chunkSize) {
+			this.system = system;
+			this.world = world;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+		}
+		
+		@Override
+		protected void compute() {
+			if (to - from <= chunkSize) {
+				system.update(world, from, to);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new SystemTask(system, world, from, mid, chunkSize), new SystemTask(system, world, mid, to, chunkSize));
+		}
+		
+	}
+	
+}
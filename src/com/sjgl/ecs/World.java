@@ -0,0 +1,383 @@
+package com.sjgl.ecs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.sjgl.graphics.sprite.Sprite;
+import com.sjgl.physics.collision.CollisionBound;
+
+/**
+ * Struct-of-arrays storage for entities. Instead of one object per game object holding a {@link Sprite}, a {@link CollisionBound}, etc.,
+ * every component field is kept in its own primitive array and an entity is an index into those arrays. Systems ({@link EntitySystem})
+ * loop over the arrays directly, which avoids pointer-chasing and garbage for large amounts of entities.
+ * 
+ * <p>Entities are identified by a stable id returned by {@code create(int)}. Their components are stored densely in the range
+ * {@code 0..size()-1}; use {@code indexOf(int)} to find the index of an entity and {@code idAt(int)} for the reverse. Destroying an entity
+ * moves the last entity into its place, so indices (but not ids) can change when entities are destroyed.
+ * 
+ * <p>An id packs the slot of the entity into its low {@value #SLOT_BITS} bits and a generation into the bits above. Slots of destroyed
+ * entities are reused, but their generation is increased first, so an id kept after its entity was destroyed is not alive anymore and
+ * doesn't refer to the new entity in the slot. The generation wraps around after {@value #GENERATIONS} reuses of the same slot.
+ * 
+ * <p>The component arrays grow when entities are created, so they should be fetched again (e.g. with {@code getX()}) after creating
+ * entities. Entities should only be created or destroyed while no systems are running.
+ * 
+ * @author yiwuen
+ * 
+ * @see EntitySystem
+ * @see SystemScheduler
+ *
+ */
+public class World {
+	
+	/**
+	 * Position component ({@code x}, {@code y}).
+	 */
+	public static final int POSITION = 1;
+	
+	/**
+	 * Velocity component ({@code vx}, {@code vy}), in pixels per tick.
+	 */
+	public static final int VELOCITY = 1 << 1;
+	
+	/**
+	 * Sprite component ({@code sprite}), an index into the sprites added with {@code addSprite(Sprite)}.
+	 */
+	public static final int SPRITE = 1 << 2;
+	
+	/**
+	 * Bounds component ({@code width}, {@code height}). Used for rendering and collision.
+	 */
+	public static final int BOUNDS = 1 << 3;
+	
+	/**
+	 * Amount of low bits of an entity id that hold its slot. A world holds at most {@code 1 << SLOT_BITS} entities.
+	 */
+	public static final int SLOT_BITS = 20;
+	
+	/**
+	 * Amount of generations an entity id can have before it wraps around.
+	 */
+	public static final int GENERATIONS = 1 << (31 - SLOT_BITS);
+	
+	private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+	
+	private float[] x, y, vx, vy, width, height;
+	private int[] sprite, mask;
+	
+	private int[] ids, indices, generations;
+	private int[] freeSlots;
+	private int freeCount, nextSlot;
+	
+	private int size;
+	
+	private final List<Sprite> sprites = new ArrayList<>();
+	
+	/**
+	 * Constructs a world with room for 1024 entities.
+	 */
+	public World() {
+		this(1024);
+	}
+	
+	/**
+	 * Constructs a world with room for the given amount of entities. The world grows when more entities are created.
+	 * @param capacity Initial capacity
+	 */
+	public World(int capacity) {
+		capacity = Math.max(capacity, 16);
+		x = new float[capacity];
+		y = new float[capacity];
+		vx = new float[capacity];
+		vy = new float[capacity];
+		width = new float[capacity];
+		height = new float[capacity];
+		sprite = new int[capacity];
+		mask = new int[capacity];
+		ids = new int[capacity];
+		indices = new int[capacity];
+		generations = new int[capacity];
+		freeSlots = new int[capacity];
+	}
+	
+	/**
+	 * Creates an entity with the given components. All component values start at 0.
+	 * @param components Components of the entity, e.g. {@code World.POSITION | World.VELOCITY}
+	 * @return int entity id
+	 */
+	public int create(int components) {
+		if (size == x.length)
+			grow();
+		int slot;
+		if (freeCount > 0) {
+			slot = freeSlots[--freeCount];
+		} else {
+			if (nextSlot > SLOT_MASK)
+				throw new IllegalStateException("World is full: " + (SLOT_MASK + 1) + " entities");
+			slot = nextSlot++;
+			if (slot >= indices.length) {
+				indices = Arrays.copyOf(indices, indices.length * 2);
+				generations = Arrays.copyOf(generations, generations.length * 2);
+			}
+		}
+		int id = generations[slot] << SLOT_BITS | slot;
+		
+		int index = size++;
+		ids[index] = id;
+		indices[slot] = index;
+		mask[index] = components;
+		x[index] = 0;
+		y[index] = 0;
+		vx[index] = 0;
+		vy[index] = 0;
+		width[index] = 0;
+		height[index] = 0;
+		sprite[index] = 0;
+		return id;
+	}
+	
+	/**
+	 * Destroys an entity. The last entity is moved into the destroyed entity's index.
+	 * @param id Entity id
+	 */
+	public void destroy(int id) {
+		int index = indexOf(id);
+		int last = --size;
+		if (index != last) {
+			x[index] = x[last];
+			y[index] = y[last];
+			vx[index] = vx[last];
+			vy[index] = vy[last];
+			width[index] = width[last];
+			height[index] = height[last];
+			sprite[index] = sprite[last];
+			mask[index] = mask[last];
+			ids[index] = ids[last];
+			indices[ids[index] & SLOT_MASK] = index;
+		}
+		int slot = id & SLOT_MASK;
+		indices[slot] = -1;
+		generations[slot] = (generations[slot] + 1) & (GENERATIONS - 1);
+		if (freeCount == freeSlots.length)
+			freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+		freeSlots[freeCount++] = slot;
+	}
+	
+	/**
+	 * Destroys all entities.
+	 */
+	public void clear() {
+		// Slots are handed out from 0 again, so the ids of the entities destroyed here must not become alive again
+		for (int i = 0; i < size; i++) {
+			int slot = ids[i] & SLOT_MASK;
+			generations[slot] = (generations[slot] + 1) & (GENERATIONS - 1);
+		}
+		size = 0;
+		freeCount = 0;
+		nextSlot = 0;
+	}
+	
+	/**
+	 * Returns whether or not the entity exists.
+	 * @param id Entity id
+	 * @return boolean alive
+	 */
+	public boolean isAlive(int id) {
+		if (id < 0 || (id & SLOT_MASK) >= nextSlot)
+			return false;
+		int index = indices[id & SLOT_MASK];
+		return index >= 0 && index < size && ids[index] == id;
+	}
+	
+	/**
+	 * Returns the index of an entity in the component arrays.
+	 * @param id Entity id
+	 * @return int index
+	 */
+	public int indexOf(int id) {
+		if (!isAlive(id))
+			throw new IllegalArgumentException("Entity doesn't exist: " + id);
+		return indices[id & SLOT_MASK];
+	}
+	
+	/**
+	 * Returns the id of the entity at an index in the component arrays.
+	 * @param index Index
+	 * @return int entity id
+	 */
+	public int idAt(int index) {
+		return ids[index];
+	}
+	
+	/**
+	 * Sets the position of an entity.
+	 * @param id Entity id
+	 * @param x X position
+	 * @param y Y position
+	 */
+	public void setPosition(int id, float x, float y) {
+		int index = indexOf(id);
+		this.x[index] = x;
+		this.y[index] = y;
+	}
+	
+	/**
+	 * Sets the velocity of an entity.
+	 * @param id Entity id
+	 * @param vx X velocity in pixels per tick
+	 * @param vy Y velocity in pixels per tick
+	 */
+	public void setVelocity(int id, float vx, float vy) {
+		int index = indexOf(id);
+		this.vx[index] = vx;
+		this.vy[index] = vy;
+	}
+	
+	/**
+	 * Sets the bounds (size) of an entity.
+	 * @param id Entity id
+	 * @param width Width
+	 * @param height Height
+	 */
+	public void setBounds(int id, float width, float height) {
+		int index = indexOf(id);
+		this.width[index] = width;
+		this.height[index] = height;
+	}
+	
+	/**
+	 * Sets the sprite of an entity.
+	 * @param id Entity id
+	 * @param sprite Sprite index returned by {@code addSprite(Sprite)}
+	 */
+	public void setSprite(int id, int sprite) {
+		this.sprite[indexOf(id)] = sprite;
+	}
+	
+	/**
+	 * Adds a sprite that entities can refer to with the {@code SPRITE} component.
+	 * @param sprite Sprite
+	 * @return int sprite index
+	 */
+	public int addSprite(Sprite sprite) {
+		sprites.add(sprite);
+		return sprites.size() - 1;
+	}
+	
+	/**
+	 * Returns the sprite at a sprite index.
+	 * @param index Sprite index
+	 * @return {@link Sprite} sprite
+	 */
+	public Sprite getSprite(int index) {
+		return sprites.get(index);
+	}
+	
+	/**
+	 * Checks if the bounds of two entities intersect, like {@code CollisionBound.isColliding(CollisionBound)}.
+	 * @param a Index of the first entity
+	 * @param b Index of the second entity
+	 * @return boolean colliding
+	 */
+	public boolean isColliding(int a, int b) {
+		return x[a] < x[b] + width[b] && x[b] < x[a] + width[a] && y[a] < y[b] + height[b] && y[b] < y[a] + height[a];
+	}
+	
+	/**
+	 * Renders every entity with a position, bounds and sprite. Call this method in {@code Application.render()}.
+	 */
+	public void render() {
+		final int required = POSITION | BOUNDS | SPRITE;
+		for (int i = 0; i < size; i++) {
+			if ((mask[i] & required) == required)
+				sprites.get(sprite[i]).render((int) x[i], (int) y[i], (int) width[i], (int) height[i]);
+		}
+	}
+	
+	private void grow() {
+		int capacity = x.length * 2;
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		vx = Arrays.copyOf(vx, capacity);
+		vy = Arrays.copyOf(vy, capacity);
+		width = Arrays.copyOf(width, capacity);
+		height = Arrays.copyOf(height, capacity);
+		sprite = Arrays.copyOf(sprite, capacity);
+		mask = Arrays.copyOf(mask, capacity);
+		ids = Arrays.copyOf(ids, capacity);
+	}
+	
+	/**
+	 * Returns the amount of entities.
+	 * @return int size
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Returns the x positions.
+	 * @return float[] x
+	 */
+	public float[] getX() {
+		return x;
+	}
+	
+	/**
+	 * Returns the y positions.
+	 * @return float[] y
+	 */
+	public float[] getY() {
+		return y;
+	}
+	
+	/**
+	 * Returns the x velocities.
+	 * @return float[] vx
+	 */
+	public float[] getVelocityX() {
+		return vx;
+	}
+	
+	/**
+	 * Returns the y velocities.
+	 * @return float[] vy
+	 */
+	public float[] getVelocityY() {
+		return vy;
+	}
+	
+	/**
+	 * Returns the bounds widths.
+	 * @return float[] width
+	 */
+	public float[] getWidth() {
+		return width;
+	}
+	
+	/**
+	 * Returns the bounds heights.
+	 * @return float[] height
+	 */
+	public float[] getHeight() {
+		return height;
+	}
+	
+	/**
+	 * Returns the sprite indices.
+	 * @return int[] sprite
+	 */
+	public int[] getSprites() {
+		return sprite;
+	}
+	
+	/**
+	 * Returns the component masks.
+	 * @return int[] mask
+	 */
+	public int[] getMasks() {
+		return mask;
+	}
+	
+}
@@ -0,0 +1,4 @@
+/**
+ * Entity component system package containing struct-of-arrays entity storage, systems and the parallel system scheduler.
+ */
+package com.sjgl.ecs;
@@ -0,0 +1,286 @@
+package com.sjgl.graphics;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Point2D;
+
+/**
+ * <strong>A 2D camera with a position, zoom and rotation that owns the world to screen transform.</strong>
+ *
+ * <p>The camera looks at a point of the world, which is drawn at the center of the viewport. Graphics drawn between
+ * {@code Renderer.SJGL_BeginCamera(Camera)} and {@code Renderer.SJGL_EndCamera()} are in world coordinates, and {@code Renderer} calls,
+ * {@code Sprite.render(...)} and text blocks that land completely outside of the viewport are skipped before any Graphics2D work.
+ *
+ * <pre>
+ * Camera camera = new Camera(getWidth(), getHeight());
+ * ...
+ * camera.setPosition(player.x, player.y);
+ * Renderer.SJGL_BeginCamera(camera);
+ * world.render();
+ * Renderer.SJGL_EndCamera();
+ * </pre>
+ *
+ * <p>{@code Renderer.SJGL_Translatei(...)} and {@code Renderer.SJGL_Scalei(...)} calls made while the camera is active are taken into
+ * account, so culling is always done in the current coordinates.
+ *
+ * @author yiwuen
+ *
+ * @see Renderer
+ *
+ */
+public class Camera {
+	
+	private double x, y;
+	private double zoom = 1, rotation;
+	private int viewportWidth, viewportHeight;
+	
+	private final AffineTransform transform = new AffineTransform();
+	private final AffineTransform inverse = new AffineTransform();
+	private boolean changed = true;
+	
+	// World to screen transform including the translations and scales made since the camera began
+	private final AffineTransform current = new AffineTransform();
+	private boolean active;
+	
+	private int culled, drawn;
+	
+	/**
+	 * Creates a camera looking at (0, 0).
+	 * @param viewportWidth Width of the screen area the camera draws into
+	 * @param viewportHeight Height of the screen area the camera draws into
+	 */
+	public Camera(int viewportWidth, int viewportHeight) {
+		setViewport(viewportWidth, viewportHeight);
+	}
+	
+	private void update() {
+		if (!changed)
+			return;
+		changed = false;
+		transform.setToTranslation(viewportWidth / 2.0, viewportHeight / 2.0);
+		transform.rotate(rotation);
+		transform.scale(zoom, zoom);
+		transform.translate(-x, -y);
+		try {
+			inverse.setTransform(transform.createInverse());
+		} catch (NoninvertibleTransformException e) {
+			// Only happens with a zoom of 0, which setZoom(...) doesn't allow
+			inverse.setToIdentity();
+		}
+	}
+	
+	void begin() {
+		update();
+		current.setTransform(transform);
+		active = true;
+		culled = 0;
+		drawn = 0;
+	}
+	
+	void end() {
+		active = false;
+	}
+	
+	void translate(double x, double y) {
+		current.translate(x, y);
+	}
+	
+	void scale(double sx, double sy) {
+		current.scale(sx, sy);
+	}
+	
+	/**
+	 * Counts a draw call and returns whether or not it is outside of the viewport and should be skipped.
+	 */
+	boolean cull(double x, double y, double w, double h) {
+		if (isVisible(x, y, w, h)) {
+			drawn++;
+			return false;
+		}
+		culled++;
+		return true;
+	}
+	
+	/**
+	 * Returns whether or not a rectangle is at least partly inside of the viewport. While the camera is active, the rectangle is in the
+	 * current coordinates; otherwise it is in world coordinates.
+	 * @param x X position
+	 * @param y Y position
+	 * @param w Width
+	 * @param h Height
+	 *
+	 * @return <STRONG>boolean</STRONG> visible
+	 */
+	public boolean isVisible(double x, double y, double w, double h) {
+		update();
+		final AffineTransform t = active ? current : transform;
+		final double m00 = t.getScaleX(), m01 = t.getShearX(), m10 = t.getShearY(), m11 = t.getScaleY();
+		final double right = x + w, bottom = y + h;
+		
+		double ax = m00 * x + m01 * y, bx = m00 * right + m01 * y, cx = m00 * x + m01 * bottom, dx = m00 * right + m01 * bottom;
+		double tx = t.getTranslateX();
+		// One pixel of margin for outlines and antialiasing
+		if (Math.max(Math.max(ax, bx), Math.max(cx, dx)) + tx < -1 || Math.min(Math.min(ax, bx), Math.min(cx, dx)) + tx > viewportWidth + 1)
+			return false;
+		double ay = m10 * x + m11 * y, by = m10 * right + m11 * y, cy = m10 * x + m11 * bottom, dy = m10 * right + m11 * bottom;
+		double ty = t.getTranslateY();
+		return Math.max(Math.max(ay, by), Math.max(cy, dy)) + ty >= -1 && Math.min(Math.min(ay, by), Math.min(cy, dy)) + ty <= viewportHeight + 1;
+	}
+	
+	/**
+	 * Converts a point on the screen, such as the mouse position, to world coordinates.
+	 * @param screenX X position on the screen
+	 * @param screenY Y position on the screen
+	 * @param out Point to write into, or null to create one
+	 *
+	 * @return {@link Point2D} world position
+	 */
+	public Point2D screenToWorld(double screenX, double screenY, Point2D out) {
+		update();
+		if (out == null)
+			out = new Point2D.Double();
+		out.setLocation(screenX, screenY);
+		return inverse.transform(out, out);
+	}
+	
+	/**
+	 * Converts a point of the world to screen coordinates.
+	 * @param worldX X position in the world
+	 * @param worldY Y position in the world
+	 * @param out Point to write into, or null to create one
+	 *
+	 * @return {@link Point2D} screen position
+	 */
+	public Point2D worldToScreen(double worldX, double worldY, Point2D out) {
+		update();
+		if (out == null)
+			out = new Point2D.Double();
+		out.setLocation(worldX, worldY);
+		return transform.transform(out, out);
+	}
+	
+	/**
+	 * Returns a copy of the world to screen transform.
+	 * @return {@link AffineTransform} transform
+	 */
+	public AffineTransform getTransform() {
+		update();
+		return new AffineTransform(transform);
+	}
+	
+	/**
+	 * Sets the point of the world drawn at the center of the viewport.
+	 * @param x X position in the world
+	 * @param y Y position in the world
+	 */
+	public void setPosition(double x, double y) {
+		this.x = x;
+		this.y = y;
+		changed = true;
+	}
+	
+	/**
+	 * Moves the camera.
+	 * @param dx X distance in the world
+	 * @param dy Y distance in the world
+	 */
+	public void move(double dx, double dy) {
+		setPosition(x + dx, y + dy);
+	}
+	
+	/**
+	 * Sets the zoom. 1 draws the world at its size, 2 draws it twice as big.
+	 * @param zoom Zoom, greater than 0
+	 */
+	public void setZoom(double zoom) {
+		if (!(zoom > 0))
+			throw new IllegalArgumentException("Zoom must be greater than 0: " + zoom);
+		this.zoom = zoom;
+		changed = true;
+	}
+	
+	/**
+	 * Sets the rotation of the world around the center of the viewport.
+	 * @param rotation Rotation in radians, clockwise
+	 */
+	public void setRotation(double rotation) {
+		this.rotation = rotation;
+		changed = true;
+	}
+	
+	/**
+	 * Sets the size of the screen area the camera draws into, e.g. when the window is resized.
+	 * @param width Width of the viewport
+	 * @param height Height of the viewport
+	 */
+	public void setViewport(int width, int height) {
+		viewportWidth = width;
+		viewportHeight = height;
+		changed = true;
+	}
+	
+	/**
+	 * Returns the x position the camera looks at.
+	 * @return <STRONG>double</STRONG> x
+	 */
+	public double getX() {
+		return x;
+	}
+	
+	/**
+	 * Returns the y position the camera looks at.
+	 * @return <STRONG>double</STRONG> y
+	 */
+	public double getY() {
+		return y;
+	}
+	
+	/**
+	 * Returns the zoom.
+	 * @return <STRONG>double</STRONG> zoom
+	 */
+	public double getZoom() {
+		return zoom;
+	}
+	
+	/**
+	 * Returns the rotation in radians.
+	 * @return <STRONG>double</STRONG> rotation
+	 */
+	public double getRotation() {
+		return rotation;
+	}
+	
+	/**
+	 * Returns the width of the viewport.
+	 * @return <STRONG>int</STRONG> width
+	 */
+	public int getViewportWidth() {
+		return viewportWidth;
+	}
+	
+	/**
+	 * Returns the height of the viewport.
+	 * @return <STRONG>int</STRONG> height
+	 */
+	public int getViewportHeight() {
+		return viewportHeight;
+	}
+	
+	/**
+	 * Returns how many draw calls were skipped because they were outside of the viewport, since the camera last began.
+	 * @return <STRONG>int</STRONG> culled
+	 */
+	public int getCulledCount() {
+		return culled;
+	}
+	
+	/**
+	 * Returns how many draw calls were inside of the viewport, since the camera last began.
+	 * @return <STRONG>int</STRONG> drawn
+	 */
+	public int getDrawnCount() {
+		return drawn;
+	}
+	
+}
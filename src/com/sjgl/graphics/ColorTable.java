@@ -0,0 +1,74 @@
+package com.sjgl.graphics;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+/**
+ * Assigns small ids to packed ARGB colors and keeps one {@link Color} instance per id. Used by {@link CommandBuffer} to sort commands by
+ * color and to set colors without allocating.
+ * 
+ * @author yiwuen
+ *
+ */
+final class ColorTable {
+	
+	private final int capacity;
+	
+	private int[] keys;
+	private int[] ids;
+	private Color[] colors;
+	private int size;
+	
+	ColorTable(int capacity) {
+		this.capacity = capacity;
+		int slots = Integer.highestOneBit(capacity * 2 - 1) << 1;
+		keys = new int[slots];
+		ids = new int[slots];
+		Arrays.fill(ids, -1);
+		colors = new Color[Math.min(capacity, 64)];
+	}
+	
+	/**
+	 * Returns the id of a color, adding it if needed.
+	 */
+	int id(int argb) {
+		final int mask = keys.length - 1;
+		int slot = mix(argb) & mask;
+		while (ids[slot] >= 0) {
+			if (keys[slot] == argb)
+				return ids[slot];
+			slot = (slot + 1) & mask;
+		}
+		if (size == capacity)
+			throw new IllegalStateException("Too many different colors (" + capacity + ")");
+		if (size == colors.length)
+			colors = Arrays.copyOf(colors, Math.min(capacity, size * 2));
+		keys[slot] = argb;
+		ids[slot] = size;
+		colors[size] = new Color(argb, true);
+		return size++;
+	}
+	
+	/**
+	 * Returns the {@link Color} of an id.
+	 */
+	Color color(int id) {
+		return colors[id];
+	}
+	
+	int size() {
+		return size;
+	}
+	
+	void clear() {
+		Arrays.fill(ids, -1);
+		Arrays.fill(colors, 0, size, null);
+		size = 0;
+	}
+	
+	private static int mix(int argb) {
+		int h = argb * 0x9e3779b9;
+		return h ^ (h >>> 16);
+	}
+	
+}
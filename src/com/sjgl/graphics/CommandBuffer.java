@@ -0,0 +1,885 @@
+package com.sjgl.graphics;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.sjgl.Application;
+
+/**
+ * Reusable buffer of recorded draw commands. While a buffer is recording (see {@code Renderer.SJGL_BeginCommands(CommandBuffer)} or
+ * {@code Application.enableCommandBuffer(boolean)}), {@link Renderer} calls and {@code Sprite.render(...)} append compact commands to
+ * primitive arrays instead of drawing. {@code replay(Graphics2D)} then sorts the commands by layer and render state (font and color, or
+ * image) and draws them with as few {@link Graphics2D} state changes as possible.
+ * 
+ * <p>Sorting never changes what overlapping graphics look like: a command is always drawn after the earlier commands it may overlap,
+ * unless they have the same render state, in which case they keep the order they were recorded in. Only commands whose screen bounds are
+ * apart are moved next to others with the same render state. Layers ({@code Renderer.SJGL_Layer(int)}) are drawn from lowest to highest,
+ * so a higher layer is drawn over a lower one whatever the recording order.
+ * 
+ * <p>A buffer doesn't allocate in steady state: its arrays only grow, and colors, fonts, images and transforms get ids that are kept
+ * between frames. The same recorded commands can be replayed into any {@link Graphics2D}, e.g. a headless framebuffer.
+ * 
+ * @author yiwuen
+ * 
+ * @see Renderer
+ *
+ */
+public final class CommandBuffer {
+	
+	static final int RECT = 0, DRAW_RECT = 1, CIRCLE = 2, DRAW_CIRCLE = 3, TRIANGLE = 4, DRAW_TRIANGLE = 5, QUAD = 6, DRAW_QUAD = 7,
+			STRING = 8, IMAGE = 9, IMAGE_REGION = 10, VERTICES = 11, DRAW_VERTICES = 12, IMAGE_SCALED = 13;
+	
+	private static final int MAX_COMMANDS = 1 << 20;
+	private static final int MAX_TRANSFORMS = 1 << 10;
+	private static final int MAX_STATES = 1 << 16;
+	private static final int MAX_FONTS = 1 << 8;
+	private static final int IMAGE_STATE = 1 << 24;
+	
+	// Overlapping commands are found through a grid of 32 pixel tiles covering 2048 x 2048 pixels; bounds outside of it are clamped to its
+	// edges. A tile lists at most MAX_TILE_ENTRIES commands, older ones are only remembered by their highest batch and render state.
+	private static final int MAX_BATCHES = 1 << 11;
+	private static final int TILE_SHIFT = 5, GRID_SIZE = 64;
+	private static final int MAX_TILE_ENTRIES = 16;
+	private static final int EMPTY = -2, MIXED = -1;
+	private static final Graphics2D MEASURE = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+	
+	private int count;
+	private boolean sorted;
+	private int[] kinds = new int[256];
+	private int[] offsets = new int[256];
+	private long[] keys = new long[256];
+	private long[] sortBuffer = new long[256];
+	private int[] states = new int[256];
+	private int[] transformIds = new int[256];
+	private int[] batches = new int[256];
+	private int[] boxes = new int[256 * 4];
+	
+	private final int[] tileHeads = new int[GRID_SIZE * GRID_SIZE];
+	private final int[] tileSizes = new int[GRID_SIZE * GRID_SIZE];
+	private final int[] tileBatches = new int[GRID_SIZE * GRID_SIZE];
+	private final int[] tileStates = new int[GRID_SIZE * GRID_SIZE];
+	private int entryCount;
+	private int[] entryCommands = new int[1024], entryNexts = new int[1024];
+	// Batch that every later command is drawn after, set by commands without known bounds
+	private int barrierBatch, barrierState, maxBatch;
+	private boolean ordered;
+	
+	private int intCount;
+	private int[] ints = new int[1024];
+	
+	private int objectCount;
+	private Object[] objects = new Object[64];
+	
+	private int layer;
+	private int colorId, fontId, transformId;
+	private int argb = 0xff000000;
+	
+	private final ColorTable colors = new ColorTable(MAX_STATES);
+	private final List<Font> fonts = new ArrayList<>();
+	// Metrics of every font, to find the bounds of strings while recording
+	private final FontMetrics[] fontMetrics = new FontMetrics[MAX_FONTS];
+	private final Map<Object, Integer> images = new WeakHashMap<>();
+	private int nextImageId;
+	
+	private int transformCount = 1;
+	private AffineTransform[] transforms = {new AffineTransform()};
+	
+	private final int[] px = new int[4], py = new int[4];
+	
+	/**
+	 * Constructs an empty command buffer.
+	 */
+	public CommandBuffer() {
+		fonts.add(null);
+		clear();
+	}
+	
+	/**
+	 * Sets the layer of the following commands. Layers are drawn from lowest to highest. The layer is reset to 0 by {@code clear()}.
+	 * @param layer Layer between -128 and 127
+	 */
+	public void layer(int layer) {
+		this.layer = Math.max(-128, Math.min(127, layer)) + 128;
+	}
+	
+	/**
+	 * Sets the color of the following commands.
+	 * @param argb Packed ARGB color
+	 */
+	public void color(int argb) {
+		this.argb = argb;
+		colorId = colors.id(argb);
+	}
+	
+	/**
+	 * Sets the font of the following commands.
+	 * @param font Font
+	 */
+	public void font(Font font) {
+		int id = fonts.indexOf(font);
+		if (id < 0) {
+			if (fonts.size() == MAX_FONTS)
+				throw new IllegalStateException("Too many different fonts (" + MAX_FONTS + ")");
+			fonts.add(font);
+			id = fonts.size() - 1;
+			synchronized (MEASURE) {
+				fontMetrics[id] = MEASURE.getFontMetrics(font);
+			}
+		}
+		fontId = id;
+	}
+	
+	/**
+	 * Translates the following commands.
+	 * @param x X translation
+	 * @param y Y translation
+	 */
+	public void translate(double x, double y) {
+		nextTransform().translate(x, y);
+	}
+	
+	/**
+	 * Scales the following commands.
+	 * @param sx Scale x
+	 * @param sy Scale y
+	 */
+	public void scale(double sx, double sy) {
+		nextTransform().scale(sx, sy);
+	}
+	
+	/**
+	 * Multiplies the transform of the following commands with another transform.
+	 * @param transform Transform
+	 */
+	public void transform(AffineTransform transform) {
+		nextTransform().concatenate(transform);
+	}
+	
+	/**
+	 * Replaces the transform of the following commands.
+	 * @param transform Transform
+	 */
+	public void setTransform(AffineTransform transform) {
+		nextTransform().setTransform(transform);
+	}
+	
+	/**
+	 * Returns a copy of the current transform.
+	 * @return {@link AffineTransform} transform
+	 */
+	public AffineTransform getTransform() {
+		return new AffineTransform(transforms[transformId]);
+	}
+	
+	private AffineTransform nextTransform() {
+		if (transformCount == MAX_TRANSFORMS)
+			throw new IllegalStateException("Too many transform changes in one command buffer");
+		if (transformCount == transforms.length)
+			transforms = Arrays.copyOf(transforms, transforms.length * 2);
+		AffineTransform next = transforms[transformCount];
+		if (next == null)
+			next = transforms[transformCount] = new AffineTransform();
+		next.setTransform(transforms[transformId]);
+		transformId = transformCount++;
+		return next;
+	}
+	
+	/**
+	 * Returns the current color.
+	 * @return int packed ARGB color
+	 */
+	public int getColor() {
+		return argb;
+	}
+	
+	/**
+	 * Returns the current font, or null if no font was set.
+	 * @return {@link Font} font
+	 */
+	public Font getFont() {
+		return fonts.get(fontId);
+	}
+	
+	/**
+	 * Records a color-filled rectangle.
+	 * @param x X position
+	 * @param y Y position
+	 * @param w Width
+	 * @param h Height
+	 */
+	public void rect(int x, int y, int w, int h) {
+		add(RECT, 4, primitiveState(), x, y, x + w, y + h);
+		push4(x, y, w, h);
+	}
+	
+	/**
+	 * Records a rectangle outline.
+	 * @param x X position
+	 * @param y Y position
+	 * @param w Width
+	 * @param h Height
+	 */
+	public void drawRect(int x, int y, int w, int h) {
+		add(DRAW_RECT, 4, primitiveState(), x, y, x + w, y + h);
+		push4(x, y, w, h);
+	}
+	
+	/**
+	 * Records a color-filled circle.
+	 * @param x X position of the center
+	 * @param y Y position of the center
+	 * @param radius Radius
+	 */
+	public void circle(int x, int y, int radius) {
+		add(CIRCLE, 3, primitiveState(), x - radius, y - radius, x + radius, y + radius);
+		ints[intCount++] = x;
+		ints[intCount++] = y;
+		ints[intCount++] = radius;
+	}
+	
+	/**
+	 * Records a circle outline.
+	 * @param x X position of the center
+	 * @param y Y position of the center
+	 * @param radius Radius
+	 */
+	public void drawCircle(int x, int y, int radius) {
+		add(DRAW_CIRCLE, 3, primitiveState(), x - radius, y - radius, x + radius, y + radius);
+		ints[intCount++] = x;
+		ints[intCount++] = y;
+		ints[intCount++] = radius;
+	}
+	
+	/**
+	 * Records a polygon with 3 or 4 vertices.
+	 * @param x X positions
+	 * @param y Y positions
+	 * @param vertices 3 for a triangle, 4 for a quad
+	 * @param fill Color-filled or outline
+	 */
+	public void polygon(int[] x, int[] y, int vertices, boolean fill) {
+		int kind = vertices == 3 ? (fill ? TRIANGLE : DRAW_TRIANGLE) : (fill ? QUAD : DRAW_QUAD);
+		float left = x[0], top = y[0], right = x[0], bottom = y[0];
+		for (int i = 1; i < vertices; i++) {
+			left = Math.min(left, x[i]);
+			top = Math.min(top, y[i]);
+			right = Math.max(right, x[i]);
+			bottom = Math.max(bottom, y[i]);
+		}
+		add(kind, vertices * 2, primitiveState(), left, top, right, bottom);
+		for (int i = 0; i < vertices; i++) {
+			ints[intCount++] = x[i];
+			ints[intCount++] = y[i];
+		}
+	}
+	
+	/**
+	 * Records the primitives of a {@link VertexBuffer}. The vertex buffer is drawn as it is when this buffer is replayed, so it is kept in
+	 * order with every other command.
+	 * @param vertices Vertex buffer
+	 * @param fill Color-filled or outline
+	 */
+	public void vertices(VertexBuffer vertices, boolean fill) {
+		add(fill ? VERTICES : DRAW_VERTICES, 1, primitiveState(), Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY,
+				Float.POSITIVE_INFINITY);
+		ints[intCount++] = pushObject(vertices);
+	}
+	
+	/**
+	 * Records a string.
+	 * @param str String
+	 * @param x X position
+	 * @param y Y position
+	 */
+	public void string(String str, int x, int y) {
+		// Without a recorded font the string is drawn with the font of the graphics it is replayed into, so its size isn't known
+		if (fontId == 0) {
+			add(STRING, 3, primitiveState(), Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY,
+					Float.POSITIVE_INFINITY);
+		} else {
+			FontMetrics metrics = fontMetrics[fontId];
+			// Italic and script fonts can draw outside of their advances
+			int overhang = metrics.getFont().getSize() / 2;
+			add(STRING, 3, primitiveState(), x - overhang, y - metrics.getMaxAscent(), x + metrics.stringWidth(str) + overhang,
+					y + metrics.getMaxDescent());
+		}
+		ints[intCount++] = pushObject(str);
+		ints[intCount++] = x;
+		ints[intCount++] = y;
+	}
+	
+	/**
+	 * Records an image scaled to the given size.
+	 * @param image Image
+	 * @param x X position
+	 * @param y Y position
+	 * @param w Width
+	 * @param h Height
+	 */
+	public void image(Image image, int x, int y, int w, int h) {
+		add(IMAGE, 5, imageState(image), x, y, x + w, y + h);
+		ints[intCount++] = pushObject(image);
+		push4(x, y, w, h);
+	}
+	
+	/**
+	 * Records a region of an image drawn at its own size, e.g. a glyph of a font atlas. Regions of the same image are drawn together.
+	 * @param image Image
+	 * @param x X position
+	 * @param y Y position
+	 * @param sx X position of the region in the image
+	 * @param sy Y position of the region in the image
+	 * @param w Width of the region
+	 * @param h Height of the region
+	 */
+	public void image(Image image, int x, int y, int sx, int sy, int w, int h) {
+		add(IMAGE_REGION, 7, imageState(image), x, y, x + w, y + h);
+		ints[intCount++] = pushObject(image);
+		ints[intCount++] = x;
+		ints[intCount++] = y;
+		push4(sx, sy, w, h);
+	}
+	
+	/**
+	 * Records a region of an image scaled to a destination rectangle, like
+	 * {@code Graphics.drawImage(Image, int, int, int, int, int, int, int, int, ImageObserver)}. The image is flipped if the destination
+	 * corners are swapped.
+	 * @param image Image
+	 * @param dx1 X position of the first destination corner
+	 * @param dy1 Y position of the first destination corner
+	 * @param dx2 X position of the second destination corner
+	 * @param dy2 Y position of the second destination corner
+	 * @param sx1 X position of the first source corner
+	 * @param sy1 Y position of the first source corner
+	 * @param sx2 X position of the second source corner
+	 * @param sy2 Y position of the second source corner
+	 */
+	public void image(Image image, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1, int sx2, int sy2) {
+		add(IMAGE_SCALED, 9, imageState(image), Math.min(dx1, dx2), Math.min(dy1, dy2), Math.max(dx1, dx2), Math.max(dy1, dy2));
+		ints[intCount++] = pushObject(image);
+		push4(dx1, dy1, dx2, dy2);
+		push4(sx1, sy1, sx2, sy2);
+	}
+	
+	static boolean isImage(int kind) {
+		return kind == IMAGE || kind == IMAGE_REGION || kind == IMAGE_SCALED;
+	}
+	
+	private int imageState(Image image) {
+		Integer id = images.get(image);
+		if (id == null) {
+			if (nextImageId == MAX_STATES)
+				throw new IllegalStateException("Too many different images (" + MAX_STATES + ")");
+			id = nextImageId++;
+			images.put(image, id);
+		}
+		return IMAGE_STATE | id;
+	}
+	
+	private int primitiveState() {
+		return (fontId << 16) | colorId;
+	}
+	
+	/**
+	 * Appends a command. The sort key is built from the layer (8 bits), batch (11 bits), render state (primitive or image, then font and
+	 * color or image; 25 bits) and the command index (20 bits), so commands with equal keys keep their recorded order.
+	 */
+	private void add(int kind, int ints, int state, float left, float top, float right, float bottom) {
+		if (count == MAX_COMMANDS)
+			throw new IllegalStateException("Command buffer is full (" + MAX_COMMANDS + " commands)");
+		if (count == kinds.length) {
+			kinds = Arrays.copyOf(kinds, count * 2);
+			offsets = Arrays.copyOf(offsets, count * 2);
+			keys = Arrays.copyOf(keys, count * 2);
+			states = Arrays.copyOf(states, count * 2);
+			transformIds = Arrays.copyOf(transformIds, count * 2);
+			batches = Arrays.copyOf(batches, count * 2);
+			boxes = Arrays.copyOf(boxes, count * 8);
+		}
+		if (intCount + ints > this.ints.length)
+			this.ints = Arrays.copyOf(this.ints, Math.max(this.ints.length * 2, intCount + ints));
+		kinds[count] = kind;
+		offsets[count] = intCount;
+		states[count] = state;
+		transformIds[count] = transformId;
+		int batch = batch(state, left, top, right, bottom);
+		// Once the batches run out, the remaining commands are drawn after all others in the order they were recorded
+		long key = ((long) layer << 36) | ((long) batch << 25) | (ordered ? 0 : state);
+		keys[count] = ((key << 20) | count) ^ Long.MIN_VALUE;
+		count++;
+		sorted = false;
+	}
+	
+	/**
+	 * Returns the earliest batch a command can be drawn in: after the batches of the earlier commands it overlaps, or in the same batch if
+	 * those have the same render state.
+	 */
+	private int batch(int state, float left, float top, float right, float bottom) {
+		if (ordered)
+			return MAX_BATCHES - 1;
+		AffineTransform t = transforms[transformId];
+		if (!t.isIdentity()) {
+			double m00 = t.getScaleX(), m01 = t.getShearX(), m02 = t.getTranslateX();
+			double m10 = t.getShearY(), m11 = t.getScaleY(), m12 = t.getTranslateY();
+			double x1 = m00 * left + m01 * top, x2 = m00 * right + m01 * top, x3 = m00 * left + m01 * bottom, x4 = m00 * right + m01 * bottom;
+			double y1 = m10 * left + m11 * top, y2 = m10 * right + m11 * top, y3 = m10 * left + m11 * bottom, y4 = m10 * right + m11 * bottom;
+			left = (float) (Math.min(Math.min(x1, x2), Math.min(x3, x4)) + m02);
+			right = (float) (Math.max(Math.max(x1, x2), Math.max(x3, x4)) + m02);
+			top = (float) (Math.min(Math.min(y1, y2), Math.min(y3, y4)) + m12);
+			bottom = (float) (Math.max(Math.max(y1, y2), Math.max(y3, y4)) + m12);
+		}
+		
+		int batch = barrierState == EMPTY ? 0 : barrierState == state ? barrierBatch : barrierBatch + 1;
+		// Commands without known bounds, e.g. vertex buffers that can change until the replay, are ordered with every other command
+		if (!(Float.isFinite(left) && Float.isFinite(top) && Float.isFinite(right) && Float.isFinite(bottom))) {
+			batch = Math.max(batch, maxBatch + 1);
+			if (batch >= MAX_BATCHES - 1) {
+				ordered = true;
+				return MAX_BATCHES - 1;
+			}
+			barrierBatch = batch;
+			barrierState = state;
+			maxBatch = batch;
+			batches[count] = batch;
+			return batch;
+		}
+		
+		// A margin covers outlines and antialiasing
+		int l = (int) Math.floor(left) - 1, tp = (int) Math.floor(top) - 1, r = (int) Math.ceil(right) + 1, bm = (int) Math.ceil(bottom) + 1;
+		int b = count * 4;
+		boxes[b] = l;
+		boxes[b + 1] = tp;
+		boxes[b + 2] = r;
+		boxes[b + 3] = bm;
+		int ax = tile(l), ay = tile(tp), bx = tile(r), by = tile(bm);
+		for (int y = ay; y <= by; y++) {
+			for (int tile = y * GRID_SIZE + ax, end = y * GRID_SIZE + bx; tile <= end; tile++) {
+				int tileState = tileStates[tile];
+				if (tileState != EMPTY)
+					batch = Math.max(batch, tileState == state ? tileBatches[tile] : tileBatches[tile] + 1);
+				for (int e = tileHeads[tile]; e >= 0; e = entryNexts[e]) {
+					int c = entryCommands[e], o = c * 4;
+					if (boxes[o] < r && boxes[o + 2] > l && boxes[o + 1] < bm && boxes[o + 3] > tp)
+						batch = Math.max(batch, states[c] == state ? batches[c] : batches[c] + 1);
+				}
+			}
+		}
+		if (batch >= MAX_BATCHES - 1) {
+			ordered = true;
+			return MAX_BATCHES - 1;
+		}
+		batches[count] = batch;
+		maxBatch = Math.max(maxBatch, batch);
+		
+		for (int y = ay; y <= by; y++) {
+			for (int tile = y * GRID_SIZE + ax, end = y * GRID_SIZE + bx; tile <= end; tile++) {
+				if (tileSizes[tile] == MAX_TILE_ENTRIES)
+					collapse(tile);
+				if (entryCount == entryCommands.length) {
+					entryCommands = Arrays.copyOf(entryCommands, entryCount * 2);
+					entryNexts = Arrays.copyOf(entryNexts, entryCount * 2);
+				}
+				entryCommands[entryCount] = count;
+				entryNexts[entryCount] = tileHeads[tile];
+				tileHeads[tile] = entryCount++;
+				tileSizes[tile]++;
+			}
+		}
+		return batch;
+	}
+	
+	/**
+	 * Folds the commands listed in a tile into its summary: the highest batch among them, and their render state if they all have the
+	 * same one. Later commands in the tile are then compared with the summary instead of with each of them.
+	 */
+	private void collapse(int tile) {
+		for (int e = tileHeads[tile]; e >= 0; e = entryNexts[e]) {
+			int c = entryCommands[e];
+			if (tileStates[tile] == EMPTY || batches[c] > tileBatches[tile]) {
+				tileBatches[tile] = batches[c];
+				tileStates[tile] = states[c];
+			} else if (batches[c] == tileBatches[tile] && tileStates[tile] != states[c]) {
+				tileStates[tile] = MIXED;
+			}
+		}
+		tileHeads[tile] = -1;
+		tileSizes[tile] = 0;
+	}
+	
+	private static int tile(int coordinate) {
+		return Math.max(0, Math.min(GRID_SIZE - 1, coordinate >> TILE_SHIFT));
+	}
+	
+	private void push4(int a, int b, int c, int d) {
+		ints[intCount++] = a;
+		ints[intCount++] = b;
+		ints[intCount++] = c;
+		ints[intCount++] = d;
+	}
+	
+	private int pushObject(Object object) {
+		if (objectCount == objects.length)
+			objects = Arrays.copyOf(objects, objectCount * 2);
+		objects[objectCount] = object;
+		return objectCount++;
+	}
+	
+	/**
+	 * Sorts the recorded commands by layer and render state and draws them.
+	 * @param g Graphics to draw into, e.g. {@code Application.g}
+	 * 
+	 * @see Application
+	 */
+	public void replay(Graphics2D g) {
+		sort();
+		replay(g, 0, count);
+	}
+	
+	void sort() {
+		if (!sorted) {
+			// Arrays.sort allocates a buffer for keys that are already partly in order, which batches often are
+			if (sortBuffer.length < count)
+				sortBuffer = new long[keys.length];
+			sort(keys, sortBuffer, 0, count);
+			sorted = true;
+		}
+	}
+	
+	/**
+	 * Merge sort that reuses a buffer and only merges ranges that are out of order, so keys in recorded order cost a single pass.
+	 */
+	private static void sort(long[] keys, long[] buffer, int from, int to) {
+		if (to - from <= 32) {
+			for (int i = from + 1; i < to; i++) {
+				long key = keys[i];
+				int j = i - 1;
+				for (; j >= from && keys[j] > key; j--)
+					keys[j + 1] = keys[j];
+				keys[j + 1] = key;
+			}
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		sort(keys, buffer, from, middle);
+		sort(keys, buffer, middle, to);
+		if (keys[middle - 1] <= keys[middle])
+			return;
+		System.arraycopy(keys, from, buffer, from, middle - from);
+		int i = from, j = middle, k = from;
+		while (i < middle && j < to)
+			keys[k++] = buffer[i] <= keys[j] ? buffer[i++] : keys[j++];
+		while (i < middle)
+			keys[k++] = buffer[i++];
+	}
+	
+	/**
+	 * Draws a range of the sorted commands.
+	 */
+	void replay(Graphics2D g, int from, int to) {
+		replay(g, from, to, null, 0, 0, 0, 0);
+	}
+	
+	/**
+	 * Draws a range of the sorted commands, skipping those whose bounds (as written by {@link #describe(int, Graphics2D, int[], int)}) are
+	 * outside of the rectangle from (ax, ay) to (bx, by).
+	 */
+	void replay(Graphics2D g, int from, int to, int[] bounds, int ax, int ay, int bx, int by) {
+		final AffineTransform base = g.getTransform();
+		final Color baseColor = g.getColor();
+		final Font baseFont = g.getFont();
+		int currentTransform = 0, currentColor = -1, currentFont = 0;
+		
+		for (int i = from; i < to; i++) {
+			final long key = keys[i] ^ Long.MIN_VALUE;
+			final int index = (int) key & (MAX_COMMANDS - 1);
+			final int kind = kinds[index];
+			final int transform = transformIds[index];
+			int o = offsets[index];
+			
+			if (bounds != null && (bounds[i * 4] >= bx || bounds[i * 4 + 1] >= by || bounds[i * 4 + 2] <= ax || bounds[i * 4 + 3] <= ay))
+				continue;
+			
+			if (transform != currentTransform) {
+				g.setTransform(base);
+				g.transform(transforms[transform]);
+				currentTransform = transform;
+			}
+			if (!isImage(kind)) {
+				int color = states[index] & (MAX_STATES - 1);
+				int font = (states[index] >>> 16) & (MAX_FONTS - 1);
+				if (color != currentColor) {
+					g.setColor(colors.color(color));
+					currentColor = color;
+				}
+				if (kind == STRING && font != currentFont && fonts.get(font) != null) {
+					g.setFont(fonts.get(font));
+					currentFont = font;
+				}
+			}
+			
+			switch (kind) {
+				case RECT:
+					g.fillRect(ints[o], ints[o + 1], ints[o + 2], ints[o + 3]);
+					break;
+				case DRAW_RECT:
+					g.drawRect(ints[o], ints[o + 1], ints[o + 2], ints[o + 3]);
+					break;
+				case CIRCLE:
+					g.fillOval(ints[o] - ints[o + 2], ints[o + 1] - ints[o + 2], ints[o + 2] * 2, ints[o + 2] * 2);
+					break;
+				case DRAW_CIRCLE:
+					g.drawOval(ints[o] - ints[o + 2], ints[o + 1] - ints[o + 2], ints[o + 2] * 2, ints[o + 2] * 2);
+					break;
+				case TRIANGLE:
+				case DRAW_TRIANGLE:
+				case QUAD:
+				case DRAW_QUAD:
+					int vertices = kind == TRIANGLE || kind == DRAW_TRIANGLE ? 3 : 4;
+					for (int v = 0; v < vertices; v++) {
+						px[v] = ints[o + v * 2];
+						py[v] = ints[o + v * 2 + 1];
+					}
+					if (kind == TRIANGLE || kind == QUAD)
+						g.fillPolygon(px, py, vertices);
+					else
+						g.drawPolygon(px, py, vertices);
+					break;
+				case VERTICES:
+				case DRAW_VERTICES:
+					((VertexBuffer) objects[ints[o]]).draw(g, kind == VERTICES);
+					break;
+				case STRING:
+					g.drawString((String) objects[ints[o]], ints[o + 1], ints[o + 2]);
+					break;
+				case IMAGE:
+					g.drawImage((Image) objects[ints[o]], ints[o + 1], ints[o + 2], ints[o + 3], ints[o + 4], null);
+					break;
+				case IMAGE_REGION:
+					int x = ints[o + 1], y = ints[o + 2], sx = ints[o + 3], sy = ints[o + 4], w = ints[o + 5], h = ints[o + 6];
+					g.drawImage((Image) objects[ints[o]], x, y, x + w, y + h, sx, sy, sx + w, sy + h, null);
+					break;
+				case IMAGE_SCALED:
+					g.drawImage((Image) objects[ints[o]], ints[o + 1], ints[o + 2], ints[o + 3], ints[o + 4], ints[o + 5], ints[o + 6],
+							ints[o + 7], ints[o + 8], null);
+					break;
+			}
+		}
+		
+		g.setTransform(base);
+		g.setColor(baseColor);
+		g.setFont(baseFont);
+	}
+	
+	/**
+	 * Clears the recorded commands and resets the layer, color, font and transform. Ids of colors, fonts and images are kept, unless a table
+	 * is close to full.
+	 */
+	public void clear() {
+		if (colors.size() > MAX_STATES / 2)
+			colors.clear();
+		if (fonts.size() > MAX_FONTS / 2)
+			fonts.subList(1, fonts.size()).clear();
+		if (nextImageId > MAX_STATES / 2) {
+			images.clear();
+			nextImageId = 0;
+		}
+		Arrays.fill(objects, 0, objectCount, null);
+		count = 0;
+		intCount = 0;
+		objectCount = 0;
+		layer = 128;
+		transformCount = 1;
+		transformId = 0;
+		fontId = 0;
+		Arrays.fill(tileHeads, -1);
+		Arrays.fill(tileSizes, 0);
+		Arrays.fill(tileStates, EMPTY);
+		entryCount = 0;
+		barrierState = EMPTY;
+		maxBatch = 0;
+		ordered = false;
+		color(0xff000000);
+	}
+	
+	/*
+	 * Access to the sorted commands for the SoftwareRasterizer
+	 */
+	
+	int index(int i) {
+		return (int) (keys[i] ^ Long.MIN_VALUE) & (MAX_COMMANDS - 1);
+	}
+	
+	int kind(int index) {
+		return kinds[index];
+	}
+	
+	int intAt(int index, int i) {
+		return ints[offsets[index] + i];
+	}
+	
+	Object objectAt(int index) {
+		return objects[ints[offsets[index]]];
+	}
+	
+	int colorOf(int i) {
+		return colors.color(states[index(i)] & (MAX_STATES - 1)).getRGB();
+	}
+	
+	AffineTransform transformOf(int i) {
+		return transforms[transformIds[index(i)]];
+	}
+	
+	/**
+	 * Writes the device space bounds of a sorted command (left, top, right and bottom, with a margin for antialiasing and outlines) into
+	 * {@code bounds} and returns a hash of everything that changes its pixels. Used by the {@link DirtyTracker}.
+	 */
+	long describe(int i, Graphics2D g, int[] bounds, int b) {
+		final long key = keys[i] ^ Long.MIN_VALUE;
+		final int index = (int) key & (MAX_COMMANDS - 1);
+		final int kind = kinds[index];
+		final int o = offsets[index];
+		long hash = kind;
+		float left, top, right, bottom;
+		
+		switch (kind) {
+			case RECT:
+			case DRAW_RECT:
+				left = ints[o];
+				top = ints[o + 1];
+				right = left + ints[o + 2];
+				bottom = top + ints[o + 3];
+				hash = hash(hash, o, 4);
+				break;
+			case CIRCLE:
+			case DRAW_CIRCLE:
+				left = ints[o] - ints[o + 2];
+				top = ints[o + 1] - ints[o + 2];
+				right = ints[o] + ints[o + 2];
+				bottom = ints[o + 1] + ints[o + 2];
+				hash = hash(hash, o, 3);
+				break;
+			case TRIANGLE:
+			case DRAW_TRIANGLE:
+			case QUAD:
+			case DRAW_QUAD: {
+				int n = kind == TRIANGLE || kind == DRAW_TRIANGLE ? 6 : 8;
+				left = right = ints[o];
+				top = bottom = ints[o + 1];
+				for (int v = 2; v < n; v += 2) {
+					left = Math.min(left, ints[o + v]);
+					right = Math.max(right, ints[o + v]);
+					top = Math.min(top, ints[o + v + 1]);
+					bottom = Math.max(bottom, ints[o + v + 1]);
+				}
+				hash = hash(hash, o, n);
+				break;
+			}
+			case STRING: {
+				String str = (String) objects[ints[o]];
+				Font font = fonts.get((states[index] >>> 16) & (MAX_FONTS - 1));
+				if (font == null)
+					font = g.getFont();
+				FontMetrics metrics = g.getFontMetrics(font);
+				// Italic and script fonts can draw outside of their advances
+				int overhang = font.getSize() / 2;
+				left = ints[o + 1] - overhang;
+				right = ints[o + 1] + metrics.stringWidth(str) + overhang;
+				top = ints[o + 2] - metrics.getMaxAscent();
+				bottom = ints[o + 2] + metrics.getMaxDescent();
+				hash = mix(mix(hash, str.hashCode()), font.hashCode());
+				hash = hash(hash, o + 1, 2);
+				break;
+			}
+			case IMAGE:
+			case IMAGE_REGION: {
+				int w = kind == IMAGE ? ints[o + 3] : ints[o + 5], h = kind == IMAGE ? ints[o + 4] : ints[o + 6];
+				left = ints[o + 1];
+				top = ints[o + 2];
+				right = left + w;
+				bottom = top + h;
+				hash = mix(hash, System.identityHashCode(objects[ints[o]]));
+				hash = hash(hash, o + 1, kind == IMAGE ? 4 : 6);
+				break;
+			}
+			case IMAGE_SCALED:
+				left = Math.min(ints[o + 1], ints[o + 3]);
+				right = Math.max(ints[o + 1], ints[o + 3]);
+				top = Math.min(ints[o + 2], ints[o + 4]);
+				bottom = Math.max(ints[o + 2], ints[o + 4]);
+				hash = mix(hash, System.identityHashCode(objects[ints[o]]));
+				hash = hash(hash, o + 1, 8);
+				break;
+			case VERTICES:
+			case DRAW_VERTICES: {
+				VertexBuffer vertices = (VertexBuffer) objects[ints[o]];
+				left = top = Float.POSITIVE_INFINITY;
+				right = bottom = Float.NEGATIVE_INFINITY;
+				for (int v = 0; v < vertices.getVertexCount(); v++) {
+					float x = vertices.getX(v), y = vertices.getY(v);
+					left = Math.min(left, x);
+					right = Math.max(right, x);
+					top = Math.min(top, y);
+					bottom = Math.max(bottom, y);
+					hash = mix(hash, ((long) Float.floatToIntBits(x) << 32) | Float.floatToIntBits(y));
+				}
+				if (vertices.getVertexCount() == 0)
+					left = top = right = bottom = 0;
+				break;
+			}
+			default:
+				left = top = right = bottom = 0;
+				break;
+		}
+		if (!isImage(kind))
+			hash = mix(hash, colorOf(i));
+		
+		AffineTransform t = transformOf(i);
+		if (!t.isIdentity()) {
+			double m00 = t.getScaleX(), m01 = t.getShearX(), m02 = t.getTranslateX();
+			double m10 = t.getShearY(), m11 = t.getScaleY(), m12 = t.getTranslateY();
+			double ax = m00 * left + m01 * top, bx = m00 * right + m01 * top, cx = m00 * left + m01 * bottom, dx = m00 * right + m01 * bottom;
+			double ay = m10 * left + m11 * top, by = m10 * right + m11 * top, cy = m10 * left + m11 * bottom, dy = m10 * right + m11 * bottom;
+			left = (float) (Math.min(Math.min(ax, bx), Math.min(cx, dx)) + m02);
+			right = (float) (Math.max(Math.max(ax, bx), Math.max(cx, dx)) + m02);
+			top = (float) (Math.min(Math.min(ay, by), Math.min(cy, dy)) + m12);
+			bottom = (float) (Math.max(Math.max(ay, by), Math.max(cy, dy)) + m12);
+			hash = mix(mix(mix(hash, Double.doubleToLongBits(m00)), Double.doubleToLongBits(m01)), Double.doubleToLongBits(m02));
+			hash = mix(mix(mix(hash, Double.doubleToLongBits(m10)), Double.doubleToLongBits(m11)), Double.doubleToLongBits(m12));
+		}
+		bounds[b] = (int) Math.floor(left) - 2;
+		bounds[b + 1] = (int) Math.floor(top) - 2;
+		bounds[b + 2] = (int) Math.ceil(right) + 2;
+		bounds[b + 3] = (int) Math.ceil(bottom) + 2;
+		return hash;
+	}
+	
+	private long hash(long hash, int from, int length) {
+		for (int i = from; i < from + length; i++)
+			hash = mix(hash, ints[i]);
+		return hash;
+	}
+	
+	private static long mix(long hash, long value) {
+		hash = (hash ^ value) * 0x9e3779b97f4a7c15L;
+		return hash ^ (hash >>> 32);
+	}
+	
+	/**
+	 * Returns the amount of recorded commands.
+	 * @return int size
+	 */
+	public int size() {
+		return count;
+	}
+	
+}
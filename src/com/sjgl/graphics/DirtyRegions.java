@@ -0,0 +1,197 @@
+package com.sjgl.graphics;
+
+import java.awt.Rectangle;
+
+/**
+ * A small set of rectangles covering the parts of the screen that changed. Rectangles that overlap or touch are merged, and when there
+ * are more than {@value #MAX_REGIONS}, the two rectangles whose union grows the least are merged, so replaying into the regions stays
+ * cheap. If the regions cover most of the screen, the whole screen is marked instead.
+ *
+ * @author yiwuen
+ *
+ * @see DirtyTracker
+ *
+ */
+public final class DirtyRegions {
+	
+	/**
+	 * Maximum amount of separate rectangles.
+	 */
+	public static final int MAX_REGIONS = 8;
+	
+	private final int[] x0 = new int[MAX_REGIONS + 1], y0 = new int[MAX_REGIONS + 1];
+	private final int[] x1 = new int[MAX_REGIONS + 1], y1 = new int[MAX_REGIONS + 1];
+	private int count;
+	private int width, height;
+	private boolean full;
+	
+	/**
+	 * Sets the size of the screen and removes all regions.
+	 * @param width Width of the screen
+	 * @param height Height of the screen
+	 */
+	public void reset(int width, int height) {
+		this.width = width;
+		this.height = height;
+		clear();
+	}
+	
+	/**
+	 * Marks a rectangle of the screen as changed.
+	 * @param x X position
+	 * @param y Y position
+	 * @param w Width
+	 * @param h Height
+	 */
+	public void add(int x, int y, int w, int h) {
+		if (full)
+			return;
+		int ax = Math.max(0, x), ay = Math.max(0, y), bx = Math.min(width, x + w), by = Math.min(height, y + h);
+		if (ax >= bx || ay >= by)
+			return;
+		x0[count] = ax;
+		y0[count] = ay;
+		x1[count] = bx;
+		y1[count] = by;
+		count++;
+		mergeTouching(count - 1);
+		if (count > MAX_REGIONS)
+			mergeCheapest();
+		if ((long) getArea() * 10 > (long) width * height * 6)
+			addAll();
+	}
+	
+	/**
+	 * Marks the whole screen as changed.
+	 */
+	public void addAll() {
+		full = true;
+		count = 1;
+		x0[0] = 0;
+		y0[0] = 0;
+		x1[0] = width;
+		y1[0] = height;
+	}
+	
+	private void mergeTouching(int r) {
+		for (int i = 0; i < count; i++) {
+			if (i != r && x0[i] <= x1[r] && x0[r] <= x1[i] && y0[i] <= y1[r] && y0[r] <= y1[i]) {
+				merge(i, r);
+				// The merged rectangle may touch others now
+				mergeTouching(Math.min(i, r));
+				return;
+			}
+		}
+	}
+	
+	private void mergeCheapest() {
+		int best = 0, other = 1;
+		long bestGrowth = Long.MAX_VALUE;
+		for (int i = 0; i < count; i++) {
+			for (int j = i + 1; j < count; j++) {
+				long union = (long) (Math.max(x1[i], x1[j]) - Math.min(x0[i], x0[j])) * (Math.max(y1[i], y1[j]) - Math.min(y0[i], y0[j]));
+				long growth = union - area(i) - area(j);
+				if (growth < bestGrowth) {
+					bestGrowth = growth;
+					best = i;
+					other = j;
+				}
+			}
+		}
+		merge(best, other);
+		mergeTouching(best);
+	}
+	
+	/**
+	 * Merges rectangle b into a (keeping the lower index) and removes the other one.
+	 */
+	private void merge(int a, int b) {
+		int keep = Math.min(a, b), remove = Math.max(a, b);
+		x0[keep] = Math.min(x0[a], x0[b]);
+		y0[keep] = Math.min(y0[a], y0[b]);
+		x1[keep] = Math.max(x1[a], x1[b]);
+		y1[keep] = Math.max(y1[a], y1[b]);
+		count--;
+		x0[remove] = x0[count];
+		y0[remove] = y0[count];
+		x1[remove] = x1[count];
+		y1[remove] = y1[count];
+	}
+	
+	private long area(int i) {
+		return (long) (x1[i] - x0[i]) * (y1[i] - y0[i]);
+	}
+	
+	/**
+	 * Removes all regions.
+	 */
+	public void clear() {
+		count = 0;
+		full = false;
+	}
+	
+	/**
+	 * Returns whether or not nothing changed.
+	 * @return <STRONG>boolean</STRONG> empty
+	 */
+	public boolean isEmpty() {
+		return count == 0;
+	}
+	
+	/**
+	 * Returns whether or not the whole screen changed.
+	 * @return <STRONG>boolean</STRONG> full
+	 */
+	public boolean isFull() {
+		return full;
+	}
+	
+	/**
+	 * Returns the amount of rectangles.
+	 * @return <STRONG>int</STRONG> size
+	 */
+	public int size() {
+		return count;
+	}
+	
+	/**
+	 * Copies a rectangle into {@code out}.
+	 * @param i Index of the rectangle
+	 * @param out Rectangle to copy into
+	 *
+	 * @return Rectangle {@code out}
+	 */
+	public Rectangle getBounds(int i, Rectangle out) {
+		out.setBounds(x0[i], y0[i], x1[i] - x0[i], y1[i] - y0[i]);
+		return out;
+	}
+	
+	/**
+	 * Returns whether or not a rectangle intersects one of the regions.
+	 * @param ax Left edge
+	 * @param ay Top edge
+	 * @param bx Right edge (exclusive)
+	 * @param by Bottom edge (exclusive)
+	 *
+	 * @return <STRONG>boolean</STRONG> intersects
+	 */
+	public boolean intersects(int ax, int ay, int bx, int by) {
+		for (int i = 0; i < count; i++) {
+			if (ax < x1[i] && x0[i] < bx && ay < y1[i] && y0[i] < by)
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Returns the amount of pixels covered by the regions.
+	 * @return <STRONG>int</STRONG> area
+	 */
+	public int getArea() {
+		long area = 0;
+		for (int i = 0; i < count; i++)
+			area += area(i);
+		return (int) Math.min(Integer.MAX_VALUE, area);
+	}
+	
+}
@@ -0,0 +1,236 @@
+package com.sjgl.graphics;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.util.Arrays;
+
+/**
+ * <strong>Finds the parts of the screen that changed between two recorded frames and redraws only those.</strong>
+ *
+ * <p>Each frame is recorded into a {@link CommandBuffer}. Every command gets a hash of what it draws (kind, coordinates, color, font,
+ * image and transform) and its bounds on the screen. Commands of the new frame are matched in order with equal commands of the previous
+ * frame; the bounds of every command that was added, removed or changed are marked in the {@link DirtyRegions}. Only the commands that
+ * touch a dirty region are replayed, clipped to that region, and the rest of the back buffer is kept from the previous frame. A frame
+ * where nothing changed has no regions and draws nothing.
+ *
+ * <p>Changes that aren't recorded, such as pixels of an image that is modified in place or graphics drawn directly with
+ * {@code Application.g}, must be marked with {@link #markDirty(int, int, int, int)} or {@link #invalidate()}.
+ *
+ * @author yiwuen
+ *
+ * @see CommandBuffer
+ * @see DirtyRegions
+ *
+ */
+public final class DirtyTracker {
+	
+	private final CommandBuffer commands = new CommandBuffer();
+	private final DirtyRegions regions = new DirtyRegions();
+	private final Rectangle rectangle = new Rectangle();
+	
+	// Marks can come from the update thread while the render thread compares frames, so they are kept here until the next update
+	private static final int MAX_PENDING = 64;
+	private final int[] pending = new int[MAX_PENDING * 4];
+	private int pendingCount;
+	
+	private long[] hashes = new long[0], previousHashes = new long[0];
+	private int[] bounds = new int[0], previousBounds = new int[0];
+	private int count, previousCount;
+	private int redrawnArea;
+	private int width = -1, height = -1;
+	private boolean invalid = true;
+	
+	// Chained hash table over the commands of the previous frame
+	private int[] table = new int[0], next = new int[0];
+	private boolean[] matched = new boolean[0];
+	
+	/**
+	 * Marks a rectangle of the screen to be redrawn on the next frame. Can be called from any thread; the mark is applied by the next
+	 * {@link #update(CommandBuffer, Graphics2D, int, int)}.
+	 * @param x X position
+	 * @param y Y position
+	 * @param w Width
+	 * @param h Height
+	 */
+	public void markDirty(int x, int y, int w, int h) {
+		synchronized (pending) {
+			// Too many marks in one frame end up covering most of the screen anyway
+			if (pendingCount == MAX_PENDING) {
+				invalid = true;
+				return;
+			}
+			int o = pendingCount++ * 4;
+			pending[o] = x;
+			pending[o + 1] = y;
+			pending[o + 2] = w;
+			pending[o + 3] = h;
+		}
+	}
+	
+	/**
+	 * Marks the whole screen to be redrawn on the next frame. Can be called from any thread.
+	 */
+	public void invalidate() {
+		synchronized (pending) {
+			invalid = true;
+		}
+	}
+	
+	/**
+	 * Compares the recorded commands with the ones of the previous update and marks the regions that changed.
+	 * @param commands Commands of the new frame
+	 * @param g Graphics the commands are replayed into, used to measure strings
+	 * @param width Width of the screen
+	 * @param height Height of the screen
+	 *
+	 * @return {@link DirtyRegions} regions that need to be redrawn
+	 */
+	public DirtyRegions update(CommandBuffer commands, Graphics2D g, int width, int height) {
+		boolean redrawAll = width != this.width || height != this.height;
+		if (redrawAll) {
+			this.width = width;
+			this.height = height;
+			regions.reset(width, height);
+		}
+		synchronized (pending) {
+			for (int i = 0; i < pendingCount; i++) {
+				int o = i * 4;
+				regions.add(pending[o], pending[o + 1], pending[o + 2], pending[o + 3]);
+			}
+			pendingCount = 0;
+			redrawAll |= invalid;
+			invalid = false;
+		}
+		
+		long[] swapHashes = previousHashes;
+		previousHashes = hashes;
+		hashes = swapHashes;
+		int[] swapBounds = previousBounds;
+		previousBounds = bounds;
+		bounds = swapBounds;
+		previousCount = count;
+		
+		commands.sort();
+		count = commands.size();
+		if (hashes.length < count) {
+			hashes = new long[Math.max(count, hashes.length * 2)];
+			bounds = new int[hashes.length * 4];
+		}
+		for (int i = 0; i < count; i++)
+			hashes[i] = commands.describe(i, g, bounds, i * 4);
+			
+		if (redrawAll) {
+			regions.addAll();
+			return regions;
+		}
+		match();
+		return regions;
+	}
+	
+	private void match() {
+		int buckets = Integer.highestOneBit(Math.max(1, previousCount) * 2 - 1) << 1;
+		if (table.length < buckets)
+			table = new int[buckets];
+		if (next.length < previousCount) {
+			next = new int[Math.max(previousCount, next.length * 2)];
+			matched = new boolean[next.length];
+		}
+		int mask = buckets - 1;
+		Arrays.fill(table, 0, buckets, -1);
+		Arrays.fill(matched, 0, previousCount, false);
+		// Insert backwards so every chain lists commands in drawing order
+		for (int j = previousCount - 1; j >= 0; j--) {
+			int bucket = bucket(previousHashes[j], mask);
+			next[j] = table[bucket];
+			table[bucket] = j;
+		}
+		
+		// Matches must keep their drawing order, otherwise overlapping commands that swapped places would look unchanged
+		int last = -1;
+		for (int i = 0; i < count; i++) {
+			int found = -1;
+			for (int j = table[bucket(hashes[i], mask)]; j >= 0; j = next[j]) {
+				if (j > last && !matched[j] && previousHashes[j] == hashes[i]) {
+					found = j;
+					break;
+				}
+			}
+			if (found < 0) {
+				mark(bounds, i);
+			} else {
+				matched[found] = true;
+				last = found;
+			}
+		}
+		for (int j = 0; j < previousCount; j++) {
+			if (!matched[j])
+				mark(previousBounds, j);
+		}
+	}
+	
+	private static int bucket(long hash, int mask) {
+		return (int) (hash ^ (hash >>> 32)) & mask;
+	}
+	
+	private void mark(int[] bounds, int i) {
+		int o = i * 4;
+		regions.add(bounds[o], bounds[o + 1], bounds[o + 2] - bounds[o], bounds[o + 3] - bounds[o + 1]);
+	}
+	
+	/**
+	 * Redraws the dirty regions: for each region, the commands that touch it are replayed clipped to it. The regions are cleared
+	 * afterwards.
+	 * @param commands Commands passed to the last {@link #update(CommandBuffer, Graphics2D, int, int)}
+	 * @param g Graphics to draw into, holding the previous frame
+	 */
+	public void replay(CommandBuffer commands, Graphics2D g) {
+		redrawnArea = regions.getArea();
+		if (regions.isFull()) {
+			commands.replay(g, 0, count);
+		} else {
+			Shape clip = g.getClip();
+			for (int r = 0; r < regions.size(); r++) {
+				Rectangle region = regions.getBounds(r, rectangle);
+				g.setClip(clip);
+				g.clipRect(region.x, region.y, region.width, region.height);
+				commands.replay(g, 0, count, bounds, region.x, region.y, region.x + region.width, region.y + region.height);
+			}
+			g.setClip(clip);
+		}
+		regions.clear();
+	}
+	
+	/**
+	 * Returns the command buffer frames are recorded into when the application doesn't have one.
+	 * @return {@link CommandBuffer} commands
+	 */
+	public CommandBuffer getCommands() {
+		return commands;
+	}
+	
+	/**
+	 * Returns the regions that changed since the last replay.
+	 * @return {@link DirtyRegions} regions
+	 */
+	public DirtyRegions getRegions() {
+		return regions;
+	}
+	
+	/**
+	 * Returns the amount of pixels redrawn by the last replay, 0 if nothing changed.
+	 * @return <STRONG>int</STRONG> area
+	 */
+	public int getRedrawnArea() {
+		return redrawnArea;
+	}
+	
+	/**
+	 * Returns the amount of commands of the last update.
+	 * @return <STRONG>int</STRONG> commands
+	 */
+	public int getCommandCount() {
+		return count;
+	}
+	
+}
@@ -0,0 +1,151 @@
+package com.sjgl.graphics;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <strong>A named set of colors that are resolved once.</strong>
+ *
+ * <p>Each color of a palette has a name and an index. Look the index up once with {@code indexOf(String)} (for example in a constructor),
+ * then set the color every frame with {@code Renderer.SJGL_Color(Palette, int)}, which doesn't allocate or look anything up. Changing a
+ * color with {@code set(int, int)} updates every graphic that uses its index, which makes palettes useful for themes.
+ *
+ * <pre>
+ * Palette hud = new Palette("HUD");
+ * int text = hud.add("text", 0xffffffff);
+ * int warning = hud.add("warning", 0xffff4040);
+ * ...
+ * Renderer.SJGL_Color(hud, warning);
+ * </pre>
+ *
+ * @author yiwuen
+ *
+ * @see Renderer
+ *
+ */
+public final class Palette {
+	
+	private final String name;
+	private final Map<String, Integer> indices = new HashMap<>();
+	
+	private String[] names = new String[8];
+	private int[] colors = new int[8];
+	private Color[] instances = new Color[8];
+	private int size;
+	
+	/**
+	 * Creates an empty palette.
+	 * @param name Name of the palette
+	 */
+	public Palette(String name) {
+		this.name = name;
+	}
+	
+	/**
+	 * Adds a color to the palette, or changes it if the palette already has a color with the same name.
+	 * @param colorName Name of the color
+	 * @param argb Packed ARGB color
+	 *
+	 * @return <STRONG>int</STRONG> index of the color
+	 */
+	public int add(String colorName, int argb) {
+		Integer index = indices.get(colorName);
+		if (index != null) {
+			set(index, argb);
+			return index;
+		}
+		if (size == names.length) {
+			names = Arrays.copyOf(names, size * 2);
+			colors = Arrays.copyOf(colors, size * 2);
+			instances = Arrays.copyOf(instances, size * 2);
+		}
+		names[size] = colorName;
+		colors[size] = argb;
+		instances[size] = new Color(argb, true);
+		indices.put(colorName, size);
+		return size++;
+	}
+	
+	/**
+	 * Changes the color at an index.
+	 * @param index Index of the color
+	 * @param argb Packed ARGB color
+	 */
+	public void set(int index, int argb) {
+		checkIndex(index);
+		if (colors[index] != argb) {
+			colors[index] = argb;
+			instances[index] = new Color(argb, true);
+		}
+	}
+	
+	/**
+	 * Returns the index of a color, or -1 if the palette has no color with this name.
+	 * @param colorName Name of the color
+	 *
+	 * @return <STRONG>int</STRONG> index
+	 */
+	public int indexOf(String colorName) {
+		Integer index = indices.get(colorName);
+		return index == null ? -1 : index;
+	}
+	
+	/**
+	 * Returns the packed ARGB color at an index.
+	 * @param index Index of the color
+	 *
+	 * @return <STRONG>int</STRONG> ARGB
+	 */
+	public int getARGB(int index) {
+		checkIndex(index);
+		return colors[index];
+	}
+	
+	/**
+	 * Returns the color at an index. The same instance is returned until the color is changed.
+	 * @param index Index of the color
+	 *
+	 * @return Color
+	 *
+	 * @see Color
+	 */
+	public Color getColor(int index) {
+		checkIndex(index);
+		return instances[index];
+	}
+	
+	/**
+	 * Returns the name of the color at an index.
+	 * @param index Index of the color
+	 *
+	 * @return String
+	 */
+	public String getColorName(int index) {
+		checkIndex(index);
+		return names[index];
+	}
+	
+	/**
+	 * Returns the name of the palette.
+	 * @return String
+	 */
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * Returns the number of colors in the palette.
+	 * @return <STRONG>int</STRONG> size
+	 */
+	public int size() {
+		return size;
+	}
+	
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Palette " + name + " has no color at index " + index);
+	}
+	
+}
@@ -0,0 +1,229 @@
+package com.sjgl.graphics;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsDevice;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.util.function.Consumer;
+
+import com.sjgl.Application;
+
+/**
+ * <strong>A layer of graphics that is rendered once into an image and then drawn with a single blit each frame.</strong>
+ *
+ * <p>Use layers for graphics that rarely change, such as backgrounds, tilemaps and UI chrome. The contents are painted into an
+ * accelerated {@link VolatileImage} the first time the layer is drawn, and painted again only after {@link #invalidate()} or when the
+ * {@code VolatileImage} loses its contents. If volatile images aren't available (e.g. in a headless application), or the layer is drawn
+ * into an image such as the back buffer of the {@link SoftwareRasterizer}, a compatible managed image is used instead.
+ *
+ * <pre>
+ * RenderLayer background = new RenderLayer(getWidth(), getHeight(), g -&gt; {
+ *     for (Tile tile : map)
+ *         tile.render();
+ * });
+ * ...
+ * public void render(double alpha) {
+ *     background.render(0, 0);
+ *     ...
+ * }
+ * </pre>
+ *
+ * <p>While the layer is painted, {@code Application.g} is the layer's graphics and {@code Renderer} calls draw immediately into it, in
+ * the layer's own coordinates, even if a {@link CommandBuffer} or a {@link Camera} is active. Subclasses can override
+ * {@link #paint(Graphics2D)} instead of passing a painter.
+ *
+ * @author yiwuen
+ *
+ * @see Renderer
+ *
+ */
+public class RenderLayer {
+	
+	private final int width, height;
+	private final Consumer<Graphics2D> painter;
+	private final boolean accelerated;
+	
+	// Repainting goes into the other image, so a recorded frame never refers to pixels that were drawn over
+	private Image image, spare;
+	private boolean invalid = true;
+	private int paintCount;
+	
+	/**
+	 * Creates a layer that is painted by overriding {@link #paint(Graphics2D)}.
+	 * @param width Width of the layer
+	 * @param height Height of the layer
+	 */
+	public RenderLayer(int width, int height) {
+		this(width, height, null);
+	}
+	
+	/**
+	 * Creates a layer.
+	 * @param width Width of the layer
+	 * @param height Height of the layer
+	 * @param painter Draws the contents of the layer
+	 */
+	public RenderLayer(int width, int height, Consumer<Graphics2D> painter) {
+		if (width <= 0 || height <= 0)
+			throw new IllegalArgumentException("Layer size must be positive: " + width + "x" + height);
+		this.width = width;
+		this.height = height;
+		this.painter = painter;
+		accelerated = !GraphicsEnvironment.isHeadless();
+	}
+	
+	/**
+	 * Draws the contents of the layer. The layer is cleared to transparent before. By default, it calls the painter given to the
+	 * constructor.
+	 * @param g Graphics of the layer, also set as {@code Application.g}
+	 */
+	protected void paint(Graphics2D g) {
+		if (painter != null)
+			painter.accept(g);
+	}
+	
+	/**
+	 * Marks the layer to be painted again the next time it is drawn.
+	 */
+	public void invalidate() {
+		invalid = true;
+	}
+	
+	/**
+	 * Makes sure the image holds the contents of the layer, painting it if needed.
+	 * @param config Configuration of the graphics the layer is drawn into
+	 *
+	 * @return {@link Image} image of the layer
+	 */
+	private Image validate(GraphicsConfiguration config) {
+		// Images are read directly when drawn into another image, so a volatile image is only used for the screen
+		boolean useVolatile = accelerated && config != null && config.getDevice().getType() != GraphicsDevice.TYPE_IMAGE_BUFFER;
+		if (image != null && useVolatile != image instanceof VolatileImage) {
+			image.flush();
+			if (spare != null)
+				spare.flush();
+			image = spare = null;
+			invalid = true;
+		}
+		if (invalid && image != null) {
+			Image previous = image;
+			image = spare;
+			spare = previous;
+		}
+		if (!useVolatile) {
+			if (image == null) {
+				image = config != null ? config.createCompatibleImage(width, height, Transparency.TRANSLUCENT)
+						: new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+				invalid = true;
+			}
+			if (invalid)
+				repaint();
+			return image;
+		}
+		
+		// The contents of a volatile image can be lost at any time, so painting is repeated until they stay
+		for (int attempt = 0; attempt < 3; attempt++) {
+			VolatileImage volatileImage = (VolatileImage) image;
+			int status = volatileImage == null ? VolatileImage.IMAGE_INCOMPATIBLE : volatileImage.validate(config);
+			if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+				if (volatileImage != null)
+					volatileImage.flush();
+				image = volatileImage = config.createCompatibleVolatileImage(width, height, Transparency.TRANSLUCENT);
+				invalid = true;
+			} else if (status == VolatileImage.IMAGE_RESTORED) {
+				invalid = true;
+			}
+			if (invalid)
+				repaint();
+			if (!volatileImage.contentsLost())
+				break;
+			invalid = true;
+		}
+		return image;
+	}
+	
+	private void repaint() {
+		invalid = false;
+		paintCount++;
+		Graphics2D g = (Graphics2D) image.getGraphics();
+		g.setComposite(AlphaComposite.Clear);
+		g.fillRect(0, 0, width, height);
+		g.setComposite(AlphaComposite.SrcOver);
+		
+		Graphics2D previous = Application.g;
+		CommandBuffer recording = Renderer.SJGL_EndCommands();
+		Camera camera = Renderer.suspendCamera();
+		Application.g = g;
+		try {
+			paint(g);
+		} finally {
+			Application.g = previous;
+			Renderer.resume(recording, camera);
+			g.dispose();
+		}
+	}
+	
+	/**
+	 * Draws the layer with its top left corner at (x, y), painting it first if needed.
+	 * @param g Graphics to draw into
+	 * @param x X position
+	 * @param y Y position
+	 */
+	public void draw(Graphics2D g, int x, int y) {
+		g.drawImage(validate(g.getDeviceConfiguration()), x, y, null);
+	}
+	
+	/**
+	 * Renders the layer with its top left corner at (x, y), painting it first if needed.
+	 * @param x X position
+	 * @param y Y position
+	 */
+	public void render(int x, int y) {
+		if (!Renderer.SJGL_Visible(x, y, width, height))
+			return;
+		CommandBuffer commands = Renderer.SJGL_Commands();
+		if (commands == null) {
+			draw(Application.g, x, y);
+			return;
+		}
+		commands.image(validate(Application.g.getDeviceConfiguration()), x, y, width, height);
+	}
+	
+	/**
+	 * Returns whether or not the layer is kept in accelerated video memory.
+	 * @return <STRONG>boolean</STRONG> accelerated
+	 */
+	public boolean isAccelerated() {
+		return image instanceof VolatileImage && ((VolatileImage) image).getCapabilities().isAccelerated();
+	}
+	
+	/**
+	 * Returns how many times the layer was painted. More than once means it was invalidated or its contents were lost.
+	 * @return <STRONG>int</STRONG> paints
+	 */
+	public int getPaintCount() {
+		return paintCount;
+	}
+	
+	/**
+	 * Returns the width of the layer.
+	 * @return <STRONG>int</STRONG> width
+	 */
+	public int getWidth() {
+		return width;
+	}
+	
+	/**
+	 * Returns the height of the layer.
+	 * @return <STRONG>int</STRONG> height
+	 */
+	public int getHeight() {
+		return height;
+	}
+	
+}
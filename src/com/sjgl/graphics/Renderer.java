@@ -4,8 +4,11 @@ import java.awt.Color;
 import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
 
 import com.sjgl.Application;
+import com.sjgl.graphics.text.GlyphAtlas;
 import com.sjgl.physics.collision.CollisionBound;
 
 /**
@@ -29,6 +32,149 @@ import com.sjgl.physics.collision.CollisionBound;
  */
 public class Renderer {
 	
+	private static final int COLOR_CACHE_BITS = 12;
+	private static final Color[] colorCache = new Color[1 << COLOR_CACHE_BITS];
+	
+	private static CommandBuffer commands;
+	
+	private static Camera camera;
+	private static AffineTransform cameraSaved;
+	
+	/**
+	 * Starts recording {@code Renderer} calls and {@code Sprite.render(...)} into a {@link CommandBuffer} instead of drawing them. The buffer
+	 * is cleared first. Call {@code SJGL_EndCommands()} to stop recording and {@code CommandBuffer.replay(Graphics2D)} to draw the
+	 * recorded commands sorted by layer and render state.
+	 * @param buffer Command buffer to record into
+	 * 
+	 * @see CommandBuffer
+	 */
+	public static final void SJGL_BeginCommands(CommandBuffer buffer) {
+		buffer.clear();
+		commands = buffer;
+	}
+	
+	/**
+	 * Stops recording into the current {@link CommandBuffer}.
+	 * @return CommandBuffer the buffer that was recording, or null
+	 */
+	public static final CommandBuffer SJGL_EndCommands() {
+		CommandBuffer buffer = commands;
+		commands = null;
+		return buffer;
+	}
+	
+	/**
+	 * Returns the {@link CommandBuffer} that is currently recording, or null if graphics are drawn immediately.
+	 * @return CommandBuffer
+	 */
+	public static final CommandBuffer SJGL_Commands() {
+		return commands;
+	}
+	
+	/**
+	 * Sets the layer of the following graphics while recording into a {@link CommandBuffer}. Layers are drawn from lowest to highest.
+	 * Has no effect when graphics are drawn immediately.
+	 * @param layer Layer between -128 and 127
+	 */
+	public static final void SJGL_Layer(int layer) {
+		if (commands != null)
+			commands.layer(layer);
+	}
+	
+	/**
+	 * Starts drawing through a {@link Camera}: the following graphics are in world coordinates, and draw calls that are completely outside
+	 * of the camera's viewport are skipped. Call {@code SJGL_EndCamera()} to go back to screen coordinates.
+	 * @param camera Camera
+	 * 
+	 * @see Camera
+	 */
+	public static final void SJGL_BeginCamera(Camera camera) {
+		SJGL_EndCamera();
+		camera.begin();
+		AffineTransform transform = camera.getTransform();
+		if (commands != null) {
+			cameraSaved = commands.getTransform();
+			commands.transform(transform);
+		} else {
+			cameraSaved = Application.g.getTransform();
+			Application.g.transform(transform);
+		}
+		Renderer.camera = camera;
+	}
+	
+	/**
+	 * Stops drawing through the current {@link Camera} and restores the transform from before {@code SJGL_BeginCamera(Camera)}.
+	 * @return Camera the camera that was active, or null
+	 */
+	public static final Camera SJGL_EndCamera() {
+		Camera active = camera;
+		if (active == null)
+			return null;
+		active.end();
+		camera = null;
+		if (commands != null)
+			commands.setTransform(cameraSaved);
+		else
+			Application.g.setTransform(cameraSaved);
+		cameraSaved = null;
+		return active;
+	}
+	
+	/**
+	 * Returns the active {@link Camera}, or null if graphics are drawn in screen coordinates.
+	 * @return Camera
+	 */
+	public static final Camera SJGL_Camera() {
+		return camera;
+	}
+	
+	/**
+	 * Returns whether or not a rectangle in the current coordinates is inside of the active camera's viewport, and counts it as drawn or
+	 * culled. Always true when no camera is active. {@code Renderer} calls check this themselves; use it to skip custom graphics.
+	 * @param x X position
+	 * @param y Y position
+	 * @param w Width
+	 * @param h Height
+	 * 
+	 * @return <STRONG>boolean</STRONG> visible
+	 * 
+	 * @see Camera
+	 */
+	public static final boolean SJGL_Visible(double x, double y, double w, double h) {
+		return camera == null || !camera.cull(x, y, w, h);
+	}
+	
+	/**
+	 * Deactivates the camera without restoring the transform, so graphics can be drawn immediately elsewhere, e.g. into a
+	 * {@link RenderLayer}.
+	 */
+	static Camera suspendCamera() {
+		Camera active = camera;
+		camera = null;
+		return active;
+	}
+	
+	/**
+	 * Continues recording and culling after {@code SJGL_EndCommands()} and {@code suspendCamera()}, without clearing the buffer.
+	 */
+	static void resume(CommandBuffer buffer, Camera active) {
+		commands = buffer;
+		camera = active;
+	}
+	
+	private static boolean culled(int[] x, int[] y, int vertices) {
+		if (camera == null)
+			return false;
+		int left = x[0], right = x[0], top = y[0], bottom = y[0];
+		for (int v = 1; v < vertices; v++) {
+			left = Math.min(left, x[v]);
+			right = Math.max(right, x[v]);
+			top = Math.min(top, y[v]);
+			bottom = Math.max(bottom, y[v]);
+		}
+		return camera.cull(left, top, right - left, bottom - top);
+	}
+	
 	/**
 	 * Sets the font of the current string graphic.
 	 * @param font Font
@@ -36,18 +182,21 @@ public class Renderer {
 	 * @see Font
 	 */
 	public static final void SJGL_Font(Font font) {
-		Application.g.setFont(font);
+		if (commands != null)
+			commands.font(font);
+		else
+			Application.g.setFont(font);
 	}
 	
 	/**
-	 * Returns the graphic's font metrics.
+	 * Returns the font metrics of the current font, which is the recorded font while a {@link CommandBuffer} is recording.
 	 * 
 	 * @return FontMetrics
 	 * 
 	 * @see FontMetrics
 	 */
 	public static final FontMetrics SJGL_FontMetrics() {
-		return Application.g.getFontMetrics();
+		return Application.g.getFontMetrics(SJGL_CurrentFont());
 	}
 	
 	/**
@@ -70,6 +219,8 @@ public class Renderer {
 	 * @see Font
 	 */
 	public static final Font SJGL_CurrentFont() {
+		if (commands != null && commands.getFont() != null)
+			return commands.getFont();
 		return Application.g.getFont();
 	}
 	
@@ -81,8 +232,35 @@ public class Renderer {
 	 * @param y Y position of the string graphic
 	 */
 	public static final void SJGL_DrawString(String str, Font font, int x, int y) {
+		if (camera != null) {
+			FontMetrics metrics = Application.g.getFontMetrics(font);
+			if (camera.cull(x, y - metrics.getAscent(), metrics.stringWidth(str), metrics.getAscent() + metrics.getDescent()))
+				return;
+		}
 		SJGL_Font(font);
-		Application.g.drawString(str, x, y);
+		if (commands != null)
+			commands.string(str, x, y);
+		else
+			Application.g.drawString(str, x, y);
+	}
+	
+	/**
+	 * Renders a string from the rasterized glyphs of a {@link GlyphAtlas}, which is much faster than drawing it with a {@link Font}. The
+	 * text is drawn in the atlas' font and color.
+	 * @param str String, or text
+	 * @param atlas Glyph atlas of the font and color
+	 * @param x X position of the string graphic
+	 * @param y Y position of the string graphic
+	 * 
+	 * @see GlyphAtlas
+	 */
+	public static final void SJGL_DrawString(String str, GlyphAtlas atlas, int x, int y) {
+		if (camera != null && camera.cull(x, y - atlas.getAscent(), atlas.getWidth(str), atlas.getAscent() + atlas.getDescent()))
+			return;
+		if (commands != null)
+			atlas.record(commands, atlas.layout(str), x, y);
+		else
+			atlas.draw(Application.g, str, x, y);
 	}
 	
 	/**
@@ -92,6 +270,8 @@ public class Renderer {
 	 * @see Color
 	 */
 	public static final Color SJGL_CurrentColor() {
+		if (commands != null)
+			return SJGL_CachedColor(commands.getColor());
 		return Application.g.getColor();
 	}
 	
@@ -102,7 +282,7 @@ public class Renderer {
 	 * @see Color
 	 */
 	public static final void SJGL_Colori(int v) {
-		Application.g.setColor(new Color(v));
+		SJGL_ColorARGB(0xff000000 | v);
 	}
 	
 	/**
@@ -114,7 +294,7 @@ public class Renderer {
 	 * @see Color
 	 */
 	public static final void SJGL_Color3i(int r, int g, int b) {
-		Application.g.setColor(new Color(r, g, b));
+		SJGL_ColorARGB(pack(r, g, b, 255));
 	}
 	
 	/**
@@ -126,7 +306,7 @@ public class Renderer {
 	 * @see Color
 	 */
 	public static final void SJGL_Color4i(int r, int g, int b, int a) {
-		Application.g.setColor(new Color(r, g, b, a));
+		SJGL_ColorARGB(pack(r, g, b, a));
 	}
 	
 	/**
@@ -138,7 +318,7 @@ public class Renderer {
 	 * @see Color
 	 */
 	public static final void SJGL_Color3f(float r, float g, float b) {
-		Application.g.setColor(new Color(r, g, b));
+		SJGL_ColorARGB(pack(r, g, b, 1.0f));
 	}
 	
 	/**
@@ -150,7 +330,69 @@ public class Renderer {
 	 * @see Color
 	 */
 	public static final void SJGL_Color4f(float r, float g, float b, float a) {
-		Application.g.setColor(new Color(r, g, b, a));
+		SJGL_ColorARGB(pack(r, g, b, a));
+	}
+	
+	/**
+	 * Sets the color (packed ARGB) of the current graphic, for example {@code 0x80ff0000} for half transparent red. Colors are reused
+	 * from a small cache, so this doesn't allocate when the same colors are used every frame.
+	 * @param argb Alpha, red, green and blue packed into an int
+	 * 
+	 * @see #SJGL_CachedColor(int)
+	 */
+	public static final void SJGL_ColorARGB(int argb) {
+		if (commands != null)
+			commands.color(argb);
+		else
+			Application.g.setColor(SJGL_CachedColor(argb));
+	}
+	
+	/**
+	 * Sets the color of the current graphic to a color of a {@link Palette}. Look the index up once with {@code Palette.indexOf(String)}.
+	 * @param palette Palette
+	 * @param index Index of the color in the palette
+	 * 
+	 * @see Palette
+	 */
+	public static final void SJGL_Color(Palette palette, int index) {
+		if (commands != null)
+			commands.color(palette.getARGB(index));
+		else
+			Application.g.setColor(palette.getColor(index));
+	}
+	
+	/**
+	 * Returns a {@link Color} for a packed ARGB value. Colors are kept in a bounded cache, so asking for the same colors again returns the
+	 * same instances instead of allocating new ones.
+	 * @param argb Alpha, red, green and blue packed into an int
+	 * 
+	 * @return Color
+	 * 
+	 * @see Color
+	 */
+	public static final Color SJGL_CachedColor(int argb) {
+		// Two-way set associative: a miss moves the most recent color of the set to its second slot
+		int slot = ((argb * 0x9e3779b9) >>> (32 - COLOR_CACHE_BITS)) & ~1;
+		Color color = colorCache[slot];
+		if (color != null && color.getRGB() == argb)
+			return color;
+		Color other = colorCache[slot + 1];
+		if (other != null && other.getRGB() == argb)
+			return other;
+		colorCache[slot + 1] = color;
+		return colorCache[slot] = new Color(argb, true);
+	}
+	
+	private static int pack(int r, int g, int b, int a) {
+		if (((r | g | b | a) & ~0xff) != 0)
+			throw new IllegalArgumentException("Color parameter outside of expected range (0-255)");
+		return (a << 24) | (r << 16) | (g << 8) | b;
+	}
+	
+	private static int pack(float r, float g, float b, float a) {
+		if (r < 0 || r > 1 || g < 0 || g > 1 || b < 0 || b > 1 || a < 0 || a > 1)
+			throw new IllegalArgumentException("Color parameter outside of expected range (0.0-1.0)");
+		return pack((int) (r * 255 + 0.5), (int) (g * 255 + 0.5), (int) (b * 255 + 0.5), (int) (a * 255 + 0.5));
 	}
 	
 	/**
@@ -162,7 +404,12 @@ public class Renderer {
 	 * @see Application
 	 */
 	public static final void SJGL_DrawTriangle(int[] x, int[] y) {
-		Application.g.drawPolygon(x, y, 3);
+		if (culled(x, y, 3))
+			return;
+		if (commands != null)
+			commands.polygon(x, y, 3, false);
+		else
+			Application.g.drawPolygon(x, y, 3);
 	}
 	
 	/**
@@ -174,7 +421,12 @@ public class Renderer {
 	 * @see Application
 	 */
 	public static final void SJGL_Triangle(int[] x, int[] y) {
-		Application.g.fillPolygon(x, y, 3);
+		if (culled(x, y, 3))
+			return;
+		if (commands != null)
+			commands.polygon(x, y, 3, true);
+		else
+			Application.g.fillPolygon(x, y, 3);
 	}
 	
 	/**
@@ -189,7 +441,12 @@ public class Renderer {
 	 * @see Application
 	 */
 	public static final void SJGL_DrawQuad(int[] x, int[] y) {
-		Application.g.drawPolygon(x, y, 4);
+		if (culled(x, y, 4))
+			return;
+		if (commands != null)
+			commands.polygon(x, y, 4, false);
+		else
+			Application.g.drawPolygon(x, y, 4);
 	}
 	
 	/**
@@ -204,7 +461,46 @@ public class Renderer {
 	 * @see Application
 	 */
 	public static final void SJGL_Quad(int[] x, int[] y) {
-		Application.g.fillPolygon(x, y, 4);
+		if (culled(x, y, 4))
+			return;
+		if (commands != null)
+			commands.polygon(x, y, 4, true);
+		else
+			Application.g.fillPolygon(x, y, 4);
+	}
+	
+	/**
+	 * Renders all triangles or quads of a {@link VertexBuffer} color-filled, in one call.
+	 * @param vertices Vertex buffer
+	 * 
+	 * @see VertexBuffer
+	 */
+	public static final void SJGL_Vertices(VertexBuffer vertices) {
+		if (vertices.getVertexCount() == 0)
+			return;
+		if (camera != null && camera.cull(vertices.minX, vertices.minY, vertices.maxX - vertices.minX, vertices.maxY - vertices.minY))
+			return;
+		if (commands != null)
+			commands.vertices(vertices, true);
+		else
+			vertices.draw(Application.g, true);
+	}
+	
+	/**
+	 * Renders the outlines of all triangles or quads of a {@link VertexBuffer}, in one call.
+	 * @param vertices Vertex buffer
+	 * 
+	 * @see VertexBuffer
+	 */
+	public static final void SJGL_DrawVertices(VertexBuffer vertices) {
+		if (vertices.getVertexCount() == 0)
+			return;
+		if (camera != null && camera.cull(vertices.minX, vertices.minY, vertices.maxX - vertices.minX, vertices.maxY - vertices.minY))
+			return;
+		if (commands != null)
+			commands.vertices(vertices, false);
+		else
+			vertices.draw(Application.g, false);
 	}
 	
 	/**
@@ -217,6 +513,12 @@ public class Renderer {
 	 * @see Application
 	 */
 	public static final void SJGL_DrawCircle(int x, int y, int radius) {
+		if (camera != null && camera.cull(x - radius, y - radius, radius * 2, radius * 2))
+			return;
+		if (commands != null) {
+			commands.drawCircle(x, y, radius);
+			return;
+		}
 		int d = radius * 2;
 		Application.g.drawOval(x - radius, y - radius, d, d);
 	}
@@ -231,6 +533,12 @@ public class Renderer {
 	 * @see Application
 	 */
 	public static final void SJGL_Circle(int x, int y, int radius) {
+		if (camera != null && camera.cull(x - radius, y - radius, radius * 2, radius * 2))
+			return;
+		if (commands != null) {
+			commands.circle(x, y, radius);
+			return;
+		}
 		int d = radius * 2;
 		Application.g.fillOval(x - radius, y - radius, d, d);
 	}
@@ -246,7 +554,12 @@ public class Renderer {
 	 * @see Application
 	 */
 	public static final void SJGL_Rect(int x, int y, int w, int h) {
-		Application.g.fillRect(x, y, w, h);
+		if (camera != null && camera.cull(x, y, w, h))
+			return;
+		if (commands != null)
+			commands.rect(x, y, w, h);
+		else
+			Application.g.fillRect(x, y, w, h);
 	}
 	
 	/**
@@ -260,7 +573,12 @@ public class Renderer {
 	 * @see Application
 	 */
 	public static final void SJGL_DrawRect(int x, int y, int w, int h) {
-		Application.g.drawRect(x, y, w, h);
+		if (camera != null && camera.cull(x, y, w, h))
+			return;
+		if (commands != null)
+			commands.drawRect(x, y, w, h);
+		else
+			Application.g.drawRect(x, y, w, h);
 	}
 	
 	/**
@@ -270,7 +588,13 @@ public class Renderer {
 	 * @see CollisionBound
 	 */
 	public static final void SJGL_DrawBounds(CollisionBound bound) {
-		Application.g.draw(bound.getBounds());
+		if (camera != null && camera.cull(bound.getX(), bound.getY(), bound.getWidth(), bound.getHeight()))
+			return;
+		if (commands != null) {
+			Rectangle bounds = bound.getBounds();
+			commands.drawRect(bounds.x, bounds.y, bounds.width, bounds.height);
+		} else
+			Application.g.draw(bound.getBounds());
 	}
 	
 	/**
@@ -281,7 +605,12 @@ public class Renderer {
 	 * @see Graphics2D
 	 */
 	public static final void SJGL_Translatei(int x, int y) {
-		Application.g.translate(x, y);
+		if (camera != null)
+			camera.translate(x, y);
+		if (commands != null)
+			commands.translate(x, y);
+		else
+			Application.g.translate(x, y);
 	}
 	
 	/**
@@ -292,7 +621,12 @@ public class Renderer {
 	 * @see Graphics2D
 	 */
 	public static final void SJGL_Translatef(float x, float y) {
-		Application.g.translate(x, y);
+		if (camera != null)
+			camera.translate(x, y);
+		if (commands != null)
+			commands.translate(x, y);
+		else
+			Application.g.translate(x, y);
 	}
 
 	/**
@@ -303,7 +637,12 @@ public class Renderer {
 	 * @see Graphics2D
 	 */
 	public static final void SJGL_Scalei(int sx, int sy) {
-		Application.g.scale(sx, sy);
+		if (camera != null)
+			camera.scale(sx, sy);
+		if (commands != null)
+			commands.scale(sx, sy);
+		else
+			Application.g.scale(sx, sy);
 	}
 	
 	/**
@@ -314,7 +653,12 @@ public class Renderer {
 	 * @see Graphics2D
 	 */
 	public static final void SJGL_Scalef(float sx, float sy) {
-		Application.g.scale(sx, sy);
+		if (camera != null)
+			camera.scale(sx, sy);
+		if (commands != null)
+			commands.scale(sx, sy);
+		else
+			Application.g.scale(sx, sy);
 	}
 	
 }
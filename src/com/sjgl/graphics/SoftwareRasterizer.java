@@ -0,0 +1,636 @@
+package com.sjgl.graphics;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <strong>Multi-core software renderer that writes pixels directly into an {@code int[]} back buffer.</strong>
+ *
+ * <p>Graphics are recorded into the rasterizer's {@link CommandBuffer} (see {@code Application.enableSoftwareRasterizer(boolean)}), then
+ * {@code end()} rasterizes them into a {@code TYPE_INT_ARGB_PRE} back buffer. The screen is split into {@value #TILE_SIZE}x{@value #TILE_SIZE}
+ * tiles, every command is binned into the tiles it covers, and the tiles are filled in parallel by a {@link ForkJoinPool}, so fill-rate
+ * scales with the amount of cores instead of being limited to the one thread Java2D draws with.
+ *
+ * <p>Filled rectangles, circles, triangles, convex quads, {@link VertexBuffer}s and images (scaled with nearest neighbor sampling) are
+ * rasterized, with translated and scaled transforms. Everything else (outlines, strings, rotated transforms) is drawn with Java2D into the
+ * same back buffer after the commands before it are rasterized, so the draw order is kept. Pixels are sampled at their centers like
+ * Java2D without antialiasing and blended with source over. Edges of circles, triangles and scaled images can be one pixel off from Java2D.
+ *
+ * <p>Images are read through a private copy of their pixels. The regions of int pixel type images that are drawn are copied again every
+ * frame through their raster, so the images stay tracked and accelerated by Java2D, and images of other types are converted again every
+ * frame they are drawn in, so changes made to images are always seen.
+ *
+ * @author yiwuen
+ *
+ * @see CommandBuffer
+ *
+ */
+public final class SoftwareRasterizer {
+	
+	/**
+	 * Width and height of the screen tiles that are filled in parallel.
+	 */
+	public static final int TILE_SIZE = 64;
+	
+	private static final int OP_RECT = 0, OP_ELLIPSE = 1, OP_TRIANGLE = 2, OP_IMAGE = 3;
+	private static final int SCALED = AffineTransform.TYPE_TRANSLATION | AffineTransform.TYPE_UNIFORM_SCALE
+			| AffineTransform.TYPE_GENERAL_SCALE;
+			
+	private final CommandBuffer commands = new CommandBuffer();
+	private final ForkJoinPool pool;
+	
+	private BufferedImage backBuffer;
+	private Graphics2D graphics;
+	private int[] pixels;
+	private int width, height, tilesX, tilesY;
+	
+	private int opCount;
+	private int[] opKinds = new int[256];
+	private int[] opColors = new int[256];
+	private int[] opBounds = new int[256 * 4];
+	private float[] opCoords = new float[256 * 8];
+	private Source[] opSources = new Source[256];
+	
+	private int[][] bins = new int[0][];
+	private int[] binSizes = new int[0];
+	
+	private final Map<Image, Source> sources = new WeakHashMap<>();
+	private final float[] quad = new float[8];
+	
+	private int frame, rasterized, fallbacks;
+	
+	/**
+	 * Creates a rasterizer that fills tiles with the common {@link ForkJoinPool}.
+	 */
+	public SoftwareRasterizer() {
+		this(ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Creates a rasterizer that fills tiles with the given pool.
+	 * @param pool Pool to fill tiles with
+	 */
+	public SoftwareRasterizer(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+	
+	/**
+	 * Starts a frame: makes sure the back buffer has the given size and clears the command buffer.
+	 * @param width Width of the frame
+	 * @param height Height of the frame
+	 *
+	 * @return Graphics2D graphics of the back buffer, for graphics that are not recorded
+	 */
+	public Graphics2D begin(int width, int height) {
+		width = Math.max(1, width);
+		height = Math.max(1, height);
+		if (backBuffer == null || this.width != width || this.height != height) {
+			if (graphics != null)
+				graphics.dispose();
+			backBuffer = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+			pixels = ((DataBufferInt) backBuffer.getRaster().getDataBuffer()).getData();
+			graphics = backBuffer.createGraphics();
+			this.width = width;
+			this.height = height;
+			tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+			tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+			bins = new int[tilesX * tilesY][16];
+			binSizes = new int[tilesX * tilesY];
+		}
+		commands.clear();
+		frame++;
+		return graphics;
+	}
+	
+	/**
+	 * Rasterizes the recorded commands into the back buffer.
+	 */
+	public void end() {
+		rasterized = 0;
+		fallbacks = 0;
+		commands.sort();
+		int count = commands.size();
+		for (int i = 0; i < count; i++) {
+			if (!bin(i)) {
+				flush();
+				commands.replay(graphics, i, i + 1);
+				fallbacks++;
+			}
+		}
+		flush();
+	}
+	
+	/**
+	 * Converts a sorted command into rasterizer ops, or returns false if it must be drawn with Java2D.
+	 */
+	private boolean bin(int i) {
+		int index = commands.index(i);
+		int kind = commands.kind(index);
+		AffineTransform t = commands.transformOf(i);
+		if ((t.getType() & ~SCALED) != 0)
+			return false;
+		float sx = (float) t.getScaleX(), sy = (float) t.getScaleY(), tx = (float) t.getTranslateX(), ty = (float) t.getTranslateY();
+		int color = CommandBuffer.isImage(kind) ? 0 : premultiply(commands.colorOf(i));
+		
+		switch (kind) {
+			case CommandBuffer.RECT: {
+				int x = commands.intAt(index, 0), y = commands.intAt(index, 1), w = commands.intAt(index, 2), h = commands.intAt(index, 3);
+				if (w > 0 && h > 0 && color != 0)
+					addBox(OP_RECT, color, x * sx + tx, y * sy + ty, (x + w) * sx + tx, (y + h) * sy + ty, null);
+				return true;
+			}
+			case CommandBuffer.CIRCLE: {
+				int x = commands.intAt(index, 0), y = commands.intAt(index, 1), r = commands.intAt(index, 2);
+				if (r > 0 && color != 0)
+					addBox(OP_ELLIPSE, color, (x - r) * sx + tx, (y - r) * sy + ty, (x + r) * sx + tx, (y + r) * sy + ty, null);
+				return true;
+			}
+			case CommandBuffer.TRIANGLE:
+			case CommandBuffer.QUAD: {
+				int vertices = kind == CommandBuffer.TRIANGLE ? 3 : 4;
+				for (int v = 0; v < vertices; v++) {
+					quad[v * 2] = commands.intAt(index, v * 2) * sx + tx;
+					quad[v * 2 + 1] = commands.intAt(index, v * 2 + 1) * sy + ty;
+				}
+				if (vertices == 4 && !isConvex(quad))
+					return false;
+				if (color != 0)
+					addPolygon(color, quad, vertices);
+				return true;
+			}
+			case CommandBuffer.VERTICES: {
+				VertexBuffer vertices = (VertexBuffer) commands.objectAt(index);
+				int mode = vertices.getMode(), count = vertices.getVertexCount();
+				if (mode == VertexBuffer.QUADS) {
+					for (int v = 0; v < count; v += 4) {
+						for (int c = 0; c < 4; c++) {
+							quad[c * 2] = vertices.getX(v + c);
+							quad[c * 2 + 1] = vertices.getY(v + c);
+						}
+						if (!isConvex(quad))
+							return false;
+					}
+				}
+				if (color == 0)
+					return true;
+				for (int v = 0; v < count; v += mode) {
+					for (int c = 0; c < mode; c++) {
+						quad[c * 2] = vertices.getX(v + c) * sx + tx;
+						quad[c * 2 + 1] = vertices.getY(v + c) * sy + ty;
+					}
+					addPolygon(color, quad, mode);
+				}
+				return true;
+			}
+			case CommandBuffer.IMAGE:
+			case CommandBuffer.IMAGE_REGION:
+			case CommandBuffer.IMAGE_SCALED: {
+				// Flipped images are left to Java2D
+				if (kind == CommandBuffer.IMAGE_SCALED && (commands.intAt(index, 3) < commands.intAt(index, 1)
+						|| commands.intAt(index, 4) < commands.intAt(index, 2) || commands.intAt(index, 7) < commands.intAt(index, 5)
+						|| commands.intAt(index, 8) < commands.intAt(index, 6)))
+					return false;
+				Source source = source((Image) commands.objectAt(index));
+				if (source == null)
+					return false;
+				int x = commands.intAt(index, 1), y = commands.intAt(index, 2);
+				int w, h, u = 0, v = 0, uw = source.width, vh = source.height;
+				if (kind == CommandBuffer.IMAGE_SCALED) {
+					w = commands.intAt(index, 3) - x;
+					h = commands.intAt(index, 4) - y;
+					u = commands.intAt(index, 5);
+					v = commands.intAt(index, 6);
+					uw = commands.intAt(index, 7) - u;
+					vh = commands.intAt(index, 8) - v;
+					if (uw <= 0 || vh <= 0)
+						return true;
+				} else if (kind == CommandBuffer.IMAGE) {
+					w = commands.intAt(index, 3);
+					h = commands.intAt(index, 4);
+				} else {
+					u = commands.intAt(index, 3);
+					v = commands.intAt(index, 4);
+					w = uw = commands.intAt(index, 5);
+					h = vh = commands.intAt(index, 6);
+				}
+				if (w <= 0 || h <= 0)
+					return true;
+				source.load((Image) commands.objectAt(index), frame, u, v, uw, vh);
+				int op = addBox(OP_IMAGE, 0, x * sx + tx, y * sy + ty, (x + w) * sx + tx, (y + h) * sy + ty, source);
+				if (op >= 0) {
+					opCoords[op * 8 + 4] = u;
+					opCoords[op * 8 + 5] = v;
+					opCoords[op * 8 + 6] = uw;
+					opCoords[op * 8 + 7] = vh;
+				}
+				return true;
+			}
+			default:
+				return false;
+		}
+	}
+	
+	private static boolean isConvex(float[] p) {
+		int sign = 0;
+		for (int v = 0; v < 4; v++) {
+			int a = v * 2, b = ((v + 1) & 3) * 2, c = ((v + 2) & 3) * 2;
+			float cross = (p[b] - p[a]) * (p[c + 1] - p[b + 1]) - (p[b + 1] - p[a + 1]) * (p[c] - p[b]);
+			int s = cross > 0 ? 1 : cross < 0 ? -1 : 0;
+			if (s != 0) {
+				if (sign != 0 && s != sign)
+					return false;
+				sign = s;
+			}
+		}
+		return true;
+	}
+	
+	private void addPolygon(int color, float[] p, int vertices) {
+		addTriangle(color, p[0], p[1], p[2], p[3], p[4], p[5]);
+		if (vertices == 4)
+			addTriangle(color, p[0], p[1], p[4], p[5], p[6], p[7]);
+	}
+	
+	private void addTriangle(int color, float x1, float y1, float x2, float y2, float x3, float y3) {
+		int op = addBox(OP_TRIANGLE, color, Math.min(x1, Math.min(x2, x3)), Math.min(y1, Math.min(y2, y3)), Math.max(x1, Math.max(x2, x3)),
+				Math.max(y1, Math.max(y2, y3)), null);
+		if (op >= 0) {
+			float[] c = opCoords;
+			int o = op * 8;
+			c[o] = x1;
+			c[o + 1] = y1;
+			c[o + 2] = x2;
+			c[o + 3] = y2;
+			c[o + 4] = x3;
+			c[o + 5] = y3;
+		}
+	}
+	
+	/**
+	 * Adds an op covering a device space box and bins it into the tiles it touches. Returns the op, or -1 if no pixel center is covered.
+	 */
+	private int addBox(int kind, int color, float x0, float y0, float x1, float y1, Source source) {
+		if (x0 > x1) {
+			float x = x0;
+			x0 = x1;
+			x1 = x;
+		}
+		if (y0 > y1) {
+			float y = y0;
+			y0 = y1;
+			y1 = y;
+		}
+		int px0 = Math.max(0, (int) Math.ceil(x0 - 0.5f)), px1 = Math.min(width, (int) Math.ceil(x1 - 0.5f));
+		int py0 = Math.max(0, (int) Math.ceil(y0 - 0.5f)), py1 = Math.min(height, (int) Math.ceil(y1 - 0.5f));
+		if (px0 >= px1 || py0 >= py1)
+			return -1;
+			
+		if (opCount == opKinds.length) {
+			int capacity = opCount * 2;
+			opKinds = Arrays.copyOf(opKinds, capacity);
+			opColors = Arrays.copyOf(opColors, capacity);
+			opBounds = Arrays.copyOf(opBounds, capacity * 4);
+			opCoords = Arrays.copyOf(opCoords, capacity * 8);
+			opSources = Arrays.copyOf(opSources, capacity);
+		}
+		int op = opCount++;
+		opKinds[op] = kind;
+		opColors[op] = color;
+		opSources[op] = source;
+		opBounds[op * 4] = px0;
+		opBounds[op * 4 + 1] = py0;
+		opBounds[op * 4 + 2] = px1;
+		opBounds[op * 4 + 3] = py1;
+		opCoords[op * 8] = x0;
+		opCoords[op * 8 + 1] = y0;
+		opCoords[op * 8 + 2] = x1;
+		opCoords[op * 8 + 3] = y1;
+		
+		for (int ty = py0 / TILE_SIZE; ty <= (py1 - 1) / TILE_SIZE; ty++) {
+			for (int tx = px0 / TILE_SIZE; tx <= (px1 - 1) / TILE_SIZE; tx++) {
+				int tile = ty * tilesX + tx;
+				int size = binSizes[tile];
+				if (size == bins[tile].length)
+					bins[tile] = Arrays.copyOf(bins[tile], size * 2);
+				bins[tile][size] = op;
+				binSizes[tile] = size + 1;
+			}
+		}
+		return op;
+	}
+	
+	/**
+	 * Fills the tiles with the binned ops and empties the bins.
+	 */
+	private void flush() {
+		if (opCount == 0)
+			return;
+		if (tilesX * tilesY == 1 || opCount < 4)
+			fillTiles(0, tilesX * tilesY);
+		else
+			pool.invoke(new TileTask(0, tilesX * tilesY));
+		rasterized += opCount;
+		Arrays.fill(opSources, 0, opCount, null);
+		opCount = 0;
+	}
+	
+	@SuppressWarnings("serial")
+	private final class TileTask extends RecursiveAction {
+		
+		private final int from, to;
+		
+		TileTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected void compute() {
+			if (to - from <= 2) {
+				fillTiles(from, to);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new TileTask(from, middle), new TileTask(middle, to));
+		}
+		
+	}
+	
+	private void fillTiles(int from, int to) {
+		for (int tile = from; tile < to; tile++) {
+			int size = binSizes[tile];
+			if (size == 0)
+				continue;
+			int tx0 = (tile % tilesX) * TILE_SIZE, ty0 = (tile / tilesX) * TILE_SIZE;
+			int tx1 = Math.min(width, tx0 + TILE_SIZE), ty1 = Math.min(height, ty0 + TILE_SIZE);
+			int[] bin = bins[tile];
+			for (int i = 0; i < size; i++) {
+				int op = bin[i], b = op * 4;
+				int x0 = Math.max(tx0, opBounds[b]), y0 = Math.max(ty0, opBounds[b + 1]);
+				int x1 = Math.min(tx1, opBounds[b + 2]), y1 = Math.min(ty1, opBounds[b + 3]);
+				switch (opKinds[op]) {
+					case OP_RECT:
+						fillRect(opColors[op], x0, y0, x1, y1);
+						break;
+					case OP_ELLIPSE:
+						fillEllipse(op, x0, y0, x1, y1);
+						break;
+					case OP_TRIANGLE:
+						fillTriangle(op, x0, y0, x1, y1);
+						break;
+					case OP_IMAGE:
+						drawImage(op, x0, y0, x1, y1);
+						break;
+				}
+			}
+			binSizes[tile] = 0;
+		}
+	}
+	
+	private void fillRect(int color, int x0, int y0, int x1, int y1) {
+		for (int y = y0; y < y1; y++)
+			fillSpan(color, y * width, x0, x1);
+	}
+	
+	private void fillSpan(int color, int row, int x0, int x1) {
+		if (x0 >= x1)
+			return;
+		if ((color >>> 24) == 255) {
+			Arrays.fill(pixels, row + x0, row + x1, color);
+		} else {
+			for (int i = row + x0; i < row + x1; i++)
+				pixels[i] = blend(color, pixels[i]);
+		}
+	}
+	
+	private void fillEllipse(int op, int x0, int y0, int x1, int y1) {
+		float[] c = opCoords;
+		int o = op * 8;
+		float rx = (c[o + 2] - c[o]) * 0.5f, ry = (c[o + 3] - c[o + 1]) * 0.5f;
+		float cx = c[o] + rx, cy = c[o + 1] + ry;
+		for (int y = y0; y < y1; y++) {
+			float dy = (y + 0.5f - cy) / ry;
+			float t = 1 - dy * dy;
+			if (t < 0)
+				continue;
+			float half = rx * (float) Math.sqrt(t);
+			int s = Math.max(x0, (int) Math.ceil(cx - half - 0.5f)), e = Math.min(x1, (int) Math.ceil(cx + half - 0.5f));
+			fillSpan(opColors[op], y * width, s, e);
+		}
+	}
+	
+	private void fillTriangle(int op, int x0, int y0, int x1, int y1) {
+		float[] c = opCoords;
+		int o = op * 8;
+		for (int y = y0; y < y1; y++) {
+			float yc = y + 0.5f;
+			float left = Float.POSITIVE_INFINITY, right = Float.NEGATIVE_INFINITY;
+			for (int v = 0; v < 3; v++) {
+				float ax = c[o + v * 2], ay = c[o + v * 2 + 1];
+				int n = v == 2 ? 0 : v + 1;
+				float bx = c[o + n * 2], by = c[o + n * 2 + 1];
+				// Half-open in y, so rows on a shared vertex are not filled twice
+				if ((ay <= yc && yc < by) || (by <= yc && yc < ay)) {
+					float x = ax + (yc - ay) * (bx - ax) / (by - ay);
+					left = Math.min(left, x);
+					right = Math.max(right, x);
+				}
+			}
+			if (left <= right) {
+				int s = Math.max(x0, (int) Math.ceil(left - 0.5f)), e = Math.min(x1, (int) Math.ceil(right - 0.5f));
+				fillSpan(opColors[op], y * width, s, e);
+			}
+		}
+	}
+	
+	private void drawImage(int op, int x0, int y0, int x1, int y1) {
+		float[] c = opCoords;
+		int o = op * 8;
+		Source source = opSources[op];
+		float dx0 = c[o], dy0 = c[o + 1];
+		int u0 = (int) c[o + 4], v0 = (int) c[o + 5], uw = (int) c[o + 6], vh = (int) c[o + 7];
+		float su = uw / (c[o + 2] - dx0), sv = vh / (c[o + 3] - dy0);
+		int[] data = source.data;
+		for (int y = y0; y < y1; y++) {
+			int v = Math.min(vh - 1, (int) ((y + 0.5f - dy0) * sv));
+			int srcRow = (v0 + v) * source.width + u0;
+			int row = y * width;
+			for (int x = x0; x < x1; x++) {
+				int u = Math.min(uw - 1, (int) ((x + 0.5f - dx0) * su));
+				int p = data[srcRow + u];
+				if (source.type == BufferedImage.TYPE_INT_RGB)
+					p |= 0xff000000;
+				else if (source.type == BufferedImage.TYPE_INT_ARGB)
+					p = premultiply(p);
+				int a = p >>> 24;
+				if (a == 255)
+					pixels[row + x] = p;
+				else if (a != 0)
+					pixels[row + x] = blend(p, pixels[row + x]);
+			}
+		}
+	}
+	
+	/**
+	 * Source over of two premultiplied colors, dividing by 255 with rounding two channels at a time.
+	 */
+	private static int blend(int src, int dst) {
+		int ia = 255 - (src >>> 24);
+		int rb = (dst & 0x00ff00ff) * ia + 0x00800080;
+		int ag = ((dst >>> 8) & 0x00ff00ff) * ia + 0x00800080;
+		rb = ((rb + ((rb >>> 8) & 0x00ff00ff)) >>> 8) & 0x00ff00ff;
+		ag = (ag + ((ag >>> 8) & 0x00ff00ff)) & 0xff00ff00;
+		return src + (rb | ag);
+	}
+	
+	private static int premultiply(int argb) {
+		int a = argb >>> 24;
+		if (a == 255)
+			return argb;
+		if (a == 0)
+			return 0;
+		int r = (((argb >> 16) & 0xff) * a + 127) / 255;
+		int g = (((argb >> 8) & 0xff) * a + 127) / 255;
+		int b = ((argb & 0xff) * a + 127) / 255;
+		return (a << 24) | (r << 16) | (g << 8) | b;
+	}
+	
+	private Source source(Image image) {
+		int width = image.getWidth(null), height = image.getHeight(null);
+		if (width <= 0 || height <= 0)
+			return null;
+		Source source = sources.get(image);
+		if (source == null || source.width != width || source.height != height) {
+			source = new Source(image, width, height);
+			sources.put(image, source);
+		}
+		return source;
+	}
+	
+	/**
+	 * Private copy of the pixels of an image. The image is never referenced, so it can still be collected from the weak cache.
+	 */
+	private static final class Source {
+		
+		final int[] data;
+		final int width, height, type;
+		// Copy that images without int pixels are drawn into, null for images that are read through their raster
+		final BufferedImage copy;
+		
+		// Region of the image copied in the current frame
+		int frame = -1, x0, y0, x1, y1;
+		int[] row;
+		
+		Source(Image image, int width, int height) {
+			this.width = width;
+			this.height = height;
+			if (isIntImage(image)) {
+				data = new int[width * height];
+				type = ((BufferedImage) image).getType();
+				copy = null;
+			} else {
+				// The copy is private, so taking its array does not keep any image of the game from being accelerated
+				copy = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+				data = ((DataBufferInt) copy.getRaster().getDataBuffer()).getData();
+				type = BufferedImage.TYPE_INT_ARGB_PRE;
+			}
+		}
+		
+		private static boolean isIntImage(Image image) {
+			if (!(image instanceof BufferedImage))
+				return false;
+			int type = ((BufferedImage) image).getType();
+			WritableRaster raster = ((BufferedImage) image).getRaster();
+			return (type == BufferedImage.TYPE_INT_ARGB_PRE || type == BufferedImage.TYPE_INT_ARGB || type == BufferedImage.TYPE_INT_RGB)
+					&& raster.getDataBuffer() instanceof DataBufferInt && raster.getSampleModel() instanceof SinglePixelPackedSampleModel;
+		}
+		
+		/**
+		 * Makes sure the given region of the image is copied in this frame. Images only change between frames, so a region is copied once.
+		 */
+		void load(Image image, int frame, int x, int y, int w, int h) {
+			if (copy != null) {
+				if (this.frame != frame) {
+					this.frame = frame;
+					Graphics2D g = copy.createGraphics();
+					g.setComposite(AlphaComposite.Src);
+					g.drawImage(image, 0, 0, null);
+					g.dispose();
+				}
+				return;
+			}
+			int left = Math.max(0, x), top = Math.max(0, y), right = Math.min(width, x + w), bottom = Math.min(height, y + h);
+			if (left >= right || top >= bottom)
+				return;
+			if (this.frame != frame) {
+				this.frame = frame;
+			} else {
+				if (left >= x0 && top >= y0 && right <= x1 && bottom <= y1)
+					return;
+				// Grows the copied region, so scattered regions of an atlas are copied a few times at most
+				left = Math.min(left, x0);
+				top = Math.min(top, y0);
+				right = Math.max(right, x1);
+				bottom = Math.max(bottom, y1);
+			}
+			x0 = left;
+			y0 = top;
+			x1 = right;
+			y1 = bottom;
+			WritableRaster raster = ((BufferedImage) image).getRaster();
+			int span = right - left;
+			if (row == null || row.length < span)
+				row = new int[width];
+			// Reading through the raster keeps the image tracked by Java2D, unlike taking its DataBufferInt array
+			for (int r = top; r < bottom; r++) {
+				raster.getDataElements(left, r, span, 1, row);
+				System.arraycopy(row, 0, data, r * width + left, span);
+			}
+		}
+		
+	}
+	
+	/**
+	 * Returns the command buffer that graphics are recorded into.
+	 * @return CommandBuffer
+	 */
+	public CommandBuffer getCommands() {
+		return commands;
+	}
+	
+	/**
+	 * Returns the back buffer, or null before the first frame.
+	 * @return BufferedImage
+	 */
+	public BufferedImage getBackBuffer() {
+		return backBuffer;
+	}
+	
+	/**
+	 * Returns the amount of ops (rectangles, circles, triangles and images) rasterized in the last frame.
+	 * @return <STRONG>int</STRONG> ops
+	 */
+	public int getRasterizedCount() {
+		return rasterized;
+	}
+	
+	/**
+	 * Returns the amount of commands drawn with Java2D in the last frame.
+	 * @return <STRONG>int</STRONG> commands
+	 */
+	public int getFallbackCount() {
+		return fallbacks;
+	}
+	
+}
@@ -0,0 +1,264 @@
+package com.sjgl.graphics;
+
+import java.awt.Graphics2D;
+import java.awt.geom.Path2D;
+import java.util.Arrays;
+
+/**
+ * <strong>Reusable buffer of triangles or quads that are drawn together.</strong>
+ *
+ * <p>Vertices are stored as float coordinates in a growing array, and primitives are drawn in batches of {@link Path2D}s, so thousands
+ * of triangles or quads cost a few {@code Graphics2D.fill(Shape)} calls instead of one {@code fillPolygon(...)} and two arrays each.
+ * Clearing the buffer keeps its arrays and paths, so refilling it every frame doesn't allocate once it has grown to its largest size.
+ *
+ * <pre>
+ * VertexBuffer particles = new VertexBuffer(VertexBuffer.QUADS, 1024);
+ * ...
+ * particles.clear();
+ * for (Particle p : list)
+ *     particles.rect(p.x, p.y, 2, 2);
+ * Renderer.SJGL_Vertices(particles);
+ * </pre>
+ *
+ * <p>Primitives are all turned the same way when they are added, so overlapping primitives always fill their union.
+ *
+ * @author yiwuen
+ *
+ * @see Renderer
+ *
+ */
+public final class VertexBuffer {
+	
+	/**
+	 * Primitive modes: every 3 or every 4 vertices form a primitive.
+	 */
+	public static final int TRIANGLES = 3, QUADS = 4;
+	
+	private final int mode;
+	private float[] coords;
+	private int vertexCount;
+	
+	// Bounding box of all vertices, used to cull the whole buffer
+	float minX, minY, maxX, maxY;
+	
+	// Rasterizing one path costs more than linear time in its edges, so primitives are filled in small batches
+	private static final int BATCH_SIZE = 32;
+	
+	private Path2D.Float[] batches = new Path2D.Float[0];
+	private int batchCount;
+	private boolean dirty;
+	
+	/**
+	 * Creates an empty vertex buffer.
+	 * @param mode {@code VertexBuffer.TRIANGLES} or {@code VertexBuffer.QUADS}
+	 * @param primitives Amount of primitives to make room for
+	 */
+	public VertexBuffer(int mode, int primitives) {
+		if (mode != TRIANGLES && mode != QUADS)
+			throw new IllegalArgumentException("Unknown primitive mode: " + mode);
+		this.mode = mode;
+		coords = new float[Math.max(1, primitives) * mode * 2];
+	}
+	
+	/**
+	 * Adds a triangle. Only valid for a {@code TRIANGLES} buffer.
+	 * @param x1 X position of the first vertex
+	 * @param y1 Y position of the first vertex
+	 * @param x2 X position of the second vertex
+	 * @param y2 Y position of the second vertex
+	 * @param x3 X position of the third vertex
+	 * @param y3 Y position of the third vertex
+	 */
+	public void triangle(float x1, float y1, float x2, float y2, float x3, float y3) {
+		checkMode(TRIANGLES);
+		int i = reserve();
+		if ((x2 - x1) * (y3 - y1) - (x3 - x1) * (y2 - y1) < 0) {
+			set(i, x1, y1, x3, y3);
+			set(i + 4, x2, y2);
+		} else {
+			set(i, x1, y1, x2, y2);
+			set(i + 4, x3, y3);
+		}
+		include(i);
+	}
+	
+	/**
+	 * Adds a quad. Only valid for a {@code QUADS} buffer.
+	 * @param x1 X position of the first vertex
+	 * @param y1 Y position of the first vertex
+	 * @param x2 X position of the second vertex
+	 * @param y2 Y position of the second vertex
+	 * @param x3 X position of the third vertex
+	 * @param y3 Y position of the third vertex
+	 * @param x4 X position of the fourth vertex
+	 * @param y4 Y position of the fourth vertex
+	 */
+	public void quad(float x1, float y1, float x2, float y2, float x3, float y3, float x4, float y4) {
+		checkMode(QUADS);
+		int i = reserve();
+		// Twice the signed area (shoelace formula)
+		float area = (x1 * y2 - x2 * y1) + (x2 * y3 - x3 * y2) + (x3 * y4 - x4 * y3) + (x4 * y1 - x1 * y4);
+		if (area < 0) {
+			set(i, x1, y1, x4, y4);
+			set(i + 4, x3, y3, x2, y2);
+		} else {
+			set(i, x1, y1, x2, y2);
+			set(i + 4, x3, y3, x4, y4);
+		}
+		include(i);
+	}
+	
+	/**
+	 * Adds an axis-aligned rectangle as a quad. Only valid for a {@code QUADS} buffer.
+	 * @param x X position
+	 * @param y Y position
+	 * @param w Width
+	 * @param h Height
+	 */
+	public void rect(float x, float y, float w, float h) {
+		quad(x, y, x + w, y, x + w, y + h, x, y + h);
+	}
+	
+	/**
+	 * Adds a primitive from int arrays, like {@code Renderer.SJGL_Triangle(int[], int[])} and {@code Renderer.SJGL_Quad(int[], int[])}.
+	 * @param x X positions (3 for triangles, 4 for quads)
+	 * @param y Y positions (3 for triangles, 4 for quads)
+	 */
+	public void polygon(int[] x, int[] y) {
+		if (mode == TRIANGLES)
+			triangle(x[0], y[0], x[1], y[1], x[2], y[2]);
+		else
+			quad(x[0], y[0], x[1], y[1], x[2], y[2], x[3], y[3]);
+	}
+	
+	private void checkMode(int expected) {
+		if (mode != expected)
+			throw new IllegalStateException("This vertex buffer holds " + (mode == TRIANGLES ? "triangles" : "quads"));
+	}
+	
+	private int reserve() {
+		int i = vertexCount * 2;
+		if (i + mode * 2 > coords.length)
+			coords = Arrays.copyOf(coords, Math.max(coords.length * 2, i + mode * 2));
+		vertexCount += mode;
+		dirty = true;
+		return i;
+	}
+	
+	private void include(int i) {
+		if (i == 0) {
+			minX = maxX = coords[0];
+			minY = maxY = coords[1];
+		}
+		for (int v = i; v < i + mode * 2; v += 2) {
+			minX = Math.min(minX, coords[v]);
+			maxX = Math.max(maxX, coords[v]);
+			minY = Math.min(minY, coords[v + 1]);
+			maxY = Math.max(maxY, coords[v + 1]);
+		}
+	}
+	
+	private void set(int i, float x1, float y1, float x2, float y2) {
+		coords[i] = x1;
+		coords[i + 1] = y1;
+		coords[i + 2] = x2;
+		coords[i + 3] = y2;
+	}
+	
+	private void set(int i, float x, float y) {
+		coords[i] = x;
+		coords[i + 1] = y;
+	}
+	
+	/**
+	 * Removes all primitives. The buffer keeps its memory.
+	 */
+	public void clear() {
+		vertexCount = 0;
+		dirty = true;
+	}
+	
+	private void build() {
+		int primitives = getPrimitiveCount();
+		batchCount = (primitives + BATCH_SIZE - 1) / BATCH_SIZE;
+		if (batchCount > batches.length) {
+			int old = batches.length;
+			batches = Arrays.copyOf(batches, Math.max(batchCount, old * 2));
+			for (int b = old; b < batches.length; b++)
+				batches[b] = new Path2D.Float(Path2D.WIND_NON_ZERO, BATCH_SIZE * (mode + 1));
+		}
+		for (int b = 0; b < batchCount; b++) {
+			Path2D.Float path = batches[b];
+			path.reset();
+			int end = Math.min(primitives, (b + 1) * BATCH_SIZE) * mode * 2;
+			for (int i = b * BATCH_SIZE * mode * 2; i < end; i += mode * 2) {
+				path.moveTo(coords[i], coords[i + 1]);
+				for (int v = 2; v < mode * 2; v += 2)
+					path.lineTo(coords[i + v], coords[i + v + 1]);
+				path.closePath();
+			}
+		}
+		dirty = false;
+	}
+	
+	/**
+	 * Fills or outlines all primitives with the current color of the graphics.
+	 * @param g Graphics to draw into
+	 * @param fill Color-filled or outline
+	 */
+	public void draw(Graphics2D g, boolean fill) {
+		if (dirty)
+			build();
+		for (int b = 0; b < batchCount; b++) {
+			if (fill)
+				g.fill(batches[b]);
+			else
+				g.draw(batches[b]);
+		}
+	}
+	
+	/**
+	 * Returns the x position of a vertex.
+	 * @param vertex Index of the vertex
+	 *
+	 * @return <STRONG>float</STRONG> x position
+	 */
+	public float getX(int vertex) {
+		return coords[vertex * 2];
+	}
+	
+	/**
+	 * Returns the y position of a vertex.
+	 * @param vertex Index of the vertex
+	 *
+	 * @return <STRONG>float</STRONG> y position
+	 */
+	public float getY(int vertex) {
+		return coords[vertex * 2 + 1];
+	}
+	
+	/**
+	 * Returns the amount of vertices.
+	 * @return <STRONG>int</STRONG> vertices
+	 */
+	public int getVertexCount() {
+		return vertexCount;
+	}
+	
+	/**
+	 * Returns the amount of triangles or quads.
+	 * @return <STRONG>int</STRONG> primitives
+	 */
+	public int getPrimitiveCount() {
+		return vertexCount / mode;
+	}
+	
+	/**
+	 * Returns the primitive mode.
+	 * @return <STRONG>int</STRONG> {@code VertexBuffer.TRIANGLES} or {@code VertexBuffer.QUADS}
+	 */
+	public int getMode() {
+		return mode;
+	}
+	
+}
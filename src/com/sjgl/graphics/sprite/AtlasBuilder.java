@@ -0,0 +1,380 @@
+package com.sjgl.graphics.sprite;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import com.sjgl.utils.ImageUtils;
+import com.sjgl.utils.PathUtils;
+
+/**
+ * <strong>Packs many small images into a few large sheets and builds a {@link TextureAtlas} out of them.</strong>
+ *
+ * <p>Each image loaded on its own is a separate texture for Java2D, and {@link SpriteBatch} can only group draws of the same image.
+ * Packed into shared sheets, the images of a level or of the UI are drawn together and kept in video memory as a few large images
+ * instead of hundreds of small ones.
+ *
+ * <p>Images are placed largest first with the MaxRects algorithm (best short side fit), and a new sheet is started when one is full.
+ * Transparent borders are trimmed by default; the atlas remembers where the trimmed pixels were so frames are still drawn at the same
+ * place. Padding leaves transparent pixels between images so scaled and filtered draws don't pick up their neighbours.
+ *
+ * <pre>
+ * AtlasBuilder builder = new AtlasBuilder();
+ * builder.add("player", "/player.png");
+ * builder.add("coin", "/coin.png");
+ * TextureAtlas atlas = builder.build();
+ * ...
+ * atlas.render(coin, x, y);
+ * </pre>
+ *
+ * <p>To pack ahead of time instead of at startup, save the atlas with {@code TextureAtlas.write(File, String)} and read it with
+ * {@code TextureAtlas.load(String)}, or with {@code TextureAtlas.writeBinary(File)} to skip decoding the sheets at startup.
+ * {@link #main(String[])} does the packing from the command line.
+ *
+ * @author yiwuen
+ *
+ * @see TextureAtlas
+ *
+ */
+public class AtlasBuilder {
+	
+	private final List<String> names = new ArrayList<>();
+	private final List<BufferedImage> images = new ArrayList<>();
+	
+	private int maxSize = 2048;
+	private int padding = 1;
+	private boolean trim = true;
+	
+	/**
+	 * Adds an image. Frames of the atlas are numbered in the order the images were added.
+	 * @param name Name of the frame, without whitespace
+	 * @param image Image
+	 */
+	public void add(String name, BufferedImage image) {
+		if (name.isEmpty() || name.chars().anyMatch(Character::isWhitespace))
+			throw new IllegalArgumentException("Invalid frame name: \"" + name + "\"");
+		if (names.contains(name))
+			throw new IllegalArgumentException("Duplicate frame name: " + name);
+		names.add(name);
+		images.add(image);
+	}
+	
+	/**
+	 * Adds an image loaded from the classpath like {@code PathUtils.GetImage(String)}.
+	 * @param name Name of the frame, without whitespace
+	 * @param path Path to the image
+	 */
+	public void add(String name, String path) {
+		BufferedImage image = PathUtils.GetImage(path);
+		if (image == null) {
+			System.err.println("[ATLAS ERROR] Image not found: " + path);
+			return;
+		}
+		add(name, image);
+	}
+	
+	/**
+	 * Sets the largest width and height of a sheet. By default, it is 2048.
+	 * @param maxSize Maximum sheet size in pixels
+	 */
+	public void setMaxSize(int maxSize) {
+		if (maxSize <= 0)
+			throw new IllegalArgumentException("Sheet size must be positive: " + maxSize);
+		this.maxSize = maxSize;
+	}
+	
+	/**
+	 * Sets how many transparent pixels are left between images. By default, it is 1.
+	 * @param padding Padding in pixels
+	 */
+	public void setPadding(int padding) {
+		if (padding < 0)
+			throw new IllegalArgumentException("Padding can't be negative: " + padding);
+		this.padding = padding;
+	}
+	
+	/**
+	 * Sets whether or not fully transparent rows and columns at the borders of the images are left out of the sheets. By default, it is
+	 * true.
+	 * @param trim Trim transparent borders
+	 */
+	public void setTrim(boolean trim) {
+		this.trim = trim;
+	}
+	
+	/**
+	 * Returns the amount of images added.
+	 * @return <STRONG>int</STRONG> images
+	 */
+	public int size() {
+		return images.size();
+	}
+	
+	/**
+	 * Packs the images into sheets.
+	 * @return {@link TextureAtlas} atlas
+	 */
+	public TextureAtlas build() {
+		int count = images.size();
+		// For every image: sheet, x, y, width and height in the sheet, x and y offset in the image, image width and height
+		int[] packed = new int[count * 9];
+		Integer[] order = new Integer[count];
+		boolean opaque = true;
+		for (int i = 0; i < count; i++) {
+			BufferedImage image = images.get(i);
+			int p = i * 9;
+			// The trimmed region is measured into the offset and size slots, then its size is moved to the sheet region
+			bounds(image, packed, p + 5);
+			packed[p + 3] = packed[p + 7];
+			packed[p + 4] = packed[p + 8];
+			packed[p + 7] = image.getWidth();
+			packed[p + 8] = image.getHeight();
+			if (packed[p + 3] > maxSize || packed[p + 4] > maxSize)
+				throw new IllegalArgumentException("Image is larger than the maximum sheet size (" + maxSize + "): " + names.get(i));
+			opaque &= image.getTransparency() == Transparency.OPAQUE;
+			order[i] = i;
+		}
+		// Largest first: big images placed late would no longer find room
+		Arrays.sort(order, (a, b) -> {
+			int wa = packed[a * 9 + 3], ha = packed[a * 9 + 4], wb = packed[b * 9 + 3], hb = packed[b * 9 + 4];
+			int side = Integer.compare(Math.max(wb, hb), Math.max(wa, ha));
+			return side != 0 ? side : Integer.compare(wb * hb, wa * ha);
+		});
+		
+		List<Bin> bins = new ArrayList<>();
+		for (int i : order) {
+			int p = i * 9;
+			// The bin is larger by the padding so that images can touch the right and bottom edges of the sheet
+			int w = packed[p + 3] + padding, h = packed[p + 4] + padding;
+			Rectangle placed = null;
+			int sheet = 0;
+			for (; sheet < bins.size() && placed == null; sheet++)
+				placed = bins.get(sheet).insert(w, h);
+			if (placed == null) {
+				bins.add(new Bin(maxSize + padding));
+				placed = bins.get(sheet++).insert(w, h);
+			}
+			packed[p] = sheet - 1;
+			packed[p + 1] = placed.x;
+			packed[p + 2] = placed.y;
+		}
+		
+		BufferedImage[] sheets = new BufferedImage[bins.size()];
+		Graphics2D[] graphics = new Graphics2D[bins.size()];
+		for (int s = 0; s < sheets.length; s++) {
+			Bin bin = bins.get(s);
+			sheets[s] = ImageUtils.CreateCompatibleImage(Math.max(1, bin.width - padding), Math.max(1, bin.height - padding),
+					opaque ? Transparency.OPAQUE : Transparency.TRANSLUCENT);
+			graphics[s] = sheets[s].createGraphics();
+			graphics[s].setComposite(AlphaComposite.Src);
+		}
+		for (int i = 0; i < count; i++) {
+			int p = i * 9;
+			int x = packed[p + 1], y = packed[p + 2], w = packed[p + 3], h = packed[p + 4], sx = packed[p + 5], sy = packed[p + 6];
+			graphics[packed[p]].drawImage(images.get(i), x, y, x + w, y + h, sx, sy, sx + w, sy + h, null);
+		}
+		for (Graphics2D g : graphics)
+			g.dispose();
+		return new TextureAtlas(names.toArray(new String[0]), sheets, packed);
+	}
+	
+	/**
+	 * Writes the x, y, width and height of the part of the image that is kept into {@code out} at {@code o}.
+	 */
+	private void bounds(BufferedImage image, int[] out, int o) {
+		int width = image.getWidth(), height = image.getHeight();
+		out[o] = 0;
+		out[o + 1] = 0;
+		out[o + 2] = width;
+		out[o + 3] = height;
+		if (!trim || image.getTransparency() == Transparency.OPAQUE)
+			return;
+			
+		int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+		int top = 0, bottom = height - 1, left = width - 1, right = 0;
+		while (top < height && transparentRow(pixels, width, top))
+			top++;
+		if (top == height) {
+			// Nothing visible, a single transparent pixel still gives the frame a region
+			out[o + 2] = 1;
+			out[o + 3] = 1;
+			return;
+		}
+		while (transparentRow(pixels, width, bottom))
+			bottom--;
+		for (int y = top; y <= bottom; y++) {
+			int row = y * width;
+			for (int x = 0; x < left; x++) {
+				if ((pixels[row + x] >>> 24) != 0) {
+					left = x;
+					break;
+				}
+			}
+			for (int x = width - 1; x > right; x--) {
+				if ((pixels[row + x] >>> 24) != 0) {
+					right = x;
+					break;
+				}
+			}
+		}
+		right = Math.max(right, left);
+		out[o] = left;
+		out[o + 1] = top;
+		out[o + 2] = right - left + 1;
+		out[o + 3] = bottom - top + 1;
+	}
+	
+	private static boolean transparentRow(int[] pixels, int width, int y) {
+		for (int i = y * width, end = i + width; i < end; i++) {
+			if ((pixels[i] >>> 24) != 0)
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * A sheet being packed with the MaxRects algorithm: the free space is kept as the list of the largest empty rectangles, which may
+	 * overlap.
+	 */
+	private static final class Bin {
+		
+		private final List<Rectangle> free = new ArrayList<>();
+		private final List<Rectangle> split = new ArrayList<>();
+		int width, height;
+		
+		Bin(int size) {
+			free.add(new Rectangle(0, 0, size, size));
+		}
+		
+		Rectangle insert(int w, int h) {
+			Rectangle best = null;
+			int bestShort = Integer.MAX_VALUE, bestLong = Integer.MAX_VALUE;
+			for (Rectangle r : free) {
+				if (r.width < w || r.height < h)
+					continue;
+				int shortSide = Math.min(r.width - w, r.height - h), longSide = Math.max(r.width - w, r.height - h);
+				if (shortSide < bestShort || (shortSide == bestShort && longSide < bestLong)) {
+					best = r;
+					bestShort = shortSide;
+					bestLong = longSide;
+				}
+			}
+			if (best == null)
+				return null;
+				
+			Rectangle placed = new Rectangle(best.x, best.y, w, h);
+			for (int i = free.size() - 1; i >= 0; i--) {
+				Rectangle r = free.get(i);
+				if (!r.intersects(placed))
+					continue;
+				free.remove(i);
+				if (placed.x > r.x)
+					split.add(new Rectangle(r.x, r.y, placed.x - r.x, r.height));
+				if (placed.x + w < r.x + r.width)
+					split.add(new Rectangle(placed.x + w, r.y, r.x + r.width - placed.x - w, r.height));
+				if (placed.y > r.y)
+					split.add(new Rectangle(r.x, r.y, r.width, placed.y - r.y));
+				if (placed.y + h < r.y + r.height)
+					split.add(new Rectangle(r.x, placed.y + h, r.width, r.y + r.height - placed.y - h));
+			}
+			free.addAll(split);
+			split.clear();
+			prune();
+			
+			width = Math.max(width, placed.x + w);
+			height = Math.max(height, placed.y + h);
+			return placed;
+		}
+		
+		/**
+		 * Removes free rectangles that are inside of another one.
+		 */
+		private void prune() {
+			for (int i = free.size() - 1; i >= 0; i--) {
+				Rectangle r = free.get(i);
+				for (int j = 0; j < free.size(); j++) {
+					if (j != i && free.get(j).contains(r)) {
+						free.remove(i);
+						break;
+					}
+				}
+			}
+		}
+		
+	}
+	
+	/**
+	 * Packs image files into an atlas ahead of time and writes it with {@code TextureAtlas.write(File, String)}, or with
+	 * {@code TextureAtlas.writeBinary(File)} as {@code atlas-name.sjga} if {@code -binary} is given. Frames are named after the files,
+	 * without the extension.
+	 *
+	 * <pre>
+	 * java com.sjgl.graphics.sprite.AtlasBuilder [-padding n] [-maxsize n] [-notrim] [-binary] output-directory atlas-name images...
+	 * </pre>
+	 *
+	 * @param args Options, output directory, atlas name and image files
+	 */
+	public static void main(String[] args) {
+		AtlasBuilder builder = new AtlasBuilder();
+		boolean binary = false;
+		int a = 0;
+		try {
+			for (; a < args.length && args[a].startsWith("-"); a++) {
+				switch (args[a]) {
+					case "-padding":
+						builder.setPadding(Integer.parseInt(args[++a]));
+						break;
+					case "-maxsize":
+						builder.setMaxSize(Integer.parseInt(args[++a]));
+						break;
+					case "-notrim":
+						builder.setTrim(false);
+						break;
+					case "-binary":
+						binary = true;
+						break;
+					default:
+						throw new IllegalArgumentException("Unknown option " + args[a]);
+				}
+			}
+			if (args.length - a < 3)
+				throw new IllegalArgumentException("Missing arguments");
+		} catch (RuntimeException e) {
+			System.err.println("[ATLAS ERROR] " + e.getMessage());
+			System.err.println("Usage: AtlasBuilder [-padding n] [-maxsize n] [-notrim] [-binary] output-directory atlas-name images...");
+			System.exit(1);
+		}
+		
+		File directory = new File(args[a]);
+		String atlasName = args[a + 1];
+		try {
+			for (int i = a + 2; i < args.length; i++) {
+				File file = new File(args[i]);
+				BufferedImage image = ImageIO.read(file);
+				if (image == null)
+					throw new IOException("Not an image: " + file);
+				String name = file.getName();
+				builder.add(name.lastIndexOf('.') > 0 ? name.substring(0, name.lastIndexOf('.')) : name, image);
+			}
+			TextureAtlas atlas = builder.build();
+			if (binary)
+				atlas.writeBinary(new File(directory, atlasName + ".sjga"));
+			else
+				atlas.write(directory, atlasName);
+			System.out.println("Packed " + atlas.getFrameCount() + " images into " + atlas.getSheetCount() + " sheet(s) in " + directory);
+		} catch (IOException | RuntimeException e) {
+			System.err.println("[ATLAS ERROR] " + e.getMessage());
+			System.exit(1);
+		}
+	}
+	
+}
@@ -0,0 +1,190 @@
+package com.sjgl.graphics.sprite;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import com.sjgl.utils.ImageUtils;
+
+/**
+ * Reads and writes the binary atlas format, which stores the sheets as raw pixels so they are copied into images without decoding.
+ *
+ * <p>All values are little-endian:
+ * <pre>
+ * int    magic "SJGA", version, sheet count, frame count
+ * sheet  int width, height, flags (1 = opaque), 0; long offset of the pixels in the file
+ * frame  int sheet, x, y, width, height, offset x, offset y, original width, original height
+ * name   unsigned short length, UTF-8 bytes, for every frame
+ * pixels width * height ints for every sheet, premultiplied ARGB or RGB if opaque, rows from the top, 4 byte aligned
+ * </pre>
+ *
+ * @author yiwuen
+ *
+ * @see TextureAtlas
+ *
+ */
+final class AtlasFile {
+	
+	private static final int MAGIC = 'S' | 'J' << 8 | 'G' << 16 | 'A' << 24;
+	private static final int VERSION = 1;
+	private static final int OPAQUE = 1;
+	
+	// Pixels are copied through a buffer of at most this many ints, so loading a sheet doesn't need a second copy of it in memory
+	private static final int CHUNK = 1 << 16;
+	
+	private AtlasFile() {
+	}
+	
+	static void write(TextureAtlas atlas, WritableByteChannel out) throws IOException {
+		int sheetCount = atlas.getSheetCount(), frameCount = atlas.getFrameCount();
+		byte[][] names = new byte[frameCount][];
+		int size = 16 + sheetCount * 24 + frameCount * 36;
+		for (int i = 0; i < frameCount; i++) {
+			names[i] = atlas.getName(i).getBytes(StandardCharsets.UTF_8);
+			if (names[i].length > 0xffff)
+				throw new IOException("Frame name is too long: " + atlas.getName(i));
+			size += 2 + names[i].length;
+		}
+		size = (size + 3) & ~3;
+		
+		ByteBuffer header = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION).putInt(sheetCount).putInt(frameCount);
+		long offset = size;
+		for (int s = 0; s < sheetCount; s++) {
+			BufferedImage image = atlas.getSheet(s).getSheetImage();
+			header.putInt(image.getWidth()).putInt(image.getHeight());
+			header.putInt(image.getTransparency() == Transparency.OPAQUE ? OPAQUE : 0).putInt(0);
+			header.putLong(offset);
+			offset += (long) image.getWidth() * image.getHeight() * 4;
+		}
+		for (int i = 0; i < frameCount; i++) {
+			Spritesheet sheet = atlas.getSheetOf(i);
+			int f = atlas.getSheetFrame(i);
+			header.putInt(atlas.getSheetIndex(i)).putInt(sheet.getFrameX(f)).putInt(sheet.getFrameY(f));
+			header.putInt(sheet.getFrameWidth(f)).putInt(sheet.getFrameHeight(f));
+			header.putInt(atlas.getOffsetX(i)).putInt(atlas.getOffsetY(i)).putInt(atlas.getWidth(i)).putInt(atlas.getHeight(i));
+		}
+		for (byte[] name : names)
+			header.putShort((short) name.length).put(name);
+		header.position(size).flip();
+		writeFully(out, header);
+		
+		ByteBuffer chunk = ByteBuffer.allocate(CHUNK * 4).order(ByteOrder.LITTLE_ENDIAN);
+		int[] rows = null;
+		for (int s = 0; s < sheetCount; s++) {
+			BufferedImage image = raw(atlas.getSheet(s).getSheetImage());
+			int width = image.getWidth(), height = image.getHeight();
+			int step = Math.max(1, CHUNK / width);
+			for (int y = 0; y < height; y += step) {
+				int n = Math.min(step, height - y);
+				rows = (int[]) image.getRaster().getDataElements(0, y, width, n, rows != null && rows.length >= width * n ? rows : null);
+				ByteBuffer bytes = width * n <= CHUNK ? chunk : ByteBuffer.allocate(width * n * 4).order(ByteOrder.LITTLE_ENDIAN);
+				bytes.clear();
+				bytes.asIntBuffer().put(rows, 0, width * n);
+				bytes.limit(width * n * 4);
+				writeFully(out, bytes);
+			}
+		}
+	}
+	
+	private static void writeFully(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining())
+			out.write(buffer);
+	}
+	
+	/**
+	 * Returns the image in the raw format of the file, {@code TYPE_INT_ARGB_PRE} or {@code TYPE_INT_RGB} if it is opaque.
+	 */
+	private static BufferedImage raw(BufferedImage image) {
+		int type = image.getTransparency() == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB_PRE;
+		if (image.getType() == type)
+			return image;
+		BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), type);
+		Graphics2D g = copy.createGraphics();
+		g.setComposite(AlphaComposite.Src);
+		g.drawImage(image, 0, 0, null);
+		g.dispose();
+		return copy;
+	}
+	
+	static TextureAtlas read(ByteBuffer buffer) throws IOException {
+		buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		buffer.position(0);
+		try {
+			if (buffer.getInt() != MAGIC)
+				throw new IOException("Not a binary atlas");
+			int version = buffer.getInt();
+			if (version != VERSION)
+				throw new IOException("Unsupported atlas version " + version);
+			int sheetCount = buffer.getInt(), frameCount = buffer.getInt();
+			if (sheetCount < 0 || frameCount < 0 || (long) sheetCount * 24 + (long) frameCount * 38 > buffer.remaining())
+				throw new IOException("Invalid atlas header");
+				
+			int[] sheets = new int[sheetCount * 3];
+			long[] offsets = new long[sheetCount];
+			for (int s = 0; s < sheetCount; s++) {
+				sheets[s * 3] = buffer.getInt();
+				sheets[s * 3 + 1] = buffer.getInt();
+				sheets[s * 3 + 2] = buffer.getInt();
+				buffer.getInt();
+				offsets[s] = buffer.getLong();
+				if (sheets[s * 3] <= 0 || sheets[s * 3 + 1] <= 0 || offsets[s] < 0
+						|| offsets[s] + (long) sheets[s * 3] * sheets[s * 3 + 1] * 4 > buffer.limit())
+					throw new IOException("Sheet " + s + " is out of the file");
+			}
+			int[] packed = new int[frameCount * 9];
+			buffer.asIntBuffer().get(packed);
+			buffer.position(buffer.position() + packed.length * 4);
+			String[] names = new String[frameCount];
+			byte[] bytes = new byte[256];
+			for (int i = 0; i < frameCount; i++) {
+				int length = buffer.getShort() & 0xffff;
+				if (bytes.length < length)
+					bytes = new byte[length];
+				buffer.get(bytes, 0, length);
+				names[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+				int p = i * 9, sheet = packed[p];
+				if (sheet < 0 || sheet >= sheetCount)
+					throw new IOException("Frame " + names[i] + " refers to a missing sheet");
+				String problem = TextureAtlas.checkFrame(packed, p, sheets[sheet * 3], sheets[sheet * 3 + 1]);
+				if (problem != null)
+					throw new IOException("Frame " + names[i] + " " + problem);
+			}
+			
+			BufferedImage[] images = new BufferedImage[sheetCount];
+			int[] rows = null;
+			for (int s = 0; s < sheetCount; s++) {
+				int width = sheets[s * 3], height = sheets[s * 3 + 1];
+				boolean opaque = (sheets[s * 3 + 2] & OPAQUE) != 0;
+				int type = opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB_PRE;
+				// The pixels can be copied as they are into a compatible image of the same format, otherwise it is converted after
+				BufferedImage image = ImageUtils.CreateCompatibleImage(width, height, opaque ? Transparency.OPAQUE : Transparency.TRANSLUCENT);
+				if (image.getType() != type)
+					image = new BufferedImage(width, height, type);
+					
+				buffer.position((int) offsets[s]);
+				IntBuffer pixels = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+				int step = Math.max(1, CHUNK / width);
+				if (rows == null || rows.length < Math.min(step, height) * width)
+					rows = new int[Math.min(step, height) * width];
+				for (int y = 0; y < height; y += step) {
+					int n = Math.min(step, height - y);
+					pixels.get(rows, 0, width * n);
+					image.getRaster().setDataElements(0, y, width, n, rows);
+				}
+				images[s] = ImageUtils.ToCompatibleImage(image);
+			}
+			return new TextureAtlas(names, images, packed);
+		} catch (RuntimeException e) {
+			throw new IOException("Invalid atlas: " + e, e);
+		}
+	}
+	
+}
@@ -1,8 +1,13 @@
 package com.sjgl.graphics.sprite;
 
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 
 import com.sjgl.Application;
+import com.sjgl.graphics.CommandBuffer;
+import com.sjgl.graphics.Renderer;
+import com.sjgl.utils.ImageUtils;
 import com.sjgl.utils.PathUtils;
 
 /**
@@ -15,10 +20,21 @@ import com.sjgl.utils.PathUtils;
  */
 
 public class Sprite {
+	
+	/**
+	 * Flip flags for {@code getFlipped(int)} and {@code render(int, int, int, int, int)}.
+	 */
+	public static final int FLIP_HORIZONTAL = 1, FLIP_VERTICAL = 2;
 
 	private BufferedImage sprite;
 	
 	private int x, y, width, height;
+	
+	// The sprite and its flipped variants by flip flags, shared by all of them and created the first time they are needed
+	private Sprite[] variants;
+	private int orientation;
+	
+	private static TransformCache transformCache;
 
 	/**
 	 * Creates a sprite based on the path given.
@@ -60,39 +76,96 @@ public class Sprite {
 	}
 
 	/**
-	 * Horizontally flips the sprite.
+	 * Horizontally flips the sprite. The flipped sprite is created once and returned again by later calls.
 	 * 
 	 * @return {@link Sprite} horizontally flipped sprite
 	 */
 	public Sprite getHorizontalFlipped() {
-		BufferedImage img = new BufferedImage(sprite.getWidth(), sprite.getHeight(), BufferedImage.TYPE_INT_ARGB);
-		for (int xx = sprite.getWidth() - 1; xx > 0; xx--) {
-			for (int yy = 0; yy < sprite.getHeight(); yy++) {
-				img.setRGB(sprite.getWidth() - xx, yy, sprite.getRGB(xx, yy));
-			}
-		}
-
-		return new Sprite(img);
+		return getFlipped(FLIP_HORIZONTAL);
 	}
 	
 	/**
-	 * Vertically flips the sprite.
+	 * Vertically flips the sprite. The flipped sprite is created once and returned again by later calls.
 	 * 
 	 * @return {@link Sprite} vertically flipped sprite
 	 */
 	public Sprite getVerticalFlipped() {
-		BufferedImage img = new BufferedImage(sprite.getWidth(), sprite.getHeight(), BufferedImage.TYPE_INT_ARGB);
-		for (int xx = 0; xx < sprite.getWidth(); xx++) {
-			for (int yy = sprite.getHeight() - 1; yy > 0; yy--) {
-				img.setRGB(xx, sprite.getHeight() - yy, sprite.getRGB(xx, yy));
+		return getFlipped(FLIP_VERTICAL);
+	}
+	
+	/**
+	 * Returns the sprite flipped horizontally and/or vertically. Each variant is created once, with one bulk copy of the pixels, and
+	 * returned again by later calls; flipping a flipped sprite back returns the original. Call {@code clearFlipped()} after changing the
+	 * pixels of the sprite.
+	 * 
+	 * @param flip {@code FLIP_HORIZONTAL} and/or {@code FLIP_VERTICAL}, or 0 for this sprite
+	 * @return {@link Sprite} flipped sprite
+	 */
+	public Sprite getFlipped(int flip) {
+		flip &= FLIP_HORIZONTAL | FLIP_VERTICAL;
+		if (flip == 0)
+			return this;
+		if (variants == null) {
+			variants = new Sprite[4];
+			variants[0] = this;
+		}
+		int target = orientation ^ flip;
+		Sprite variant = variants[target];
+		if (variant == null) {
+			variant = variants[target] = new Sprite(flip(sprite, flip));
+			variant.variants = variants;
+			variant.orientation = target;
+		}
+		return variant;
+	}
+	
+	private static BufferedImage flip(BufferedImage image, int flip) {
+		int w = image.getWidth(), h = image.getHeight();
+		BufferedImage img = ImageUtils.CreateCompatibleImage(w, h, image.getTransparency());
+		// Swapped destination corners make Java2D copy the pixels mirrored, with its native blit loops
+		int x1 = (flip & FLIP_HORIZONTAL) != 0 ? w : 0, y1 = (flip & FLIP_VERTICAL) != 0 ? h : 0;
+		Graphics2D g = img.createGraphics();
+		g.setComposite(AlphaComposite.Src);
+		g.drawImage(image, x1, y1, w - x1, h - y1, 0, 0, w, h, null);
+		g.dispose();
+		return img;
+	}
+	
+	/**
+	 * Forgets the flipped variants, so they are created again from the current pixels.
+	 */
+	public void clearFlipped() {
+		if (variants != null) {
+			for (Sprite variant : variants) {
+				if (variant != null && variant != this)
+					variant.variants = null;
 			}
 		}
-
-		return new Sprite(img);
+		variants = null;
+		orientation = 0;
 	}
 	
 	/**
-	 * Renders the sprite.
+	 * Sets the cache scaled sprites are drawn from. When it is set, a {@code render(int, int, int, int)} at another size than the image
+	 * draws a scaled copy made once instead of scaling the image on every draw. By default, there is none.
+	 * 
+	 * @param cache Transform cache, or null to scale on every draw
+	 */
+	public static void setTransformCache(TransformCache cache) {
+		transformCache = cache;
+	}
+	
+	/**
+	 * Returns the cache scaled sprites are drawn from.
+	 * 
+	 * @return {@link TransformCache} cache, or null if there is none
+	 */
+	public static TransformCache getTransformCache() {
+		return transformCache;
+	}
+	
+	/**
+	 * Renders the sprite. If it is scaled and a {@link TransformCache} is set, it is drawn from the cache.
 	 * 
 	 * @param x X position of the sprite
 	 * @param y Y position of the sprite
@@ -103,7 +176,32 @@ public class Sprite {
 	 * @see Graphics2D
 	 */
 	public void render(int x, int y, int width, int height) {
-		Application.g.drawImage(sprite, x, y, width, height, null);
+		if (transformCache != null && (width != sprite.getWidth() || height != sprite.getHeight())) {
+			transformCache.render(this, x, y, width, height);
+			return;
+		}
+		if (!Renderer.SJGL_Visible(x, y, width, height))
+			return;
+		CommandBuffer commands = Renderer.SJGL_Commands();
+		if (commands != null)
+			commands.image(sprite, x, y, width, height);
+		else
+			Application.g.drawImage(sprite, x, y, width, height, null);
+	}
+	
+	/**
+	 * Renders the sprite flipped. The flipped variant is cached, so this costs the same as an unflipped render.
+	 * 
+	 * @param x X position of the sprite
+	 * @param y Y position of the sprite
+	 * @param width Width of the sprite
+	 * @param height Height of the sprite
+	 * @param flip {@code FLIP_HORIZONTAL} and/or {@code FLIP_VERTICAL}, or 0
+	 * 
+	 * @see #getFlipped(int)
+	 */
+	public void render(int x, int y, int width, int height, int flip) {
+		getFlipped(flip).render(x, y, width, height);
 	}
 
 	/**
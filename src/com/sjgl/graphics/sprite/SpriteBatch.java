@@ -0,0 +1,414 @@
+package com.sjgl.graphics.sprite;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.sjgl.Application;
+import com.sjgl.graphics.CommandBuffer;
+import com.sjgl.graphics.Renderer;
+import com.sjgl.utils.ImageUtils;
+
+/**
+ * <strong>Collects sprite draws and submits them sorted by layer and source image.</strong>
+ *
+ * <p>Sprites can be added in any order. When the batch is rendered, they are drawn from the lowest to the highest layer, and within a
+ * layer, all draws of the same image (e.g. the same spritesheet) are submitted one after another, in the order they were added, so Java2D
+ * keeps the same source surface and blit loop between them. Draws are kept in flat arrays that are reused every frame, and sorting is
+ * done with a radix sort, so adding and rendering tens of thousands of sprites doesn't allocate.
+ *
+ * <pre>
+ * SpriteBatch batch = new SpriteBatch(4096);
+ * ...
+ * public void render(double alpha) {
+ *     for (Entity e : entities)
+ *         batch.draw(e.sprite, e.x, e.y, 16, 16, e.layer, e.facingLeft ? SpriteBatch.FLIP_HORIZONTAL : 0, SpriteBatch.NO_TINT);
+ *     batch.render();
+ * }
+ * </pre>
+ *
+ * <p>Tinted sprites are drawn from a copy of their image multiplied by the tint color, which is made once per image and tint. Each image
+ * keeps its 8 most recent tints; older copies are dropped, so animating a tint doesn't keep every copy alive.
+ *
+ * @author yiwuen
+ *
+ * @see Sprite
+ *
+ */
+
+public final class SpriteBatch {
+	
+	/**
+	 * Flip flags.
+	 */
+	public static final int FLIP_HORIZONTAL = Sprite.FLIP_HORIZONTAL, FLIP_VERTICAL = Sprite.FLIP_VERTICAL;
+	
+	/**
+	 * Tint that draws the sprite with its own colors.
+	 */
+	public static final int NO_TINT = 0xffffffff;
+	
+	// The image bits of a key hold the id of the source image and which of its tinted copies is drawn, 0 for none
+	private static final int INDEX_BITS = 24, IMAGE_BITS = 28, TINT_BITS = 4;
+	private static final int MAX_DRAWS = 1 << INDEX_BITS, MAX_IMAGES = 1 << (IMAGE_BITS - TINT_BITS);
+	private static final int TINTS_PER_IMAGE = 8;
+	// Images seen by the batch are forgotten past this amount
+	private static final int MAX_KNOWN_IMAGES = 1 << 14;
+	
+	private int count;
+	private Image[] images;
+	// Destination x, y, w, h and source x, y, w, h of every draw
+	private int[] coords;
+	private byte[] flips;
+	private long[] keys, buffer;
+	
+	private final Map<Image, Integer> ids = new IdentityHashMap<>();
+	private int[] tintColors = new int[64 * TINTS_PER_IMAGE];
+	private Image[] tintImages = new Image[64 * TINTS_PER_IMAGE];
+	private int[] nextTint = new int[64];
+	
+	private final int[] counts = new int[256];
+	private int submitted, groups;
+	
+	/**
+	 * Creates an empty sprite batch.
+	 * @param capacity Amount of draws to make room for, the batch grows if needed
+	 */
+	public SpriteBatch(int capacity) {
+		capacity = Math.max(16, capacity);
+		images = new Image[capacity];
+		coords = new int[capacity * 8];
+		flips = new byte[capacity];
+		keys = new long[capacity];
+		buffer = new long[capacity];
+	}
+	
+	/**
+	 * Adds a sprite scaled to the given size.
+	 * @param sprite Sprite
+	 * @param x X position
+	 * @param y Y position
+	 * @param w Width
+	 * @param h Height
+	 */
+	public void draw(Sprite sprite, int x, int y, int w, int h) {
+		draw(sprite, x, y, w, h, 0, 0, NO_TINT);
+	}
+	
+	/**
+	 * Adds a sprite scaled to the given size.
+	 * @param sprite Sprite
+	 * @param x X position
+	 * @param y Y position
+	 * @param w Width
+	 * @param h Height
+	 * @param layer Layer between -128 and 127, drawn from lowest to highest
+	 * @param flip {@code FLIP_HORIZONTAL} and/or {@code FLIP_VERTICAL}, or 0
+	 * @param tint ARGB color the sprite is multiplied with, or {@code NO_TINT}
+	 */
+	public void draw(Sprite sprite, int x, int y, int w, int h, int layer, int flip, int tint) {
+		BufferedImage image = sprite.getSprite();
+		draw(image, 0, 0, image.getWidth(), image.getHeight(), x, y, w, h, layer, flip, tint);
+	}
+	
+	/**
+	 * Adds a frame of a spritesheet scaled to the given size. Frames of the same sheet are drawn together.
+	 * @param sheet Spritesheet
+	 * @param frame Frame index
+	 * @param x X position
+	 * @param y Y position
+	 * @param w Width
+	 * @param h Height
+	 * @param layer Layer between -128 and 127, drawn from lowest to highest
+	 * @param flip {@code FLIP_HORIZONTAL} and/or {@code FLIP_VERTICAL}, or 0
+	 * @param tint ARGB color the sprite is multiplied with, or {@code NO_TINT}
+	 */
+	public void draw(Spritesheet sheet, int frame, int x, int y, int w, int h, int layer, int flip, int tint) {
+		draw(sheet.getSheetImage(), sheet.getFrameX(frame), sheet.getFrameY(frame), sheet.getFrameWidth(frame), sheet.getFrameHeight(frame), x, y,
+				w, h, layer, flip, tint);
+	}
+	
+	/**
+	 * Adds a frame of a texture atlas as if its original image was scaled to the given size. Frames packed into the same sheet are drawn
+	 * together.
+	 * @param atlas Texture atlas
+	 * @param frame Frame index
+	 * @param x X position
+	 * @param y Y position
+	 * @param w Width
+	 * @param h Height
+	 * @param layer Layer between -128 and 127, drawn from lowest to highest
+	 * @param flip {@code FLIP_HORIZONTAL} and/or {@code FLIP_VERTICAL}, or 0
+	 * @param tint ARGB color the sprite is multiplied with, or {@code NO_TINT}
+	 */
+	public void draw(TextureAtlas atlas, int frame, int x, int y, int w, int h, int layer, int flip, int tint) {
+		Spritesheet sheet = atlas.getSheetOf(frame);
+		int f = atlas.getSheetFrame(frame);
+		int fw = sheet.getFrameWidth(f), fh = sheet.getFrameHeight(f);
+		int ox = atlas.getOffsetX(frame), oy = atlas.getOffsetY(frame), ow = atlas.getWidth(frame), oh = atlas.getHeight(frame);
+		// A flipped frame has its trimmed borders on the other side
+		if ((flip & FLIP_HORIZONTAL) != 0)
+			ox = ow - ox - fw;
+		if ((flip & FLIP_VERTICAL) != 0)
+			oy = oh - oy - fh;
+		int x0 = x + ox * w / ow, y0 = y + oy * h / oh;
+		draw(sheet.getSheetImage(), sheet.getFrameX(f), sheet.getFrameY(f), fw, fh, x0, y0, x + (ox + fw) * w / ow - x0, y + (oy + fh) * h / oh - y0,
+				layer, flip, tint);
+	}
+	
+	/**
+	 * Adds a region of an image scaled to the given size, e.g. a frame of a spritesheet.
+	 * @param image Image
+	 * @param sx X position of the region in the image
+	 * @param sy Y position of the region in the image
+	 * @param sw Width of the region
+	 * @param sh Height of the region
+	 * @param x X position
+	 * @param y Y position
+	 * @param w Width
+	 * @param h Height
+	 * @param layer Layer between -128 and 127, drawn from lowest to highest
+	 * @param flip {@code FLIP_HORIZONTAL} and/or {@code FLIP_VERTICAL}, or 0
+	 * @param tint ARGB color the sprite is multiplied with, or {@code NO_TINT}
+	 */
+	public void draw(BufferedImage image, int sx, int sy, int sw, int sh, int x, int y, int w, int h, int layer, int flip, int tint) {
+		if (w <= 0 || h <= 0 || (tint >>> 24) == 0 || !Renderer.SJGL_Visible(x, y, w, h))
+			return;
+		if (count == MAX_DRAWS)
+			throw new IllegalStateException("Too many sprites in one batch (" + MAX_DRAWS + ")");
+		if (count == images.length)
+			grow();
+			
+		int id = idOf(image);
+		Image drawn = image;
+		int key = id << TINT_BITS;
+		if (tint != NO_TINT) {
+			int slot = tinted(id, image, tint);
+			drawn = tintImages[slot];
+			key |= slot - id * TINTS_PER_IMAGE + 1;
+		}
+		int i = count++;
+		images[i] = drawn;
+		int o = i * 8;
+		coords[o] = x;
+		coords[o + 1] = y;
+		coords[o + 2] = w;
+		coords[o + 3] = h;
+		coords[o + 4] = sx;
+		coords[o + 5] = sy;
+		coords[o + 6] = sw;
+		coords[o + 7] = sh;
+		flips[i] = (byte) flip;
+		keys[i] = ((long) (Math.max(-128, Math.min(127, layer)) + 128) << (IMAGE_BITS + INDEX_BITS)) | ((long) key << INDEX_BITS) | i;
+	}
+	
+	private void grow() {
+		int capacity = images.length * 2;
+		images = Arrays.copyOf(images, capacity);
+		coords = Arrays.copyOf(coords, capacity * 8);
+		flips = Arrays.copyOf(flips, capacity);
+		keys = Arrays.copyOf(keys, capacity);
+		buffer = new long[capacity];
+	}
+	
+	private int idOf(Image image) {
+		Integer id = ids.get(image);
+		if (id != null)
+			return id;
+		if (ids.size() == MAX_IMAGES)
+			throw new IllegalStateException("Too many different images (" + MAX_IMAGES + ")");
+		int next = ids.size();
+		if (next == nextTint.length) {
+			tintColors = Arrays.copyOf(tintColors, next * 2 * TINTS_PER_IMAGE);
+			tintImages = Arrays.copyOf(tintImages, next * 2 * TINTS_PER_IMAGE);
+			nextTint = Arrays.copyOf(nextTint, next * 2);
+		}
+		ids.put(image, next);
+		return next;
+	}
+	
+	/**
+	 * Returns the slot of {@code tintImages} holding the tinted copy of the image, making it if needed.
+	 */
+	private int tinted(int id, BufferedImage image, int tint) {
+		int o = id * TINTS_PER_IMAGE;
+		for (int t = 0; t < TINTS_PER_IMAGE; t++) {
+			if (tintImages[o + t] != null && tintColors[o + t] == tint)
+				return o + t;
+		}
+		// Each image keeps its most recent tints, replaced in turn; the replaced copy is only referenced by draws not flushed yet
+		int slot = o + nextTint[id];
+		nextTint[id] = (nextTint[id] + 1) % TINTS_PER_IMAGE;
+		tintColors[slot] = tint;
+		tintImages[slot] = tint(image, tint);
+		return slot;
+	}
+	
+	/**
+	 * Returns a compatible copy of the image multiplied by the tint color.
+	 */
+	static BufferedImage tint(BufferedImage image, int tint) {
+		int w = image.getWidth(), h = image.getHeight();
+		int ta = tint >>> 24, tr = (tint >> 16) & 0xff, tg = (tint >> 8) & 0xff, tb = tint & 0xff;
+		int[] pixels = image.getRGB(0, 0, w, h, null, 0, w);
+		for (int p = 0; p < pixels.length; p++) {
+			int c = pixels[p];
+			int a = ((c >>> 24) * ta + 127) / 255, r = (((c >> 16) & 0xff) * tr + 127) / 255;
+			int g = (((c >> 8) & 0xff) * tg + 127) / 255, b = ((c & 0xff) * tb + 127) / 255;
+			pixels[p] = (a << 24) | (r << 16) | (g << 8) | b;
+		}
+		BufferedImage tinted = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+		tinted.setRGB(0, 0, w, h, pixels, 0, w);
+		return ImageUtils.ToCompatibleImage(tinted);
+	}
+	
+	/**
+	 * Stable radix sort of the keys by layer and image, one byte at a time. Bytes that are equal for every draw are skipped.
+	 */
+	private void sort() {
+		long[] from = keys, to = buffer;
+		for (int shift = INDEX_BITS; shift < 64; shift += 8) {
+			Arrays.fill(counts, 0);
+			for (int i = 0; i < count; i++)
+				counts[(int) (from[i] >>> shift) & 0xff]++;
+			if (counts[(int) (from[0] >>> shift) & 0xff] == count)
+				continue;
+			for (int d = 0, sum = 0; d < 256; d++) {
+				int c = counts[d];
+				counts[d] = sum;
+				sum += c;
+			}
+			for (int i = 0; i < count; i++)
+				to[counts[(int) (from[i] >>> shift) & 0xff]++] = from[i];
+			long[] swap = from;
+			from = to;
+			to = swap;
+		}
+		keys = from;
+		buffer = to;
+	}
+	
+	/**
+	 * Draws every sprite of the batch with {@code Renderer}, into the recording {@link CommandBuffer} or {@code Application.g}, and
+	 * clears the batch.
+	 */
+	public void render() {
+		CommandBuffer commands = Renderer.SJGL_Commands();
+		if (commands == null)
+			flush(Application.g);
+		else
+			flush(commands);
+	}
+	
+	/**
+	 * Draws every sprite of the batch into a graphics context, and clears the batch.
+	 * @param g Graphics to draw into
+	 */
+	public void flush(Graphics2D g) {
+		flush(g, null);
+	}
+	
+	/**
+	 * Records every sprite of the batch into a command buffer, and clears the batch.
+	 * @param commands Command buffer to record into
+	 */
+	public void flush(CommandBuffer commands) {
+		flush(null, commands);
+	}
+	
+	private void flush(Graphics2D g, CommandBuffer commands) {
+		submitted = 0;
+		groups = 0;
+		if (count == 0)
+			return;
+		sort();
+		
+		Image current = null;
+		for (int k = 0; k < count; k++) {
+			int i = (int) keys[k] & (MAX_DRAWS - 1);
+			Image image = images[i];
+			if (image != current) {
+				current = image;
+				groups++;
+			}
+			int o = i * 8;
+			int x = coords[o], y = coords[o + 1], w = coords[o + 2], h = coords[o + 3];
+			int sx = coords[o + 4], sy = coords[o + 5], sw = coords[o + 6], sh = coords[o + 7];
+			int flip = flips[i];
+			
+			// Unflipped, unscaled draws of whole images use the simplest blit
+			if (flip == 0 && w == sw && h == sh && sx == 0 && sy == 0 && sw == image.getWidth(null) && sh == image.getHeight(null)) {
+				if (commands != null)
+					commands.image(image, x, y, w, h);
+				else
+					g.drawImage(image, x, y, null);
+			} else {
+				int dx1 = x, dy1 = y, dx2 = x + w, dy2 = y + h;
+				if ((flip & FLIP_HORIZONTAL) != 0) {
+					dx1 = dx2;
+					dx2 = x;
+				}
+				if ((flip & FLIP_VERTICAL) != 0) {
+					dy1 = dy2;
+					dy2 = y;
+				}
+				if (commands != null)
+					commands.image(image, dx1, dy1, dx2, dy2, sx, sy, sx + sw, sy + sh);
+				else
+					g.drawImage(image, dx1, dy1, dx2, dy2, sx, sy, sx + sw, sy + sh, null);
+			}
+			images[i] = null;
+		}
+		submitted = count;
+		count = 0;
+		// Forget images once the table gets large, e.g. when new images are drawn every frame
+		if (ids.size() > MAX_KNOWN_IMAGES)
+			clearImages();
+	}
+	
+	/**
+	 * Removes all sprites without drawing them.
+	 */
+	public void clear() {
+		Arrays.fill(images, 0, count, null);
+		count = 0;
+	}
+	
+	/**
+	 * Forgets every image and tinted copy the batch has seen.
+	 */
+	public void clearImages() {
+		clear();
+		ids.clear();
+		Arrays.fill(tintImages, null);
+		Arrays.fill(nextTint, 0);
+	}
+	
+	/**
+	 * Returns the amount of sprites added since the last render.
+	 * @return <STRONG>int</STRONG> sprites
+	 */
+	public int size() {
+		return count;
+	}
+	
+	/**
+	 * Returns the amount of draws submitted by the last render.
+	 * @return <STRONG>int</STRONG> draws
+	 */
+	public int getSubmittedCount() {
+		return submitted;
+	}
+	
+	/**
+	 * Returns the amount of times the source image changed during the last render. Lower is better.
+	 * @return <STRONG>int</STRONG> image switches
+	 */
+	public int getGroupCount() {
+		return groups;
+	}
+	
+}
@@ -2,6 +2,11 @@ package com.sjgl.graphics.sprite;
 
 import java.awt.image.BufferedImage;
 
+import com.sjgl.Application;
+import com.sjgl.graphics.CommandBuffer;
+import com.sjgl.graphics.Renderer;
+import com.sjgl.profiling.EngineEvents;
+import com.sjgl.profiling.SpritesheetSplitEvent;
 import com.sjgl.utils.PathUtils;
 
 /**
@@ -21,6 +26,10 @@ public class Spritesheet {
 	private int width, height;
 	private int spriteWidth, spriteHeight;
 	
+	// x, y, width and height of every frame, in rows from the top left unless the regions were given to the constructor
+	private int[] regions;
+	private int columns, frameCount;
+	
 	/**
 	 * Creates a spritesheet using {@link BufferedImage} loaded based on the given path. This will automatically determine the individual sprite size.
 	 * If you want to specify the sprite size, use {@code Spritesheet(String path, boolean setSpriteSize)} or 
@@ -32,6 +41,9 @@ public class Spritesheet {
 	public Spritesheet(String path) {
 		sheet = PathUtils.GetImage(path);
 		
+		width = sheet.getWidth();
+		height = sheet.getHeight();
+		
 		int cols = ((sheet.getWidth() * sheet.getHeight()) / 8) >> 8;
 		int rows = ((sheet.getWidth() * sheet.getHeight()) / 8) >> 8;
 		
@@ -48,6 +60,9 @@ public class Spritesheet {
 	public Spritesheet(BufferedImage sheet) {
 		this.sheet = sheet;
 		
+		width = sheet.getWidth();
+		height = sheet.getHeight();
+		
 		int cols = ((sheet.getWidth() * sheet.getHeight()) / 8) >> 8;
 		int rows = ((sheet.getWidth() * sheet.getHeight()) / 8) >> 8;
 		
@@ -137,6 +152,27 @@ public class Spritesheet {
 		this.spriteHeight = spriteHeight;
 	}
 	
+	/**
+	 * Constructs a spritesheet whose frames are arbitrary regions of the image, e.g. packed by an {@link AtlasBuilder}. Frames are
+	 * numbered in the order of the regions and don't have a tile position.
+	 * 
+	 * @param sheet Loaded BufferedImage of the spritesheet
+	 * @param regions x, y, width and height of every frame, one after another
+	 * 
+	 * @see TextureAtlas
+	 */
+	public Spritesheet(BufferedImage sheet, int[] regions) {
+		if (regions.length % 4 != 0)
+			throw new IllegalArgumentException("Regions must have 4 values per frame: " + regions.length);
+		this.sheet = sheet;
+		
+		width = sheet.getWidth();
+		height = sheet.getHeight();
+		
+		this.regions = regions;
+		frameCount = regions.length / 4;
+	}
+	
 	/**
 	 * Gets an individual sprite from the spritesheet based on the x, y, width, and height.
 	 * @param x Tile X
@@ -146,7 +182,7 @@ public class Spritesheet {
 	 * @return Sprite sprite
 	 */
 	public Sprite getSprite(int x, int y, int w, int h) {
-		return new Sprite(sheet.getSubimage(x * w, y * w, w, h));
+		return new Sprite(sheet.getSubimage(x * w, y * h, w, h));
 	}
 	
 	/**
@@ -166,17 +202,24 @@ public class Spritesheet {
 	 * @return Sprite[] sprites
 	 */
 	public Sprite[] split() {
-		Spritesheet newSheet = new Spritesheet(sheet, true);
-		int sheetWidth = newSheet.getWidth();
-		int sheetHeight = newSheet.getHeight();
-		int index = 0;
-		Sprite[] sprites = new Sprite[(sheetWidth / spriteWidth) * (sheetHeight / spriteHeight)];
-		for (int ya = 0; ya < sheetHeight / spriteHeight; ya++) {
-			for (int xa = 0; xa < sheetWidth / spriteWidth; xa++) {
-				sprites[index++] = newSheet.getSprite(xa, ya, spriteWidth, spriteHeight);
-			}
+		final SpritesheetSplitEvent event = EngineEvents.isRecording() ? new SpritesheetSplitEvent() : null;
+		if (event != null)
+			event.begin();
+		Sprite[] sprites;
+		if (spriteWidth <= 0 && regions != null) {
+			sprites = new Sprite[frameCount];
+			for (int i = 0; i < frameCount; i++)
+				sprites[i] = getSprite(i);
+		} else {
+			sprites = split(sheet, spriteWidth, spriteHeight);
 		}
 		
+		if (event != null && event.shouldCommit()) {
+			event.spriteWidth = spriteWidth;
+			event.spriteHeight = spriteHeight;
+			event.sprites = sprites.length;
+			event.commit();
+		}
 		return sprites;
 	}
 	
@@ -191,20 +234,136 @@ public class Spritesheet {
 	 * @return Sprite[] sprites
 	 */
 	public Sprite[] split(int spriteWidth, int spriteHeight) {
-		Spritesheet newSheet = new Spritesheet(sheet, false);
-		int sheetWidth = newSheet.getWidth();
-		int sheetHeight = newSheet.getHeight();
-		int index = 0;
-		Sprite[] sprites = new Sprite[(sheetWidth / spriteWidth) * (sheetHeight / spriteHeight)];
-		for (int ya = 0; ya < sheetHeight / spriteHeight; ya++) {
-			for (int xa = 0; xa < sheetWidth / spriteWidth; xa++) {
-				sprites[index++] = newSheet.getSprite(xa, ya, spriteWidth, spriteHeight);
-			}
-		}
+		final SpritesheetSplitEvent event = EngineEvents.isRecording() ? new SpritesheetSplitEvent() : null;
+		if (event != null)
+			event.begin();
+		Sprite[] sprites = split(sheet, spriteWidth, spriteHeight);
 		
+		if (event != null && event.shouldCommit()) {
+			event.spriteWidth = spriteWidth;
+			event.spriteHeight = spriteHeight;
+			event.sprites = sprites.length;
+			event.commit();
+		}
 		return sprites;
 	}
 	
+	private static Sprite[] split(BufferedImage sheet, int spriteWidth, int spriteHeight) {
+		int columns = sheet.getWidth() / spriteWidth, rows = sheet.getHeight() / spriteHeight;
+		Sprite[] sprites = new Sprite[columns * rows];
+		for (int i = 0; i < sprites.length; i++)
+			sprites[i] = new Sprite(sheet.getSubimage((i % columns) * spriteWidth, (i / columns) * spriteHeight, spriteWidth, spriteHeight));
+		return sprites;
+	}
+	
+	private int[] regions() {
+		if (regions == null) {
+			if (spriteWidth <= 0 || spriteHeight <= 0)
+				throw new IllegalStateException("The sprite size of the spritesheet is not set");
+			columns = width / spriteWidth;
+			frameCount = columns * (height / spriteHeight);
+			regions = new int[frameCount * 4];
+			for (int i = 0; i < frameCount; i++) {
+				regions[i * 4] = (i % columns) * spriteWidth;
+				regions[i * 4 + 1] = (i / columns) * spriteHeight;
+				regions[i * 4 + 2] = spriteWidth;
+				regions[i * 4 + 3] = spriteHeight;
+			}
+		}
+		return regions;
+	}
+	
+	/**
+	 * Returns the amount of frames, or individual sprites, in the sheet. Frames are numbered in rows from the top left, starting at 0.
+	 * @return int frames
+	 */
+	public int getFrameCount() {
+		regions();
+		return frameCount;
+	}
+	
+	/**
+	 * Returns the index of the frame at a tile position. Spritesheets made from a list of regions don't have tile positions.
+	 * @param x Tile X
+	 * @param y Tile Y
+	 * @return int frame
+	 */
+	public int getFrame(int x, int y) {
+		regions();
+		if (columns == 0)
+			throw new IllegalStateException("The frames of the spritesheet are not in a grid");
+		return y * columns + x;
+	}
+	
+	/**
+	 * Returns the x position of a frame in the sheet image.
+	 * @param frame Frame index
+	 * @return int x
+	 */
+	public int getFrameX(int frame) {
+		return regions()[frame * 4];
+	}
+	
+	/**
+	 * Returns the y position of a frame in the sheet image.
+	 * @param frame Frame index
+	 * @return int y
+	 */
+	public int getFrameY(int frame) {
+		return regions()[frame * 4 + 1];
+	}
+	
+	/**
+	 * Returns the width of a frame.
+	 * @param frame Frame index
+	 * @return int width
+	 */
+	public int getFrameWidth(int frame) {
+		return regions()[frame * 4 + 2];
+	}
+	
+	/**
+	 * Returns the height of a frame.
+	 * @param frame Frame index
+	 * @return int height
+	 */
+	public int getFrameHeight(int frame) {
+		return regions()[frame * 4 + 3];
+	}
+	
+	/**
+	 * Returns a frame as a {@link Sprite}. The sprite shares the pixels of the sheet. Prefer drawing frames by index with
+	 * {@code render(int, int, int, int, int)} in loops, which doesn't create any object.
+	 * @param frame Frame index
+	 * @return Sprite sprite
+	 */
+	public Sprite getSprite(int frame) {
+		int[] r = regions();
+		int o = frame * 4;
+		return new Sprite(sheet.getSubimage(r[o], r[o + 1], r[o + 2], r[o + 3]));
+	}
+	
+	/**
+	 * Renders a frame straight from the sheet image, scaled to the given size.
+	 * @param frame Frame index
+	 * @param x X position
+	 * @param y Y position
+	 * @param w Width
+	 * @param h Height
+	 */
+	public void render(int frame, int x, int y, int w, int h) {
+		if (!Renderer.SJGL_Visible(x, y, w, h))
+			return;
+		int[] r = regions();
+		int o = frame * 4;
+		int sx = r[o], sy = r[o + 1];
+		CommandBuffer commands = Renderer.SJGL_Commands();
+		if (commands != null)
+			commands.image(sheet, x, y, x + w, y + h, sx, sy, sx + r[o + 2], sy + r[o + 3]);
+		else
+			Application.g.drawImage(sheet, x, y, x + w, y + h, sx, sy, sx + r[o + 2], sy + r[o + 3], null);
+	}
+	
 	/**
 	 * Returns the loaded {@link BufferedImage} image.
 	 * @return BufferedImage image
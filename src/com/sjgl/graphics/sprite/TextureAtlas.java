@@ -0,0 +1,442 @@
+package com.sjgl.graphics.sprite;
+
+import java.awt.Graphics2D;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import com.sjgl.utils.PathUtils;
+
+/**
+ * <strong>A set of images packed into a few shared sheets, addressed by name or frame index.</strong>
+ *
+ * <p>Every sheet is a {@link Spritesheet} whose frames are the packed regions, so frames of one sheet are a single image for
+ * {@link SpriteBatch} and for Java2D. Atlases are made by an {@link AtlasBuilder} at startup, or built ahead of time, saved with
+ * {@code write(File, String)} and read with {@code load(String)}. For the fastest startup, atlases built ahead of time can be saved
+ * with {@code writeBinary(File)} instead, which stores the raw pixels of the sheets: {@code map(File)} and {@code loadBinary(String)}
+ * copy them straight into the sheet images without decoding any PNG.
+ *
+ * <p>Images may have been trimmed of their transparent borders when they were packed. The atlas keeps the original size of every
+ * image and where the trimmed pixels were in it, and {@code render(...)} draws them at the same place as the original image. Look up
+ * frame indices once with {@code getFrame(String)} and keep them, since drawing by index doesn't create any object.
+ *
+ * <p>An atlas file is a text file with one sheet image per {@code sheet} line, relative to the atlas file, followed by one
+ * {@code frame} line per image: its name, its sheet, its region in the sheet, its offset in the original image and the original size.
+ *
+ * <pre>
+ * # ui.atlas
+ * sheet ui_0.png
+ * frame button 0 0 0 96 24 2 4 100 32
+ * frame cursor 0 97 0 12 18 0 0 12 18
+ * </pre>
+ *
+ * @author yiwuen
+ *
+ * @see AtlasBuilder
+ *
+ */
+public class TextureAtlas {
+	
+	// For every frame: sheet, frame in the sheet, x and y offset of the trimmed region, original width and height
+	private static final int STRIDE = 6;
+	
+	private final Spritesheet[] sheets;
+	private final String[] names;
+	private final int[] table;
+	private final Map<String, Integer> frames = new HashMap<>();
+	
+	/**
+	 * Creates an atlas from packed frames.
+	 * @param names Name of every frame
+	 * @param sheetImages Image of every sheet
+	 * @param packed For every frame: sheet, x, y, width and height in the sheet, x and y offset in the original image, original width and
+	 * height
+	 */
+	TextureAtlas(String[] names, BufferedImage[] sheetImages, int[] packed) {
+		this.names = names;
+		table = new int[names.length * STRIDE];
+		
+		int[] counts = new int[sheetImages.length];
+		for (int i = 0; i < names.length; i++)
+			counts[packed[i * 9]]++;
+		int[][] regions = new int[sheetImages.length][];
+		for (int s = 0; s < sheetImages.length; s++)
+			regions[s] = new int[counts[s] * 4];
+			
+		// Frames of a sheet keep the order they have in the atlas
+		int[] next = new int[sheetImages.length];
+		for (int i = 0; i < names.length; i++) {
+			int p = i * 9, o = i * STRIDE;
+			int sheet = packed[p], frame = next[sheet]++;
+			System.arraycopy(packed, p + 1, regions[sheet], frame * 4, 4);
+			table[o] = sheet;
+			table[o + 1] = frame;
+			System.arraycopy(packed, p + 5, table, o + 2, 4);
+			if (frames.put(names[i], i) != null)
+				throw new IllegalArgumentException("Duplicate frame name in atlas: " + names[i]);
+		}
+		sheets = new Spritesheet[sheetImages.length];
+		for (int s = 0; s < sheets.length; s++)
+			sheets[s] = new Spritesheet(sheetImages[s], regions[s]);
+	}
+	
+	/**
+	 * Checks that a packed frame lies inside its sheet and that its trimmed region lies inside its original size.
+	 * @param packed Packed frames, as given to the constructor
+	 * @param p Index of the frame in {@code packed}
+	 * @param sheetWidth Width of the frame's sheet
+	 * @param sheetHeight Height of the frame's sheet
+	 *
+	 * @return <STRONG>String</STRONG> what is wrong with the frame, or null if it is valid
+	 */
+	static String checkFrame(int[] packed, int p, int sheetWidth, int sheetHeight) {
+		int x = packed[p + 1], y = packed[p + 2], width = packed[p + 3], height = packed[p + 4];
+		int offsetX = packed[p + 5], offsetY = packed[p + 6], originalWidth = packed[p + 7], originalHeight = packed[p + 8];
+		if (x < 0 || y < 0 || width <= 0 || height <= 0 || (long) x + width > sheetWidth || (long) y + height > sheetHeight)
+			return "is out of its sheet";
+		if (originalWidth <= 0 || originalHeight <= 0 || offsetX < 0 || offsetY < 0 || (long) offsetX + width > originalWidth
+				|| (long) offsetY + height > originalHeight)
+			return "is out of its original size";
+		return null;
+	}
+	
+	/**
+	 * Reads an atlas written by {@code write(File, String)} from the classpath. The sheet images are loaded next to the atlas file.
+	 * @param path Classpath path to the atlas file, e.g. {@code "/ui.atlas"}
+	 * @return {@link TextureAtlas} atlas, or null if it couldn't be read
+	 */
+	public static TextureAtlas load(String path) {
+		InputStream in = PathUtils.class.getResourceAsStream(path);
+		if (in == null) {
+			System.err.println("[ATLAS ERROR] Atlas not found: " + path);
+			return null;
+		}
+		String directory = path.substring(0, path.lastIndexOf('/') + 1);
+		List<BufferedImage> sheetImages = new ArrayList<>();
+		List<String> names = new ArrayList<>();
+		int[] packed = new int[64 * 9];
+		
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#"))
+					continue;
+				String[] parts = line.split("\\s+");
+				if (parts[0].equals("sheet") && parts.length == 2) {
+					BufferedImage image = PathUtils.GetImage(directory + parts[1]);
+					if (image == null) {
+						System.err.println("[ATLAS ERROR] Sheet not found in " + path + ": " + parts[1]);
+						return null;
+					}
+					sheetImages.add(image);
+				} else if (parts[0].equals("frame") && parts.length == 11) {
+					int p = names.size() * 9;
+					if (p == packed.length)
+						packed = Arrays.copyOf(packed, packed.length * 2);
+					for (int v = 0; v < 9; v++)
+						packed[p + v] = Integer.parseInt(parts[v + 2]);
+					if (packed[p] < 0 || packed[p] >= sheetImages.size()) {
+						System.err.println("[ATLAS ERROR] Frame refers to a missing sheet in " + path + ": " + line);
+						return null;
+					}
+					BufferedImage sheet = sheetImages.get(packed[p]);
+					String problem = checkFrame(packed, p, sheet.getWidth(), sheet.getHeight());
+					if (problem != null) {
+						System.err.println("[ATLAS ERROR] Frame " + problem + " in " + path + ": " + line);
+						return null;
+					}
+					names.add(parts[1]);
+				} else {
+					System.err.println("[ATLAS ERROR] Invalid atlas line in " + path + ": " + line);
+					return null;
+				}
+			}
+			return new TextureAtlas(names.toArray(new String[0]), sheetImages.toArray(new BufferedImage[0]), packed);
+		} catch (IOException e) {
+			e.printStackTrace();
+		} catch (RuntimeException e) {
+			System.err.println("[ATLAS ERROR] Invalid atlas " + path + ": " + e.getMessage());
+		}
+		return null;
+	}
+	
+	/**
+	 * Saves the sheets as PNG images and the region table as an atlas file that {@code load(String)} can read. The files are
+	 * {@code name.atlas} and {@code name_0.png}, {@code name_1.png}, ... in the directory.
+	 * @param directory Directory to write into, created if needed
+	 * @param name Name of the atlas
+	 * @throws IOException if a file couldn't be written
+	 */
+	public void write(File directory, String name) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Could not create directory " + directory);
+			
+		try (PrintWriter out = new PrintWriter(new File(directory, name + ".atlas"), StandardCharsets.UTF_8)) {
+			out.println("# " + name + ".atlas: frame name sheet x y width height offsetX offsetY originalWidth originalHeight");
+			for (int s = 0; s < sheets.length; s++) {
+				String file = name + "_" + s + ".png";
+				if (!ImageIO.write(toWritable(sheets[s].getSheetImage()), "png", new File(directory, file)))
+					throw new IOException("No PNG writer for the sheet image");
+				out.println("sheet " + file);
+			}
+			for (int i = 0; i < names.length; i++) {
+				int o = i * STRIDE;
+				Spritesheet sheet = sheets[table[o]];
+				int f = table[o + 1];
+				out.println("frame " + names[i] + " " + table[o] + " " + sheet.getFrameX(f) + " " + sheet.getFrameY(f) + " "
+						+ sheet.getFrameWidth(f) + " " + sheet.getFrameHeight(f) + " " + table[o + 2] + " " + table[o + 3] + " "
+						+ table[o + 4] + " " + table[o + 5]);
+			}
+			if (out.checkError())
+				throw new IOException("Could not write " + name + ".atlas");
+		}
+	}
+	
+	/**
+	 * Saves the atlas in the binary format read by {@code map(File)} and {@code loadBinary(String)}: a header and the region table,
+	 * followed by the raw premultiplied pixels of every sheet. The file is larger than PNG images, but loading it is a copy instead of
+	 * a decode.
+	 * @param file File to write, replaced if it exists
+	 * @throws IOException if the file couldn't be written
+	 */
+	public void writeBinary(File file) throws IOException {
+		File directory = file.getAbsoluteFile().getParentFile();
+		if (directory != null && !directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Could not create directory " + directory);
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			AtlasFile.write(this, channel);
+		}
+	}
+	
+	/**
+	 * Reads an atlas written by {@code writeBinary(File)}. The file is memory-mapped and the pixels of every sheet are copied from the
+	 * mapping into a compatible image in large blocks.
+	 * @param file Binary atlas file
+	 * @return {@link TextureAtlas} atlas, or null if it couldn't be read
+	 */
+	public static TextureAtlas map(File file) {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException("File is larger than 2 GB");
+			return AtlasFile.read(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+		} catch (IOException e) {
+			System.err.println("[ATLAS ERROR] Could not read " + file + ": " + e.getMessage());
+			return null;
+		}
+	}
+	
+	/**
+	 * Reads an atlas written by {@code writeBinary(File)} from the classpath. It is memory-mapped with {@code map(File)} when the
+	 * classpath is a directory; inside of a jar, it is read into memory first.
+	 * @param path Classpath path to the binary atlas, e.g. {@code "/ui.sjga"}
+	 * @return {@link TextureAtlas} atlas, or null if it couldn't be read
+	 */
+	public static TextureAtlas loadBinary(String path) {
+		URL url = PathUtils.class.getResource(path);
+		if (url == null) {
+			System.err.println("[ATLAS ERROR] Atlas not found: " + path);
+			return null;
+		}
+		try {
+			if (url.getProtocol().equals("file"))
+				return map(new File(url.toURI()));
+			try (InputStream in = url.openStream()) {
+				return AtlasFile.read(ByteBuffer.wrap(in.readAllBytes()));
+			}
+		} catch (IOException | URISyntaxException e) {
+			System.err.println("[ATLAS ERROR] Could not read " + path + ": " + e.getMessage());
+			return null;
+		}
+	}
+	
+	private static BufferedImage toWritable(BufferedImage image) {
+		int type = image.getType();
+		if (type == BufferedImage.TYPE_INT_ARGB || type == BufferedImage.TYPE_INT_RGB)
+			return image;
+		BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), image.getTransparency() == Transparency.OPAQUE
+				? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = copy.createGraphics();
+		g.drawImage(image, 0, 0, null);
+		g.dispose();
+		return copy;
+	}
+	
+	/**
+	 * Returns the index of a frame by the name it was added with.
+	 * @param name Name of the frame
+	 * @return <STRONG>int</STRONG> frame, or -1 if there is none
+	 */
+	public int getFrame(String name) {
+		Integer frame = frames.get(name);
+		return frame == null ? -1 : frame;
+	}
+	
+	/**
+	 * Returns the name of a frame.
+	 * @param frame Frame index
+	 * @return {@link String} name
+	 */
+	public String getName(int frame) {
+		return names[frame];
+	}
+	
+	/**
+	 * Returns the amount of frames in the atlas. Frames are numbered in the order they were added, starting at 0.
+	 * @return <STRONG>int</STRONG> frames
+	 */
+	public int getFrameCount() {
+		return names.length;
+	}
+	
+	/**
+	 * Returns the amount of sheets the frames are packed into.
+	 * @return <STRONG>int</STRONG> sheets
+	 */
+	public int getSheetCount() {
+		return sheets.length;
+	}
+	
+	/**
+	 * Returns a sheet of the atlas.
+	 * @param index Sheet index
+	 * @return {@link Spritesheet} sheet
+	 */
+	public Spritesheet getSheet(int index) {
+		return sheets[index];
+	}
+	
+	/**
+	 * Returns the sheet a frame is packed into.
+	 * @param frame Frame index
+	 * @return {@link Spritesheet} sheet
+	 */
+	public Spritesheet getSheetOf(int frame) {
+		return sheets[table[frame * STRIDE]];
+	}
+	
+	/**
+	 * Returns the index of the sheet a frame is packed into.
+	 * @param frame Frame index
+	 * @return <STRONG>int</STRONG> sheet index
+	 */
+	public int getSheetIndex(int frame) {
+		return table[frame * STRIDE];
+	}
+	
+	/**
+	 * Returns the index of a frame in its sheet, as used by {@code Spritesheet.getFrameX(int)} and {@code Spritesheet.render(...)}.
+	 * @param frame Frame index
+	 * @return <STRONG>int</STRONG> frame in the sheet
+	 */
+	public int getSheetFrame(int frame) {
+		return table[frame * STRIDE + 1];
+	}
+	
+	/**
+	 * Returns the x position of the trimmed region in the original image.
+	 * @param frame Frame index
+	 * @return <STRONG>int</STRONG> x offset
+	 */
+	public int getOffsetX(int frame) {
+		return table[frame * STRIDE + 2];
+	}
+	
+	/**
+	 * Returns the y position of the trimmed region in the original image.
+	 * @param frame Frame index
+	 * @return <STRONG>int</STRONG> y offset
+	 */
+	public int getOffsetY(int frame) {
+		return table[frame * STRIDE + 3];
+	}
+	
+	/**
+	 * Returns the width of the original image, before trimming.
+	 * @param frame Frame index
+	 * @return <STRONG>int</STRONG> width
+	 */
+	public int getWidth(int frame) {
+		return table[frame * STRIDE + 4];
+	}
+	
+	/**
+	 * Returns the height of the original image, before trimming.
+	 * @param frame Frame index
+	 * @return <STRONG>int</STRONG> height
+	 */
+	public int getHeight(int frame) {
+		return table[frame * STRIDE + 5];
+	}
+	
+	/**
+	 * Returns a frame as a {@link Sprite} that shares the pixels of its sheet. Only the trimmed region is in the sprite, so trimmed
+	 * frames are smaller than the original image; use {@code render(...)} to draw them at their original place.
+	 * @param frame Frame index
+	 * @return {@link Sprite} sprite
+	 */
+	public Sprite getSprite(int frame) {
+		int o = frame * STRIDE;
+		return sheets[table[o]].getSprite(table[o + 1]);
+	}
+	
+	/**
+	 * Returns a frame by name as a {@link Sprite}, like {@code getSprite(int)}.
+	 * @param name Name of the frame
+	 * @return {@link Sprite} sprite, or null if there is no such frame
+	 */
+	public Sprite getSprite(String name) {
+		int frame = getFrame(name);
+		return frame < 0 ? null : getSprite(frame);
+	}
+	
+	/**
+	 * Renders a frame at the size of the original image.
+	 * @param frame Frame index
+	 * @param x X position
+	 * @param y Y position
+	 */
+	public void render(int frame, int x, int y) {
+		int o = frame * STRIDE;
+		render(frame, x, y, table[o + 4], table[o + 5]);
+	}
+	
+	/**
+	 * Renders a frame as if the original image was scaled to the given size.
+	 * @param frame Frame index
+	 * @param x X position
+	 * @param y Y position
+	 * @param w Width
+	 * @param h Height
+	 */
+	public void render(int frame, int x, int y, int w, int h) {
+		int o = frame * STRIDE;
+		Spritesheet sheet = sheets[table[o]];
+		int f = table[o + 1];
+		int ox = table[o + 2], oy = table[o + 3], ow = table[o + 4], oh = table[o + 5];
+		int x0 = x + ox * w / ow, y0 = y + oy * h / oh;
+		int x1 = x + (ox + sheet.getFrameWidth(f)) * w / ow, y1 = y + (oy + sheet.getFrameHeight(f)) * h / oh;
+		sheet.render(f, x0, y0, x1 - x0, y1 - y0);
+	}
+	
+}
@@ -0,0 +1,416 @@
+package com.sjgl.graphics.sprite;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import com.sjgl.Application;
+import com.sjgl.graphics.CommandBuffer;
+import com.sjgl.graphics.Renderer;
+import com.sjgl.utils.ImageUtils;
+
+/**
+ * <strong>Keeps sprites already scaled, rotated and tinted, so drawing them is a plain 1:1 blit.</strong>
+ *
+ * <p>Drawing an image at another size than its own makes Java2D scale it on every draw, and rotated or tinted draws cost even more. The
+ * cache renders each combination of image, size, rotation and tint once into a compatible image and returns it again on later draws.
+ * Rotations are rounded to one of {@code getRotationSteps()} steps per turn so that slowly rotating sprites reuse their images.
+ *
+ * <p>The memory used by the cached images is limited by a budget in bytes (4 per pixel). When it is full, the images that weren't drawn
+ * for the longest time are dropped. Looking up an image doesn't allocate: entries are kept in flat arrays, with a hash table over them and
+ * a list from the most to the least recently used.
+ *
+ * <pre>
+ * TransformCache cache = new TransformCache(8 &lt;&lt; 20);
+ * ...
+ * cache.render(coin, x, y, 32, 32, angle, TransformCache.NO_TINT);
+ * </pre>
+ *
+ * <p>Set a cache with {@code Sprite.setTransformCache(TransformCache)} to make every scaled {@code Sprite.render(int, int, int, int)}
+ * go through it. Cached images are made from the pixels of the sprite at that time; call {@link #remove(BufferedImage)} or
+ * {@link #clear()} after changing them. The cache isn't thread-safe and should only be used while rendering.
+ *
+ * @author yiwuen
+ *
+ * @see Sprite
+ *
+ */
+public final class TransformCache {
+	
+	/**
+	 * Tint that draws the sprite with its own colors.
+	 */
+	public static final int NO_TINT = SpriteBatch.NO_TINT;
+	
+	// Width, height, rotation step and tint of every entry
+	private static final int KEY = 4;
+	
+	private long budget;
+	private long bytes;
+	private int rotationSteps = 64;
+	private Object interpolation = RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR;
+	
+	private BufferedImage[] sources;
+	private Image[] images;
+	private int[] keys;
+	private int[] hashes;
+	// Next entry in the same bucket, or in the free list for unused entries
+	private int[] chain;
+	private int[] table;
+	private int free = -1;
+	// Least recently used list, from head (most recent) to tail
+	private int[] newer, older;
+	private int head = -1, tail = -1;
+	private int size;
+	
+	private long hits, misses, evictions;
+	
+	/**
+	 * Creates an empty cache.
+	 * @param budget Largest amount of bytes used by the cached images
+	 */
+	public TransformCache(long budget) {
+		setBudget(budget);
+		allocate(64);
+	}
+	
+	private void allocate(int capacity) {
+		int previous = sources == null ? 0 : sources.length;
+		sources = sources == null ? new BufferedImage[capacity] : Arrays.copyOf(sources, capacity);
+		images = images == null ? new Image[capacity] : Arrays.copyOf(images, capacity);
+		keys = keys == null ? new int[capacity * KEY] : Arrays.copyOf(keys, capacity * KEY);
+		hashes = hashes == null ? new int[capacity] : Arrays.copyOf(hashes, capacity);
+		chain = chain == null ? new int[capacity] : Arrays.copyOf(chain, capacity);
+		newer = newer == null ? new int[capacity] : Arrays.copyOf(newer, capacity);
+		older = older == null ? new int[capacity] : Arrays.copyOf(older, capacity);
+		for (int e = capacity - 1; e >= previous; e--) {
+			chain[e] = free;
+			free = e;
+		}
+		
+		table = new int[capacity * 2];
+		Arrays.fill(table, -1);
+		for (int e = head; e >= 0; e = older[e]) {
+			int bucket = hashes[e] & (table.length - 1);
+			chain[e] = table[bucket];
+			table[bucket] = e;
+		}
+	}
+	
+	private static int hash(BufferedImage source, int width, int height, int step, int tint) {
+		int h = System.identityHashCode(source);
+		h = h * 31 + width;
+		h = h * 31 + height;
+		h = h * 31 + step;
+		h = h * 31 + tint;
+		return h ^ (h >>> 16);
+	}
+	
+	/**
+	 * Returns the rotation step closest to an angle.
+	 * @param rotation Rotation in radians, clockwise
+	 * @return <STRONG>int</STRONG> step between 0 and {@code getRotationSteps() - 1}
+	 */
+	public int getRotationStep(double rotation) {
+		return Math.floorMod((int) Math.round(rotation / (2 * Math.PI) * rotationSteps), rotationSteps);
+	}
+	
+	/**
+	 * Returns the image scaled to the given size, rotated around its center and multiplied by the tint, from the cache if it is there.
+	 * A rotated image is larger than the size, by the same amount on both sides, so that the whole rotated sprite fits.
+	 * @param source Image of the sprite
+	 * @param width Width to scale to
+	 * @param height Height to scale to
+	 * @param step Rotation step, from {@code getRotationStep(double)}
+	 * @param tint ARGB color the sprite is multiplied with, or {@code NO_TINT}
+	 *
+	 * @return {@link Image} transformed image
+	 */
+	public Image getImage(BufferedImage source, int width, int height, int step, int tint) {
+		step = Math.floorMod(step, rotationSteps);
+		int hash = hash(source, width, height, step, tint);
+		for (int e = table[hash & (table.length - 1)]; e >= 0; e = chain[e]) {
+			int k = e * KEY;
+			if (sources[e] == source && hashes[e] == hash && keys[k] == width && keys[k + 1] == height && keys[k + 2] == step
+					&& keys[k + 3] == tint) {
+				hits++;
+				touch(e);
+				return images[e];
+			}
+		}
+		
+		misses++;
+		BufferedImage image = transform(source, width, height, step, tint);
+		long imageBytes = (long) image.getWidth() * image.getHeight() * 4;
+		// Images larger than the whole budget are drawn but not kept
+		if (imageBytes > budget)
+			return image;
+		while (bytes + imageBytes > budget)
+			evict(tail);
+		if (free < 0)
+			allocate(sources.length * 2);
+			
+		int e = free;
+		free = chain[e];
+		int bucket = hash & (table.length - 1);
+		chain[e] = table[bucket];
+		table[bucket] = e;
+		sources[e] = source;
+		images[e] = image;
+		hashes[e] = hash;
+		int k = e * KEY;
+		keys[k] = width;
+		keys[k + 1] = height;
+		keys[k + 2] = step;
+		keys[k + 3] = tint;
+		newer[e] = -1;
+		older[e] = head;
+		if (head >= 0)
+			newer[head] = e;
+		head = e;
+		if (tail < 0)
+			tail = e;
+		bytes += imageBytes;
+		size++;
+		return image;
+	}
+	
+	private BufferedImage transform(BufferedImage source, int width, int height, int step, int tint) {
+		int w = width, h = height;
+		double angle = step * 2 * Math.PI / rotationSteps;
+		if (step != 0) {
+			double cos = Math.abs(Math.cos(angle)), sin = Math.abs(Math.sin(angle));
+			w = (int) Math.ceil(width * cos + height * sin - 1e-9);
+			h = (int) Math.ceil(width * sin + height * cos - 1e-9);
+			// An even difference keeps the center of the image on the center of the sprite
+			w += (w - width) & 1;
+			h += (h - height) & 1;
+		}
+		BufferedImage image = ImageUtils.CreateCompatibleImage(w, h, step != 0 ? Transparency.TRANSLUCENT : source.getTransparency());
+		Graphics2D g = image.createGraphics();
+		g.setComposite(AlphaComposite.Src);
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+		if (step != 0) {
+			g.translate(w / 2.0, h / 2.0);
+			g.rotate(angle);
+			g.translate(-width / 2.0, -height / 2.0);
+		}
+		g.drawImage(source, 0, 0, width, height, null);
+		g.dispose();
+		return tint == NO_TINT ? image : SpriteBatch.tint(image, tint);
+	}
+	
+	private void touch(int e) {
+		if (e == head)
+			return;
+		unlink(e);
+		newer[e] = -1;
+		older[e] = head;
+		newer[head] = e;
+		head = e;
+	}
+	
+	private void unlink(int e) {
+		if (newer[e] >= 0)
+			older[newer[e]] = older[e];
+		else
+			head = older[e];
+		if (older[e] >= 0)
+			newer[older[e]] = newer[e];
+		else
+			tail = newer[e];
+	}
+	
+	private void evict(int e) {
+		remove(e);
+		evictions++;
+	}
+	
+	private void remove(int e) {
+		unlink(e);
+		int bucket = hashes[e] & (table.length - 1);
+		if (table[bucket] == e) {
+			table[bucket] = chain[e];
+		} else {
+			int previous = table[bucket];
+			while (chain[previous] != e)
+				previous = chain[previous];
+			chain[previous] = chain[e];
+		}
+		bytes -= (long) images[e].getWidth(null) * images[e].getHeight(null) * 4;
+		images[e].flush();
+		images[e] = null;
+		sources[e] = null;
+		chain[e] = free;
+		free = e;
+		size--;
+	}
+	
+	/**
+	 * Renders a sprite scaled to the given size from the cache.
+	 * @param sprite Sprite
+	 * @param x X position
+	 * @param y Y position
+	 * @param width Width
+	 * @param height Height
+	 */
+	public void render(Sprite sprite, int x, int y, int width, int height) {
+		render(sprite, x, y, width, height, 0, NO_TINT);
+	}
+	
+	/**
+	 * Renders a sprite scaled to the given size, rotated around its center and tinted, from the cache.
+	 * @param sprite Sprite
+	 * @param x X position
+	 * @param y Y position
+	 * @param width Width
+	 * @param height Height
+	 * @param rotation Rotation in radians, clockwise, rounded to the closest rotation step
+	 * @param tint ARGB color the sprite is multiplied with, or {@code NO_TINT}
+	 */
+	public void render(Sprite sprite, int x, int y, int width, int height, double rotation, int tint) {
+		if (width <= 0 || height <= 0 || (tint >>> 24) == 0)
+			return;
+		int step = getRotationStep(rotation);
+		// Rotated sprites are culled by the circle around them, so images are only made for sprites that may be visible
+		int reach = step == 0 ? 0 : ((int) Math.ceil(Math.hypot(width, height)) - Math.min(width, height) + 1) / 2;
+		if (!Renderer.SJGL_Visible(x - reach, y - reach, width + reach * 2, height + reach * 2))
+			return;
+			
+		Image image = getImage(sprite.getSprite(), width, height, step, tint);
+		int w = image.getWidth(null), h = image.getHeight(null);
+		int dx = x + (width - w) / 2, dy = y + (height - h) / 2;
+		CommandBuffer commands = Renderer.SJGL_Commands();
+		if (commands != null)
+			commands.image(image, dx, dy, w, h);
+		else
+			Application.g.drawImage(image, dx, dy, null);
+	}
+	
+	/**
+	 * Removes every cached image made from the source, e.g. after its pixels changed.
+	 * @param source Image of a sprite
+	 */
+	public void remove(BufferedImage source) {
+		for (int e = head; e >= 0;) {
+			int next = older[e];
+			if (sources[e] == source)
+				remove(e);
+			e = next;
+		}
+	}
+	
+	/**
+	 * Removes every cached image.
+	 */
+	public void clear() {
+		while (tail >= 0)
+			remove(tail);
+	}
+	
+	/**
+	 * Sets the largest amount of bytes used by the cached images. Images are dropped right away if the cache is over the new budget.
+	 * @param budget Budget in bytes
+	 */
+	public void setBudget(long budget) {
+		if (budget < 0)
+			throw new IllegalArgumentException("Budget can't be negative: " + budget);
+		this.budget = budget;
+		while (bytes > budget)
+			evict(tail);
+	}
+	
+	/**
+	 * Sets how many rotations per turn are cached. More steps rotate more smoothly but make more images. By default, it is 64. Clears the
+	 * cache.
+	 * @param rotationSteps Rotation steps per turn
+	 */
+	public void setRotationSteps(int rotationSteps) {
+		if (rotationSteps <= 0)
+			throw new IllegalArgumentException("Rotation steps must be positive: " + rotationSteps);
+		clear();
+		this.rotationSteps = rotationSteps;
+	}
+	
+	/**
+	 * Sets how images are resampled when they are scaled and rotated. Since it is done once per image, a smoother interpolation than
+	 * nearest neighbor costs nothing per draw. Clears the cache.
+	 * @param interpolation A value of {@code RenderingHints.KEY_INTERPOLATION}
+	 */
+	public void setInterpolation(Object interpolation) {
+		if (!RenderingHints.KEY_INTERPOLATION.isCompatibleValue(interpolation))
+			throw new IllegalArgumentException("Not an interpolation hint: " + interpolation);
+		clear();
+		this.interpolation = interpolation;
+	}
+	
+	/**
+	 * Resets the hit, miss and eviction counters.
+	 */
+	public void resetCounters() {
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+	}
+	
+	/**
+	 * Returns the budget in bytes.
+	 * @return <STRONG>long</STRONG> budget
+	 */
+	public long getBudget() {
+		return budget;
+	}
+	
+	/**
+	 * Returns the amount of bytes used by the cached images.
+	 * @return <STRONG>long</STRONG> bytes
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+	
+	/**
+	 * Returns the amount of cached images.
+	 * @return <STRONG>int</STRONG> images
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Returns the rotation steps per turn.
+	 * @return <STRONG>int</STRONG> steps
+	 */
+	public int getRotationSteps() {
+		return rotationSteps;
+	}
+	
+	/**
+	 * Returns how many images were found in the cache.
+	 * @return <STRONG>long</STRONG> hits
+	 */
+	public long getHits() {
+		return hits;
+	}
+	
+	/**
+	 * Returns how many images had to be made because they weren't in the cache.
+	 * @return <STRONG>long</STRONG> misses
+	 */
+	public long getMisses() {
+		return misses;
+	}
+	
+	/**
+	 * Returns how many images were dropped to stay within the budget.
+	 * @return <STRONG>long</STRONG> evictions
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+	
+}
@@ -0,0 +1,55 @@
+package com.sjgl.graphics.text;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A rasterized glyph: its region in a page of a {@link GlyphAtlas} and where it is drawn relative to the pen position on the baseline.
+ *
+ * @author yiwuen
+ *
+ * @see GlyphAtlas
+ *
+ */
+public final class Glyph {
+	
+	final BufferedImage page;
+	final int sx, sy, width, height;
+	final int offsetX, offsetY;
+	final int advance;
+	
+	Glyph(BufferedImage page, int sx, int sy, int width, int height, int offsetX, int offsetY, int advance) {
+		this.page = page;
+		this.sx = sx;
+		this.sy = sy;
+		this.width = width;
+		this.height = height;
+		this.offsetX = offsetX;
+		this.offsetY = offsetY;
+		this.advance = advance;
+	}
+	
+	/**
+	 * Returns the distance the pen moves after this glyph.
+	 * @return <STRONG>int</STRONG> advance
+	 */
+	public int getAdvance() {
+		return advance;
+	}
+	
+	/**
+	 * Returns the width of the glyph's pixels.
+	 * @return <STRONG>int</STRONG> width
+	 */
+	public int getWidth() {
+		return width;
+	}
+	
+	/**
+	 * Returns the height of the glyph's pixels.
+	 * @return <STRONG>int</STRONG> height
+	 */
+	public int getHeight() {
+		return height;
+	}
+	
+}
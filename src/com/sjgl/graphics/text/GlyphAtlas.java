@@ -0,0 +1,346 @@
+package com.sjgl.graphics.text;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.sjgl.graphics.CommandBuffer;
+import com.sjgl.graphics.Renderer;
+
+/**
+ * <strong>Renders text from glyphs that are rasterized once.</strong>
+ *
+ * <p>An atlas belongs to one font and one color. Each glyph is rasterized the first time it is used into a page (a {@link BufferedImage})
+ * and is drawn from then on by copying its region, so drawing text needs no {@link Font} changes or glyph layout, and glyphs recorded into
+ * a {@link CommandBuffer} are drawn together by page. Lines of text are measured once and kept in a bounded cache of {@link GlyphRun}s, so
+ * measuring with {@code getWidth(String)} or drawing a string that was drawn before doesn't look up any glyph or {@link FontMetrics}.
+ *
+ * <p>Get atlases with {@code GlyphAtlas.get(Font, int)}, which keeps recently used atlases, and keep the atlas in a field instead of
+ * creating a {@link Font} every frame. For text that rarely changes, use a {@link TextBlock}.
+ *
+ * <p>Glyphs are positioned by their advances, so kerning and ligatures are not applied. Atlases are meant to be used from the rendering
+ * thread.
+ *
+ * @author yiwuen
+ *
+ * @see TextBlock
+ * @see Renderer
+ *
+ */
+public final class GlyphAtlas {
+	
+	private static final int PAGE_SIZE = 512;
+	private static final int PADDING = 1;
+	private static final int MAX_ATLASES = 64;
+	private static final int MAX_RUNS = 512;
+	
+	@SuppressWarnings("serial")
+	private static final Map<Key, GlyphAtlas> atlases = new LinkedHashMap<Key, GlyphAtlas>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, GlyphAtlas> eldest) {
+			return size() > MAX_ATLASES;
+		}
+	};
+	
+	private final Font font;
+	private final Color color;
+	private final FontRenderContext frc;
+	private final FontMetrics metrics;
+	
+	private final Glyph[] latin = new Glyph[256];
+	private final Map<Integer, Glyph> glyphs = new HashMap<>();
+	@SuppressWarnings("serial")
+	private final Map<String, GlyphRun> runs = new LinkedHashMap<String, GlyphRun>(64, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, GlyphRun> eldest) {
+			return size() > MAX_RUNS;
+		}
+	};
+	
+	private final List<BufferedImage> pages = new ArrayList<>();
+	private Graphics2D pageGraphics;
+	private int pageSize, penX, penY, rowHeight;
+	
+	/**
+	 * Returns an atlas for a font and color, creating it if none of the recently used atlases match.
+	 * @param font Font
+	 * @param argb Packed ARGB color of the text
+	 *
+	 * @return GlyphAtlas
+	 *
+	 * @see Font
+	 */
+	public static synchronized GlyphAtlas get(Font font, int argb) {
+		Key key = new Key(font, argb);
+		GlyphAtlas atlas = atlases.get(key);
+		if (atlas == null) {
+			atlas = new GlyphAtlas(font, argb);
+			atlases.put(key, atlas);
+		}
+		return atlas;
+	}
+	
+	/**
+	 * Creates an empty atlas. Prefer {@code GlyphAtlas.get(Font, int)}, which shares atlases.
+	 * @param font Font
+	 * @param argb Packed ARGB color of the text
+	 */
+	public GlyphAtlas(Font font, int argb) {
+		this.font = font;
+		this.color = new Color(argb, true);
+		BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB_PRE);
+		Graphics2D g = scratch.createGraphics();
+		setHints(g);
+		metrics = g.getFontMetrics(font);
+		frc = g.getFontRenderContext();
+		g.dispose();
+	}
+	
+	/**
+	 * Returns the glyph of a character, rasterizing it if it wasn't used before.
+	 * @param codePoint Unicode code point
+	 *
+	 * @return Glyph
+	 */
+	public Glyph glyph(int codePoint) {
+		Glyph glyph;
+		if (codePoint < latin.length) {
+			glyph = latin[codePoint];
+			if (glyph == null)
+				glyph = latin[codePoint] = rasterize(codePoint);
+		} else {
+			glyph = glyphs.get(codePoint);
+			if (glyph == null) {
+				glyph = rasterize(codePoint);
+				glyphs.put(codePoint, glyph);
+			}
+		}
+		return glyph;
+	}
+	
+	private Glyph rasterize(int codePoint) {
+		String str = new String(Character.toChars(codePoint));
+		int advance = metrics.charWidth(codePoint);
+		Rectangle bounds = font.createGlyphVector(frc, str).getPixelBounds(frc, 0, 0);
+		if (bounds.isEmpty())
+			return new Glyph(null, 0, 0, 0, 0, 0, 0, advance);
+		// Antialiasing may touch one pixel outside of the pixel bounds
+		bounds.grow(1, 1);
+		
+		if (pageGraphics == null)
+			addPage(bounds.width, bounds.height);
+		if (penX + bounds.width + PADDING > pageSize) {
+			penX = PADDING;
+			penY += rowHeight + PADDING;
+			rowHeight = 0;
+		}
+		if (penY + bounds.height + PADDING > pageSize || bounds.width + 2 * PADDING > pageSize)
+			addPage(bounds.width, bounds.height);
+			
+		pageGraphics.drawString(str, penX - bounds.x, penY - bounds.y);
+		Glyph glyph = new Glyph(pages.get(pages.size() - 1), penX, penY, bounds.width, bounds.height, bounds.x, bounds.y, advance);
+		penX += bounds.width + PADDING;
+		rowHeight = Math.max(rowHeight, bounds.height);
+		return glyph;
+	}
+	
+	private void addPage(int width, int height) {
+		if (pageGraphics != null)
+			pageGraphics.dispose();
+		pageSize = PAGE_SIZE;
+		while (pageSize < Math.max(width, height) + 2 * PADDING)
+			pageSize *= 2;
+		BufferedImage page = new BufferedImage(pageSize, pageSize, BufferedImage.TYPE_INT_ARGB_PRE);
+		pageGraphics = page.createGraphics();
+		setHints(pageGraphics);
+		pageGraphics.setFont(font);
+		pageGraphics.setColor(color);
+		pages.add(page);
+		penX = PADDING;
+		penY = PADDING;
+		rowHeight = 0;
+	}
+	
+	private static void setHints(Graphics2D g) {
+		g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+	}
+	
+	/**
+	 * Returns the measured line of a string, from the cache if it was measured recently.
+	 * @param text Text on one line
+	 *
+	 * @return GlyphRun
+	 */
+	public GlyphRun layout(String text) {
+		GlyphRun run = runs.get(text);
+		if (run == null) {
+			Glyph[] line = new Glyph[text.codePointCount(0, text.length())];
+			int[] positions = new int[line.length];
+			int pen = 0;
+			for (int i = 0, offset = 0; i < line.length; i++) {
+				int codePoint = text.codePointAt(offset);
+				offset += Character.charCount(codePoint);
+				line[i] = glyph(codePoint);
+				positions[i] = pen;
+				pen += line[i].advance;
+			}
+			run = new GlyphRun(line, positions, pen);
+			runs.put(text, run);
+		}
+		return run;
+	}
+	
+	/**
+	 * Draws a string with the baseline of its first character at (x, y), like {@code Graphics2D.drawString(String, int, int)}.
+	 * @param g Graphics to draw into
+	 * @param text Text on one line
+	 * @param x X position
+	 * @param y Y position of the baseline
+	 */
+	public void draw(Graphics2D g, String text, int x, int y) {
+		draw(g, layout(text), x, y);
+	}
+	
+	/**
+	 * Draws a measured line with the baseline of its first character at (x, y).
+	 * @param g Graphics to draw into
+	 * @param run Measured line of this atlas
+	 * @param x X position
+	 * @param y Y position of the baseline
+	 */
+	public void draw(Graphics2D g, GlyphRun run, int x, int y) {
+		for (int i = 0; i < run.glyphs.length; i++) {
+			Glyph glyph = run.glyphs[i];
+			if (glyph.page == null)
+				continue;
+			int dx = x + run.positions[i] + glyph.offsetX, dy = y + glyph.offsetY;
+			g.drawImage(glyph.page, dx, dy, dx + glyph.width, dy + glyph.height, glyph.sx, glyph.sy, glyph.sx + glyph.width,
+					glyph.sy + glyph.height, null);
+		}
+	}
+	
+	/**
+	 * Records a measured line into a command buffer with the baseline of its first character at (x, y).
+	 * @param commands Command buffer
+	 * @param run Measured line of this atlas
+	 * @param x X position
+	 * @param y Y position of the baseline
+	 *
+	 * @see CommandBuffer
+	 */
+	public void record(CommandBuffer commands, GlyphRun run, int x, int y) {
+		for (int i = 0; i < run.glyphs.length; i++) {
+			Glyph glyph = run.glyphs[i];
+			if (glyph.page != null)
+				commands.image(glyph.page, x + run.positions[i] + glyph.offsetX, y + glyph.offsetY, glyph.sx, glyph.sy, glyph.width,
+						glyph.height);
+		}
+	}
+	
+	/**
+	 * Renders a string with the baseline of its first character at (x, y). Same as {@code Renderer.SJGL_DrawString(String, GlyphAtlas,
+	 * int, int)}.
+	 * @param text Text on one line
+	 * @param x X position
+	 * @param y Y position of the baseline
+	 */
+	public void render(String text, int x, int y) {
+		Renderer.SJGL_DrawString(text, this, x, y);
+	}
+	
+	/**
+	 * Returns the advance width of a string.
+	 * @param text Text on one line
+	 *
+	 * @return <STRONG>int</STRONG> width
+	 */
+	public int getWidth(String text) {
+		return layout(text).width;
+	}
+	
+	/**
+	 * Returns the ascent of the font.
+	 * @return <STRONG>int</STRONG> ascent
+	 */
+	public int getAscent() {
+		return metrics.getAscent();
+	}
+	
+	/**
+	 * Returns the descent of the font.
+	 * @return <STRONG>int</STRONG> descent
+	 */
+	public int getDescent() {
+		return metrics.getDescent();
+	}
+	
+	/**
+	 * Returns the distance between the baselines of two lines.
+	 * @return <STRONG>int</STRONG> line height
+	 */
+	public int getLineHeight() {
+		return metrics.getHeight();
+	}
+	
+	/**
+	 * Returns the font of the atlas.
+	 * @return Font
+	 *
+	 * @see Font
+	 */
+	public Font getFont() {
+		return font;
+	}
+	
+	/**
+	 * Returns the color of the text.
+	 * @return <STRONG>int</STRONG> packed ARGB color
+	 */
+	public int getColor() {
+		return color.getRGB();
+	}
+	
+	/**
+	 * Returns the amount of pages the glyphs are rasterized into.
+	 * @return <STRONG>int</STRONG> pages
+	 */
+	public int getPageCount() {
+		return pages.size();
+	}
+	
+	private static final class Key {
+		
+		private final Font font;
+		private final int argb;
+		
+		Key(Font font, int argb) {
+			this.font = font;
+			this.argb = argb;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return argb == other.argb && font.equals(other.font);
+		}
+		
+		@Override
+		public int hashCode() {
+			return font.hashCode() * 31 + argb;
+		}
+		
+	}
+	
+}
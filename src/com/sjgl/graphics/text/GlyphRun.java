@@ -0,0 +1,50 @@
+package com.sjgl.graphics.text;
+
+/**
+ * A measured line of text: its glyphs and their pen positions. Runs are cached by their {@link GlyphAtlas}, so measuring or drawing the
+ * same string again doesn't look up any glyph.
+ *
+ * @author yiwuen
+ *
+ * @see GlyphAtlas
+ *
+ */
+public final class GlyphRun {
+	
+	final Glyph[] glyphs;
+	final int[] positions;
+	final int width;
+	
+	GlyphRun(Glyph[] glyphs, int[] positions, int width) {
+		this.glyphs = glyphs;
+		this.positions = positions;
+		this.width = width;
+	}
+	
+	/**
+	 * Returns the advance width of the line.
+	 * @return <STRONG>int</STRONG> width
+	 */
+	public int getWidth() {
+		return width;
+	}
+	
+	/**
+	 * Returns the amount of glyphs in the line.
+	 * @return <STRONG>int</STRONG> length
+	 */
+	public int length() {
+		return glyphs.length;
+	}
+	
+	/**
+	 * Returns the x position of a glyph relative to the start of the line.
+	 * @param index Index of the glyph
+	 *
+	 * @return <STRONG>int</STRONG> x position
+	 */
+	public int getPosition(int index) {
+		return positions[index];
+	}
+	
+}
@@ -0,0 +1,266 @@
+package com.sjgl.graphics.text;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sjgl.Application;
+import com.sjgl.graphics.CommandBuffer;
+import com.sjgl.graphics.Renderer;
+
+/**
+ * <strong>A block of text that is laid out and drawn once, then rendered as one image.</strong>
+ *
+ * <p>Use a text block for text that rarely changes, such as labels, scoreboards or chat lines. The text is split into lines at
+ * {@code '\n'} and, if a wrap width is set, between words. Lines are drawn with a {@link GlyphAtlas} into a cached image the first time the
+ * block is rendered after a change, and every frame after that costs a single image copy. Setting the same text again doesn't change
+ * anything.
+ *
+ * <p>The block covers every pixel of its glyphs: if a glyph hangs to the left of its pen position or above the first line, as italic or
+ * accented letters can, the lines are moved right or down by that inset inside the block instead of being clipped.
+ *
+ * @author yiwuen
+ *
+ * @see GlyphAtlas
+ *
+ */
+public final class TextBlock {
+	
+	private final GlyphAtlas atlas;
+	private final List<GlyphRun> lines = new ArrayList<>();
+	
+	private String text = "";
+	private int wrapWidth;
+	private int width, height;
+	// Distance from the corner of the block to the start of the first line, for glyphs that hang over the left or top edge
+	private int insetX, insetY;
+	
+	// Two images are used in turn, so a recorded frame never refers to pixels that were drawn over
+	private BufferedImage image, spare;
+	private boolean dirty = true;
+	
+	/**
+	 * Creates an empty text block.
+	 * @param atlas Font and color of the text
+	 */
+	public TextBlock(GlyphAtlas atlas) {
+		this.atlas = atlas;
+	}
+	
+	/**
+	 * Creates a text block.
+	 * @param atlas Font and color of the text
+	 * @param text Text, lines are separated by {@code '\n'}
+	 */
+	public TextBlock(GlyphAtlas atlas, String text) {
+		this(atlas);
+		setText(text);
+	}
+	
+	/**
+	 * Changes the text. The block is only laid out and drawn again if the text is different.
+	 * @param text Text, lines are separated by {@code '\n'}
+	 */
+	public void setText(String text) {
+		if (!this.text.equals(text)) {
+			this.text = text;
+			dirty = true;
+		}
+	}
+	
+	/**
+	 * Sets the width at which lines are wrapped between words. Words longer than the width are not split.
+	 * @param wrapWidth Width in pixels, or 0 to only break lines at {@code '\n'}
+	 */
+	public void setWrapWidth(int wrapWidth) {
+		if (this.wrapWidth != wrapWidth) {
+			this.wrapWidth = wrapWidth;
+			dirty = true;
+		}
+	}
+	
+	private void update() {
+		if (!dirty)
+			return;
+		dirty = false;
+		layoutLines();
+		if (width == 0 || height == 0)
+			return;
+			
+		BufferedImage previous = image;
+		image = spare;
+		spare = previous;
+		if (image == null || image.getWidth() < width || image.getHeight() < height)
+			image = new BufferedImage(Math.max(width, image == null ? 0 : image.getWidth()),
+					Math.max(height, image == null ? 0 : image.getHeight()), BufferedImage.TYPE_INT_ARGB_PRE);
+		Graphics2D g = image.createGraphics();
+		g.setComposite(AlphaComposite.Clear);
+		g.fillRect(0, 0, image.getWidth(), image.getHeight());
+		g.setComposite(AlphaComposite.SrcOver);
+		for (int i = 0; i < lines.size(); i++)
+			atlas.draw(g, lines.get(i), insetX, insetY + atlas.getAscent() + i * atlas.getLineHeight());
+		g.dispose();
+	}
+	
+	private void layoutLines() {
+		lines.clear();
+		int start = 0;
+		while (start <= text.length()) {
+			int end = text.indexOf('\n', start);
+			if (end < 0)
+				end = text.length();
+			if (wrapWidth > 0)
+				wrap(start, end);
+			else
+				addLine(text.substring(start, end));
+			start = end + 1;
+		}
+		measure();
+	}
+	
+	/**
+	 * Sets the size and insets of the block from the union of the line boxes and the pixel bounds of the glyphs.
+	 */
+	private void measure() {
+		int left = 0, top = 0, right = 0, bottom = 0;
+		if (!text.isEmpty()) {
+			bottom = lines.size() * atlas.getLineHeight();
+			for (int i = 0; i < lines.size(); i++) {
+				GlyphRun run = lines.get(i);
+				int baseline = atlas.getAscent() + i * atlas.getLineHeight();
+				right = Math.max(right, run.width);
+				for (int j = 0; j < run.glyphs.length; j++) {
+					Glyph glyph = run.glyphs[j];
+					if (glyph.page == null)
+						continue;
+					int x = run.positions[j] + glyph.offsetX, y = baseline + glyph.offsetY;
+					left = Math.min(left, x);
+					top = Math.min(top, y);
+					right = Math.max(right, x + glyph.width);
+					bottom = Math.max(bottom, y + glyph.height);
+				}
+			}
+		}
+		insetX = -left;
+		insetY = -top;
+		width = right - left;
+		height = bottom - top;
+	}
+	
+	private void wrap(int start, int end) {
+		int lineStart = start, lastSpace = -1, pen = 0;
+		for (int i = start; i < end;) {
+			int codePoint = text.codePointAt(i);
+			if (codePoint == ' ')
+				lastSpace = i;
+			pen += atlas.glyph(codePoint).advance;
+			if (pen > wrapWidth && lastSpace > lineStart) {
+				addLine(text.substring(lineStart, lastSpace));
+				lineStart = i = lastSpace + 1;
+				lastSpace = -1;
+				pen = 0;
+				continue;
+			}
+			i += Character.charCount(codePoint);
+		}
+		addLine(text.substring(lineStart, end));
+	}
+	
+	private void addLine(String line) {
+		lines.add(atlas.layout(line));
+	}
+	
+	/**
+	 * Draws the block with its top left corner at (x, y).
+	 * @param g Graphics to draw into
+	 * @param x X position
+	 * @param y Y position
+	 */
+	public void draw(Graphics2D g, int x, int y) {
+		update();
+		if (width > 0 && height > 0)
+			g.drawImage(image, x, y, x + width, y + height, 0, 0, width, height, null);
+	}
+	
+	/**
+	 * Renders the block with its top left corner at (x, y).
+	 * @param x X position
+	 * @param y Y position
+	 */
+	public void render(int x, int y) {
+		if (!Renderer.SJGL_Visible(x, y, getWidth(), getHeight()))
+			return;
+		CommandBuffer commands = Renderer.SJGL_Commands();
+		if (commands == null) {
+			draw(Application.g, x, y);
+			return;
+		}
+		update();
+		if (width > 0 && height > 0)
+			commands.image(image, x, y, 0, 0, width, height);
+	}
+	
+	/**
+	 * Returns the text.
+	 * @return String
+	 */
+	public String getText() {
+		return text;
+	}
+	
+	/**
+	 * Returns the width of the block: the widest line, plus the glyphs that hang over its edges.
+	 * @return <STRONG>int</STRONG> width
+	 */
+	public int getWidth() {
+		update();
+		return width;
+	}
+	
+	/**
+	 * Returns the height of the block: all lines, plus the glyphs that hang over their edges.
+	 * @return <STRONG>int</STRONG> height
+	 */
+	public int getHeight() {
+		update();
+		return height;
+	}
+	
+	/**
+	 * Returns how far the lines start from the left edge of the block, for glyphs that hang to the left of the first pen position.
+	 * @return <STRONG>int</STRONG> inset
+	 */
+	public int getInsetX() {
+		update();
+		return insetX;
+	}
+	
+	/**
+	 * Returns how far the first line starts from the top edge of the block, for glyphs that reach above the ascent.
+	 * @return <STRONG>int</STRONG> inset
+	 */
+	public int getInsetY() {
+		update();
+		return insetY;
+	}
+	
+	/**
+	 * Returns the amount of lines after wrapping.
+	 * @return <STRONG>int</STRONG> lines
+	 */
+	public int getLineCount() {
+		update();
+		return lines.size();
+	}
+	
+	/**
+	 * Returns the atlas the text is drawn with.
+	 * @return GlyphAtlas
+	 */
+	public GlyphAtlas getAtlas() {
+		return atlas;
+	}
+	
+}
@@ -0,0 +1,4 @@
+/**
+ * Text package containing cached glyph atlas text rendering classes.
+ */
+package com.sjgl.graphics.text;
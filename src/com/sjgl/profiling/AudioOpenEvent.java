@@ -0,0 +1,28 @@
+package com.sjgl.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event emitted every time {@code Audio.play()} opens its clip. Disabled by default.
+ * 
+ * @author yiwuen
+ * 
+ * @see EngineEvents
+ *
+ */
+@Name("com.sjgl.AudioOpen")
+@Label("Audio Open")
+@Description("Audio clip opened by SJGL")
+@Category({"SJGL", "Assets"})
+@Enabled(false)
+public final class AudioOpenEvent extends Event {
+	
+	@Label("Path")
+	public String path;
+	
+}
@@ -0,0 +1,51 @@
+package com.sjgl.profiling;
+
+/**
+ * Tracks whether a Java Flight Recorder recording is running, so the engine only creates and times its JFR events (e.g. {@link FrameEvent})
+ * while something can record them. Without a running recording, checking this costs a single volatile read.
+ * 
+ * <p>All engine events are disabled by default and have to be enabled in the recording settings, e.g.
+ * {@code jcmd <pid> JFR.start settings=profile +com.sjgl.Frame#enabled=true} or with a custom {@code .jfc} file.
+ * 
+ * <p>This class doesn't refer to the flight recorder itself, so it works on a runtime without the {@code jdk.jfr} module, where it never
+ * reports a recording. Engine events must only be created after {@code isRecording()} returned true.
+ * 
+ * @author yiwuen
+ * 
+ * @see FrameEvent
+ * @see ImageDecodeEvent
+ * @see AudioOpenEvent
+ * @see SpritesheetSplitEvent
+ *
+ */
+public final class EngineEvents {
+	
+	private static volatile boolean recording;
+	private static volatile boolean listening;
+	
+	// The jdk.jfr module can be missing from a custom runtime, which fails with a LinkageError instead of an exception
+	static {
+		try {
+			RecordingListener.install();
+			listening = true;
+		} catch (Exception | LinkageError e) {
+			System.err.println("[JFR ERROR] Unable to listen for flight recordings: " + e);
+		}
+	}
+	
+	private EngineEvents() {
+	}
+	
+	static void setRecording(boolean running) {
+		recording = running;
+	}
+	
+	/**
+	 * Returns whether or not a flight recording is running. Always false if flight recordings can't be listened for.
+	 * @return boolean recording
+	 */
+	public static boolean isRecording() {
+		return recording && listening;
+	}
+	
+}
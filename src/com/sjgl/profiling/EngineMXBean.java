@@ -0,0 +1,129 @@
+package com.sjgl.profiling;
+
+import com.sjgl.Application;
+
+/**
+ * Management interface exposing live engine metrics of an {@link Application} over JMX. Registered with
+ * {@code Application.enableMXBean(true)} under the name {@code com.sjgl:type=Engine,name=<application class>} and readable with standard
+ * JVM tooling such as JConsole or JFR streaming.
+ * 
+ * <p>Frame time percentiles are only available while profiling is enabled (see {@code setProfilingEnabled(boolean)}) and are 0 otherwise.
+ * 
+ * @author yiwuen
+ * 
+ * @see EngineMetrics
+ * @see Application
+ *
+ */
+public interface EngineMXBean {
+	
+	/**
+	 * Returns the target amount of ticks per second.
+	 * @return double ticks per second
+	 */
+	double getTargetTicksPerSecond();
+	
+	/**
+	 * Changes the target amount of ticks per second while the application is running.
+	 * @param ticksPerSecond Ticks per second. Must be greater than 0.
+	 */
+	void setTargetTicksPerSecond(double ticksPerSecond);
+	
+	/**
+	 * Returns the target amount of rendered frames per second.
+	 * @return double frames per second
+	 */
+	double getTargetFramesPerSecond();
+	
+	/**
+	 * Changes the target amount of rendered frames per second while the application is running. Only has an effect when the application
+	 * paces its frames.
+	 * @param framesPerSecond Frames per second. Must be greater than 0.
+	 */
+	void setTargetFramesPerSecond(double framesPerSecond);
+	
+	/**
+	 * Returns the amount of ticks run during the last second.
+	 * @return int ticks per second
+	 */
+	int getTicksPerSecond();
+	
+	/**
+	 * Returns the amount of frames rendered during the last second.
+	 * @return int frames per second
+	 */
+	int getFramesPerSecond();
+	
+	/**
+	 * Returns the median frame time.
+	 * @return double milliseconds
+	 */
+	double getFrameTimeP50Millis();
+	
+	/**
+	 * Returns the 99th percentile frame time.
+	 * @return double milliseconds
+	 */
+	double getFrameTimeP99Millis();
+	
+	/**
+	 * Returns the largest frame time.
+	 * @return double milliseconds
+	 */
+	double getFrameTimeMaxMillis();
+	
+	/**
+	 * Returns the total amount of extra ticks run to catch up, i.e. ticks beyond the first one in a frame.
+	 * @return long catch-up ticks
+	 */
+	long getCatchUpTicks();
+	
+	/**
+	 * Returns the amount of frames that reached the maximum catch-up ticks.
+	 * @return long capped frames
+	 */
+	long getCappedFrames();
+	
+	/**
+	 * Returns the total amount of ticks dropped by the catch-up policy.
+	 * @return long dropped ticks
+	 */
+	long getDroppedTicks();
+	
+	/**
+	 * Returns the amount of buffers of the {@code BufferStrategy}.
+	 * @return int buffers
+	 */
+	int getNumBuffers();
+	
+	/**
+	 * Returns how many times the {@code BufferStrategy} was created.
+	 * @return int creations
+	 */
+	int getBufferStrategyCreations();
+	
+	/**
+	 * Returns whether or not the {@code BufferStrategy} had to be recreated after it was first created.
+	 * @return boolean recreated
+	 */
+	boolean isBufferStrategyRecreated();
+	
+	/**
+	 * Returns whether or not the game loop is running.
+	 * @return boolean running
+	 */
+	boolean isRunning();
+	
+	/**
+	 * Returns whether or not frame timings are recorded.
+	 * @return boolean profiling enabled
+	 */
+	boolean isProfilingEnabled();
+	
+	/**
+	 * Enables or disables recording frame timings.
+	 * @param enabled Profiling enabled
+	 */
+	void setProfilingEnabled(boolean enabled);
+	
+}
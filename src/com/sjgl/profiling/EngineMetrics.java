@@ -0,0 +1,166 @@
+package com.sjgl.profiling;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.sjgl.Application;
+
+/**
+ * Default {@link EngineMXBean} implementation reading its metrics from an {@link Application}.
+ * 
+ * @author yiwuen
+ * 
+ * @see EngineMXBean
+ *
+ */
+public final class EngineMetrics implements EngineMXBean {
+	
+	private final Application application;
+	
+	private ObjectName name;
+	
+	/**
+	 * Constructs the metrics of an application.
+	 * @param application Application
+	 */
+	public EngineMetrics(Application application) {
+		this.application = application;
+	}
+	
+	/**
+	 * Registers the metrics with the platform {@link MBeanServer}.
+	 * @return boolean registered
+	 */
+	public boolean register() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			name = new ObjectName("com.sjgl:type=Engine,name=" + ObjectName.quote(application.getClass().getName()));
+			server.registerMBean(this, name);
+			return true;
+		} catch (JMException e) {
+			System.err.println("[JMX ERROR] Unable to register engine metrics: " + e.getMessage());
+			name = null;
+			return false;
+		}
+	}
+	
+	/**
+	 * Unregisters the metrics from the platform {@link MBeanServer}.
+	 */
+	public void unregister() {
+		if (name == null)
+			return;
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+		} catch (JMException e) {
+			System.err.println("[JMX ERROR] Unable to unregister engine metrics: " + e.getMessage());
+		}
+		name = null;
+	}
+	
+	/**
+	 * Returns the name the metrics are registered under, or null if they aren't registered.
+	 * @return {@link ObjectName} name
+	 */
+	public ObjectName getName() {
+		return name;
+	}
+
+	@Override
+	public double getTargetTicksPerSecond() {
+		return application.getTargetTicks();
+	}
+
+	@Override
+	public void setTargetTicksPerSecond(double ticksPerSecond) {
+		application.setTargetTicks(ticksPerSecond);
+	}
+
+	@Override
+	public double getTargetFramesPerSecond() {
+		return application.getTargetFrames();
+	}
+
+	@Override
+	public void setTargetFramesPerSecond(double framesPerSecond) {
+		application.setTargetFrames(framesPerSecond);
+	}
+
+	@Override
+	public int getTicksPerSecond() {
+		return application.getTicksPerSecond();
+	}
+
+	@Override
+	public int getFramesPerSecond() {
+		return application.getFramesPerSecond();
+	}
+
+	@Override
+	public double getFrameTimeP50Millis() {
+		FrameStats stats = application.getFrameStats();
+		return stats != null ? stats.getP50(FrameProfiler.FRAME) / 1000000.0 : 0;
+	}
+
+	@Override
+	public double getFrameTimeP99Millis() {
+		FrameStats stats = application.getFrameStats();
+		return stats != null ? stats.getP99(FrameProfiler.FRAME) / 1000000.0 : 0;
+	}
+
+	@Override
+	public double getFrameTimeMaxMillis() {
+		FrameStats stats = application.getFrameStats();
+		return stats != null ? stats.getMax(FrameProfiler.FRAME) / 1000000.0 : 0;
+	}
+
+	@Override
+	public long getCatchUpTicks() {
+		return application.getCatchUpTicks();
+	}
+
+	@Override
+	public long getCappedFrames() {
+		return application.getCappedFrames();
+	}
+
+	@Override
+	public long getDroppedTicks() {
+		return application.getDroppedTicks();
+	}
+
+	@Override
+	public int getNumBuffers() {
+		return application.getNumBuffers();
+	}
+
+	@Override
+	public int getBufferStrategyCreations() {
+		return application.getBufferStrategyCreations();
+	}
+
+	@Override
+	public boolean isBufferStrategyRecreated() {
+		return application.getBufferStrategyCreations() > 1;
+	}
+
+	@Override
+	public boolean isRunning() {
+		return application.isRunning();
+	}
+
+	@Override
+	public boolean isProfilingEnabled() {
+		return application.isProfilingEnabled();
+	}
+
+	@Override
+	public void setProfilingEnabled(boolean enabled) {
+		if (enabled != isProfilingEnabled())
+			application.enableProfiling(enabled);
+	}
+	
+}
@@ -0,0 +1,47 @@
+package com.sjgl.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event emitted by the {@code Application} game loop once per frame. The event's duration spans the whole frame (ticks, rendering
+ * and presenting). Disabled by default.
+ * 
+ * @author yiwuen
+ * 
+ * @see EngineEvents
+ *
+ */
+@Name("com.sjgl.Frame")
+@Label("Frame")
+@Description("One frame of the SJGL game loop")
+@Category({"SJGL", "Engine"})
+@Enabled(false)
+@StackTrace(false)
+public final class FrameEvent extends Event {
+	
+	@Label("Frame")
+	@Description("Frame number since the application was launched")
+	public long frame;
+	
+	@Label("Ticks")
+	@Description("Ticks run for this frame")
+	public int ticks;
+	
+	@Label("Update Duration")
+	@Description("Time spent in update() for this frame")
+	@Timespan(Timespan.NANOSECONDS)
+	public long updateDuration;
+	
+	@Label("Render Duration")
+	@Description("Time spent in render() for this frame")
+	@Timespan(Timespan.NANOSECONDS)
+	public long renderDuration;
+	
+}
@@ -0,0 +1,148 @@
+package com.sjgl.profiling;
+
+import java.util.Arrays;
+
+/**
+ * Allocation-free histogram of durations in nanoseconds. Values are counted in log-linear buckets (16 buckets per power of two), so
+ * percentiles are accurate to about 6% over the whole range of a {@code long} while recording stays a couple of array operations.
+ * 
+ * <p>A histogram is meant to be written by one thread. Reading it from another thread while it's being written gives approximate results;
+ * use {@code copy()} to take a snapshot.
+ * 
+ * @author yiwuen
+ * 
+ * @see FrameProfiler
+ *
+ */
+public final class FrameHistogram {
+	
+	private static final int SUB_BITS = 5;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	private static final int HALF_COUNT = SUB_COUNT >> 1;
+	private static final int BUCKETS = SUB_COUNT + (63 - SUB_BITS) * HALF_COUNT;
+	
+	private final long[] counts;
+	
+	private long count, total, min = Long.MAX_VALUE, max;
+	
+	/**
+	 * Constructs an empty histogram.
+	 */
+	public FrameHistogram() {
+		counts = new long[BUCKETS];
+	}
+	
+	private FrameHistogram(FrameHistogram other) {
+		counts = other.counts.clone();
+		count = other.count;
+		total = other.total;
+		min = other.min;
+		max = other.max;
+	}
+	
+	/**
+	 * Records a duration. Negative values are recorded as 0.
+	 * @param nanos Duration in nanoseconds
+	 */
+	public void record(long nanos) {
+		if (nanos < 0)
+			nanos = 0;
+		counts[index(nanos)]++;
+		count++;
+		total += nanos;
+		if (nanos < min)
+			min = nanos;
+		if (nanos > max)
+			max = nanos;
+	}
+	
+	/**
+	 * Clears all recorded values.
+	 */
+	public void reset() {
+		Arrays.fill(counts, 0);
+		count = 0;
+		total = 0;
+		min = Long.MAX_VALUE;
+		max = 0;
+	}
+	
+	/**
+	 * Returns a copy of this histogram.
+	 * @return {@link FrameHistogram} copy
+	 */
+	public FrameHistogram copy() {
+		return new FrameHistogram(this);
+	}
+	
+	/**
+	 * Returns the value at the given percentile. The result is the upper bound of the bucket holding the percentile, capped at
+	 * {@code getMax()}.
+	 * @param percentile Percentile between 0 and 100
+	 * @return long duration in nanoseconds, or 0 if nothing was recorded
+	 */
+	public long getPercentile(double percentile) {
+		if (count == 0)
+			return 0;
+		long rank = (long) Math.ceil(Math.min(Math.max(percentile, 0), 100) / 100.0 * count);
+		if (rank < 1)
+			rank = 1;
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank)
+				return Math.min(upperBound(i), max);
+		}
+		return max;
+	}
+	
+	/**
+	 * Returns the amount of recorded values.
+	 * @return long count
+	 */
+	public long getCount() {
+		return count;
+	}
+	
+	/**
+	 * Returns the smallest recorded value.
+	 * @return long duration in nanoseconds, or 0 if nothing was recorded
+	 */
+	public long getMin() {
+		return count == 0 ? 0 : min;
+	}
+	
+	/**
+	 * Returns the largest recorded value.
+	 * @return long duration in nanoseconds
+	 */
+	public long getMax() {
+		return max;
+	}
+	
+	/**
+	 * Returns the average of the recorded values.
+	 * @return double duration in nanoseconds
+	 */
+	public double getMean() {
+		return count == 0 ? 0 : (double) total / count;
+	}
+	
+	private static int index(long value) {
+		if (value < SUB_COUNT)
+			return (int) value;
+		int shift = (63 - Long.numberOfLeadingZeros(value)) - (SUB_BITS - 1);
+		int mantissa = (int) (value >>> shift);
+		return SUB_COUNT + (shift - 1) * HALF_COUNT + (mantissa - HALF_COUNT);
+	}
+	
+	private static long upperBound(int index) {
+		if (index < SUB_COUNT)
+			return index;
+		int k = index - SUB_COUNT;
+		int shift = k / HALF_COUNT + 1;
+		long mantissa = k % HALF_COUNT + HALF_COUNT;
+		return ((mantissa + 1) << shift) - 1;
+	}
+	
+}
@@ -0,0 +1,99 @@
+package com.sjgl.profiling;
+
+import com.sjgl.Application;
+
+/**
+ * Records per-phase frame timings of the {@link Application} game loop into {@link FrameHistogram}s. Enable it with
+ * {@code Application.enableProfiling(true)} and read the timings with {@code Application.getFrameStats()}.
+ * 
+ * <p>The recorded phases are {@code UPDATE} (one {@code update()} call), {@code RENDER} (one {@code render()} call), {@code SHOW}
+ * (presenting the frame with {@code BufferStrategy.show()}) and {@code FRAME} (time between two presented frames, including pacing).
+ * Recording doesn't allocate. When profiling is disabled, the game loop doesn't read the clock for it at all.
+ * 
+ * @author yiwuen
+ * 
+ * @see FrameHistogram
+ * @see FrameStats
+ *
+ */
+public final class FrameProfiler {
+	
+	/**
+	 * {@code update()} phase.
+	 */
+	public static final int UPDATE = 0;
+	
+	/**
+	 * {@code render()} phase.
+	 */
+	public static final int RENDER = 1;
+	
+	/**
+	 * {@code BufferStrategy.show()} phase.
+	 */
+	public static final int SHOW = 2;
+	
+	/**
+	 * Total frame time, measured between two presented frames.
+	 */
+	public static final int FRAME = 3;
+	
+	/**
+	 * Amount of recorded phases.
+	 */
+	public static final int PHASES = 4;
+	
+	static final String[] NAMES = {"update", "render", "show", "frame"};
+	
+	private final FrameHistogram[] histograms = new FrameHistogram[PHASES];
+	
+	private long lastFrame;
+	
+	/**
+	 * Constructs a profiler with empty histograms.
+	 */
+	public FrameProfiler() {
+		for (int i = 0; i < PHASES; i++)
+			histograms[i] = new FrameHistogram();
+	}
+	
+	/**
+	 * Records the duration of a phase.
+	 * @param phase Phase, e.g. {@code FrameProfiler.UPDATE}
+	 * @param nanos Duration in nanoseconds
+	 */
+	public void record(int phase, long nanos) {
+		histograms[phase].record(nanos);
+	}
+	
+	/**
+	 * Marks the end of a frame and records the time since the end of the previous frame as {@code FRAME}.
+	 * @param now Current {@code System.nanoTime()}
+	 */
+	public void endFrame(long now) {
+		if (lastFrame != 0)
+			histograms[FRAME].record(now - lastFrame);
+		lastFrame = now;
+	}
+	
+	/**
+	 * Clears all recorded timings.
+	 */
+	public void reset() {
+		for (FrameHistogram histogram : histograms)
+			histogram.reset();
+		lastFrame = 0;
+	}
+	
+	/**
+	 * Returns a snapshot of the recorded timings.
+	 * @return {@link FrameStats} snapshot
+	 */
+	public FrameStats snapshot() {
+		FrameHistogram[] copies = new FrameHistogram[PHASES];
+		for (int i = 0; i < PHASES; i++)
+			copies[i] = histograms[i].copy();
+		return new FrameStats(copies);
+	}
+	
+}
@@ -0,0 +1,77 @@
+package com.sjgl.profiling;
+
+/**
+ * Snapshot of the frame timings recorded by a {@link FrameProfiler}. Phases are the constants of {@link FrameProfiler}, e.g.
+ * {@code FrameProfiler.RENDER}. All durations are in nanoseconds.
+ * 
+ * @author yiwuen
+ * 
+ * @see FrameProfiler
+ *
+ */
+public final class FrameStats {
+	
+	private final FrameHistogram[] histograms;
+	
+	FrameStats(FrameHistogram[] histograms) {
+		this.histograms = histograms;
+	}
+	
+	/**
+	 * Returns a copy of the histogram of a phase.
+	 * @param phase Phase
+	 * @return {@link FrameHistogram} histogram
+	 */
+	public FrameHistogram getHistogram(int phase) {
+		return histograms[phase].copy();
+	}
+	
+	/**
+	 * Returns the median duration of a phase.
+	 * @param phase Phase
+	 * @return long p50
+	 */
+	public long getP50(int phase) {
+		return histograms[phase].getPercentile(50);
+	}
+	
+	/**
+	 * Returns the 99th percentile duration of a phase.
+	 * @param phase Phase
+	 * @return long p99
+	 */
+	public long getP99(int phase) {
+		return histograms[phase].getPercentile(99);
+	}
+	
+	/**
+	 * Returns the largest duration of a phase.
+	 * @param phase Phase
+	 * @return long max
+	 */
+	public long getMax(int phase) {
+		return histograms[phase].getMax();
+	}
+	
+	/**
+	 * Returns the amount of recorded durations of a phase.
+	 * @param phase Phase
+	 * @return long count
+	 */
+	public long getCount(int phase) {
+		return histograms[phase].getCount();
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < FrameProfiler.PHASES; i++) {
+			if (i > 0)
+				sb.append("; ");
+			sb.append(String.format("%s: p50 %.3f ms, p99 %.3f ms, max %.3f ms", FrameProfiler.NAMES[i], getP50(i) / 1000000.0,
+					getP99(i) / 1000000.0, getMax(i) / 1000000.0));
+		}
+		return sb.toString();
+	}
+	
+}
@@ -0,0 +1,38 @@
+package com.sjgl.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event emitted for every image decoded by {@code PathUtils.GetImage(String)}. Disabled by default.
+ * 
+ * @author yiwuen
+ * 
+ * @see EngineEvents
+ *
+ */
+@Name("com.sjgl.ImageDecode")
+@Label("Image Decode")
+@Description("Image loaded and decoded by SJGL")
+@Category({"SJGL", "Assets"})
+@Enabled(false)
+public final class ImageDecodeEvent extends Event {
+	
+	@Label("Path")
+	public String path;
+	
+	@Label("Width")
+	public int width;
+	
+	@Label("Height")
+	public int height;
+	
+	@Label("Converted")
+	@Description("Whether the decoded image was copied into the format of the screen")
+	public boolean converted;
+	
+}
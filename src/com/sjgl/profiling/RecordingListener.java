@@ -0,0 +1,46 @@
+package com.sjgl.profiling;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+/**
+ * Tells {@link EngineEvents} when flight recordings start and stop. It is the only class of the engine that refers to the flight recorder
+ * itself, so it is only loaded when it is installed, and a runtime without the {@code jdk.jfr} module fails there instead of in every
+ * class that checks {@code EngineEvents.isRecording()}.
+ * 
+ * @author yiwuen
+ * 
+ * @see EngineEvents
+ *
+ */
+final class RecordingListener implements FlightRecorderListener {
+	
+	private RecordingListener() {
+	}
+	
+	static void install() {
+		FlightRecorder.addListener(new RecordingListener());
+	}
+	
+	@Override
+	public void recorderInitialized(FlightRecorder recorder) {
+		refresh();
+	}
+	
+	@Override
+	public void recordingStateChanged(Recording changed) {
+		refresh();
+	}
+	
+	private static void refresh() {
+		boolean running = false;
+		for (Recording recording : FlightRecorder.getFlightRecorder().getRecordings()) {
+			if (recording.getState() == RecordingState.RUNNING)
+				running = true;
+		}
+		EngineEvents.setRecording(running);
+	}
+	
+}
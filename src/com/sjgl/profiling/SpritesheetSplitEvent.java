@@ -0,0 +1,34 @@
+package com.sjgl.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event emitted for every {@code Spritesheet.split()} call. Disabled by default.
+ * 
+ * @author yiwuen
+ * 
+ * @see EngineEvents
+ *
+ */
+@Name("com.sjgl.SpritesheetSplit")
+@Label("Spritesheet Split")
+@Description("Spritesheet split into individual sprites")
+@Category({"SJGL", "Assets"})
+@Enabled(false)
+public final class SpritesheetSplitEvent extends Event {
+	
+	@Label("Sprite Width")
+	public int spriteWidth;
+	
+	@Label("Sprite Height")
+	public int spriteHeight;
+	
+	@Label("Sprites")
+	public int sprites;
+	
+}
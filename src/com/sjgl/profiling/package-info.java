@@ -0,0 +1,4 @@
+/**
+ * Profiling package containing frame timing, engine metrics and flight recorder event classes.
+ */
+package com.sjgl.profiling;
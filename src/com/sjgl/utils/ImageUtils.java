@@ -0,0 +1,91 @@
+package com.sjgl.utils;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+/**
+ * Utilities class for converting images to the pixel format of the display.
+ *
+ * <p>Images decoded by {@code ImageIO} are often {@code TYPE_3BYTE_BGR}, {@code TYPE_4BYTE_ABGR} or indexed, and drawing them converts
+ * every pixel on the fly, every frame. A compatible image is drawn with the fastest blit loop and can be cached in video memory by Java2D
+ * (a managed image), as long as its pixel array is never grabbed.
+ *
+ * @author yiwuen
+ *
+ * @see PathUtils
+ *
+ */
+
+public class ImageUtils {
+	
+	private static GraphicsConfiguration config;
+	
+	/**
+	 * Returns the image in the format of the default screen. In a headless environment, opaque images are returned as {@code TYPE_INT_RGB},
+	 * which is drawn without blending, and others as {@code TYPE_INT_ARGB_PRE}. The image is returned as it is if it already has that
+	 * format; otherwise it is copied once.
+	 *
+	 * @param image Image to convert
+	 * @return {@link BufferedImage} compatible image
+	 *
+	 * @see GraphicsConfiguration
+	 */
+	public static BufferedImage ToCompatibleImage(BufferedImage image) {
+		if (image == null || IsCompatible(image))
+			return image;
+			
+		BufferedImage compatible = CreateCompatibleImage(image.getWidth(), image.getHeight(), image.getTransparency());
+		Graphics2D g = compatible.createGraphics();
+		g.setComposite(AlphaComposite.Src);
+		g.drawImage(image, 0, 0, null);
+		g.dispose();
+		return compatible;
+	}
+	
+	/**
+	 * Creates an empty image in the format returned by {@code ToCompatibleImage(BufferedImage)}.
+	 * 
+	 * @param width Width
+	 * @param height Height
+	 * @param transparency {@code Transparency.OPAQUE}, {@code Transparency.BITMASK} or {@code Transparency.TRANSLUCENT}
+	 * @return {@link BufferedImage} compatible image
+	 */
+	public static BufferedImage CreateCompatibleImage(int width, int height, int transparency) {
+		GraphicsConfiguration config = GetConfiguration();
+		BufferedImage image = config == null
+				? new BufferedImage(width, height, transparency == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB_PRE)
+				: config.createCompatibleImage(width, height, transparency);
+		// Images are mostly created for sprites that are drawn every frame, so they should be the first to be kept in video memory
+		image.setAccelerationPriority(1.0f);
+		return image;
+	}
+	
+	/**
+	 * Checks if the image already has the format returned by {@code ToCompatibleImage(BufferedImage)}.
+	 *
+	 * @param image Image
+	 * @return boolean compatible
+	 */
+	public static boolean IsCompatible(BufferedImage image) {
+		GraphicsConfiguration config = GetConfiguration();
+		if (config == null)
+			return image.getType() == (image.getTransparency() == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB_PRE);
+		return image.getType() != BufferedImage.TYPE_CUSTOM && image.getColorModel().equals(config.getColorModel(image.getTransparency()));
+	}
+	
+	/**
+	 * Returns the configuration of the default screen, or null in a headless environment.
+	 *
+	 * @return {@link GraphicsConfiguration} configuration
+	 */
+	public static GraphicsConfiguration GetConfiguration() {
+		if (config == null && !GraphicsEnvironment.isHeadless())
+			config = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+		return config;
+	}
+	
+}
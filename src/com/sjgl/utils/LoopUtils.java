@@ -0,0 +1,44 @@
+package com.sjgl.utils;
+
+import com.sjgl.Application;
+import com.sjgl.FramePacer;
+
+/**
+ * Utilities class for the game loop of {@link Application}.
+ * 
+ * @author yiwuen
+ * 
+ * @see Application
+ *
+ */
+
+public class LoopUtils {
+	
+	/**
+	 * Renders frames as fast as possible without waiting between them. Keeps one core fully busy.
+	 */
+	public static final int PACING_UNCAPPED = 0;
+	
+	/**
+	 * Renders frames at the target render rate, parking the thread between frames.
+	 * 
+	 * @see FramePacer
+	 */
+	public static final int PACING_PARKED = 1;
+	
+	/**
+	 * Runs every missed tick when the game loop falls behind.
+	 */
+	public static final int CATCH_UP_UNBOUNDED = 0;
+	
+	/**
+	 * Caps the ticks per frame and discards the rest of the missed time.
+	 */
+	public static final int CATCH_UP_DROP = 1;
+	
+	/**
+	 * Caps the ticks per frame and spreads the missed time over the following frames.
+	 */
+	public static final int CATCH_UP_STRETCH = 2;
+	
+}
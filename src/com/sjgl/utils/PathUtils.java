@@ -6,6 +6,8 @@ import java.io.IOException;
 import javax.imageio.ImageIO;
 
 import com.sjgl.graphics.sprite.Sprite;
+import com.sjgl.profiling.EngineEvents;
+import com.sjgl.profiling.ImageDecodeEvent;
 
 /**
  * Contains methods for getting a particular object based on the given path.
@@ -17,16 +19,30 @@ import com.sjgl.graphics.sprite.Sprite;
 public class PathUtils {
 
 	/**
-	 * Returns an {@link BufferedImage} based on the given path.
+	 * Returns an {@link BufferedImage} based on the given path. The image is converted once to the format of the screen, so drawing it
+	 * doesn't convert its pixels every frame.
 	 * 
 	 * @param path Path to the {@link BufferedImage}
 	 * @return {@link BufferedImage} image
 	 * 
 	 * @see BufferedImage
+	 * @see ImageUtils
 	 */
 	public static BufferedImage GetImage(String path) {
+		final ImageDecodeEvent event = EngineEvents.isRecording() ? new ImageDecodeEvent() : null;
+		if (event != null)
+			event.begin();
 		try {
-			return ImageIO.read(Sprite.class.getResource(path));
+			BufferedImage decoded = ImageIO.read(Sprite.class.getResource(path));
+			BufferedImage image = ImageUtils.ToCompatibleImage(decoded);
+			if (event != null && event.shouldCommit() && image != null) {
+				event.path = path;
+				event.width = image.getWidth();
+				event.height = image.getHeight();
+				event.converted = image != decoded;
+				event.commit();
+			}
+			return image;
 		} catch (IOException e) {
 			e.printStackTrace();
 		} catch (Exception e) {